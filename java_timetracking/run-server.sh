@@ -9,5 +9,7 @@ export AWS_REGION=eu-north-1
 export DYNAMODB_ENDPOINT=https://dynamodb.eu-north-1.amazonaws.com
 export port=8888
 export host=127.0.0.1
+# distinct for every instance writing to the same table
+export NODE_ID=0
 
 java -jar /home/ec2-user/java_timetracking-1.0.0.jar "$@"
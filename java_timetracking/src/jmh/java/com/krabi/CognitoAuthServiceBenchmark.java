@@ -0,0 +1,112 @@
+package com.krabi;
+
+import java.math.BigInteger;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.interfaces.RSAPrivateKey;
+import java.security.interfaces.RSAPublicKey;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import com.auth0.jwt.JWT;
+import com.auth0.jwt.algorithms.Algorithm;
+
+import io.vertx.core.Vertx;
+import io.vertx.core.http.HttpServer;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+
+/**
+ * validateToken throughput and, with the gc profiler, bytes allocated per call. The JWKS comes
+ * from a local stub server, keys are generated at setup.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class CognitoAuthServiceBenchmark {
+
+    private static final String REGION = "eu-north-1";
+    private static final String USER_POOL_ID = "eu-north-1_bench";
+    private static final String CLIENT_ID = "bench-client";
+
+    private Vertx vertx;
+    private HttpServer jwksServer;
+    private CognitoAuthService uncached;
+    private CognitoAuthService cached;
+    private String token;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+        generator.initialize(2048);
+        KeyPair keyPair = generator.generateKeyPair();
+        RSAPublicKey publicKey = (RSAPublicKey) keyPair.getPublic();
+        String jwks = new JsonObject().put("keys", new JsonArray().add(new JsonObject()
+                .put("kty", "RSA")
+                .put("alg", "RS256")
+                .put("kid", "kid-1")
+                .put("n", base64Url(publicKey.getModulus()))
+                .put("e", base64Url(publicKey.getPublicExponent())))).encode();
+
+        vertx = Vertx.vertx();
+        jwksServer = vertx.createHttpServer()
+                .requestHandler(req -> req.response().putHeader("content-type", "application/json").end(jwks))
+                .listen(0, "localhost")
+                .await();
+        String jwksUrl = "http://localhost:" + jwksServer.actualPort() + "/jwks.json";
+
+        uncached = new CognitoAuthService(vertx, USER_POOL_ID, CLIENT_ID, REGION, null,
+                new JwksKeyStore(vertx, jwksUrl));
+        cached = new CognitoAuthService(vertx, USER_POOL_ID, CLIENT_ID, REGION, new TokenCache(10_000),
+                new JwksKeyStore(vertx, jwksUrl));
+        uncached.start().await();
+        cached.start().await();
+
+        token = JWT.create()
+                .withKeyId("kid-1")
+                .withIssuer("https://cognito-idp." + REGION + ".amazonaws.com/" + USER_POOL_ID)
+                .withAudience(CLIENT_ID)
+                .withClaim("cognito:username", "bench")
+                .withExpiresAt(new Date(System.currentTimeMillis() + 3_600_000))
+                .sign(Algorithm.RSA256(publicKey, (RSAPrivateKey) keyPair.getPrivate()));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        uncached.close();
+        cached.close();
+        vertx.close().await();
+    }
+
+    // full decode + RS256 signature check with the cached per-kid verifier
+    @Benchmark
+    public JsonObject validateToken() {
+        return uncached.validateToken(token).result();
+    }
+
+    // repeat token answered from TokenCache
+    @Benchmark
+    public JsonObject validateTokenCacheHit() {
+        return cached.validateToken(token).result();
+    }
+
+    private static String base64Url(BigInteger value) {
+        byte[] bytes = value.toByteArray();
+        if (bytes[0] == 0) {
+            bytes = Arrays.copyOfRange(bytes, 1, bytes.length);
+        }
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+}
@@ -0,0 +1,52 @@
+package com.krabi;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+
+import io.vertx.core.http.HttpMethod;
+
+/**
+ * Cost of what every request pays for metrics: looking up its route timer and recording into
+ * it, alone and with four threads sharing the timer the way event loops do. The GC profiler
+ * should report no allocation once the timer exists.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class MetricsBenchmark {
+
+    private final Metrics metrics = new Metrics();
+    private final Metrics.Timer timer = metrics.timer("bench_seconds", "Benchmark");
+    private final Metrics.Counter counter = metrics.counter("bench_total", "Benchmark");
+    private final RequestMetricsHandler handler = new RequestMetricsHandler(metrics, "/api");
+    private long value;
+
+    @Benchmark
+    public void recordTimer() {
+        timer.record(++value & 0xfffff);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void recordTimerContended() {
+        timer.record(System.nanoTime() & 0xfffff);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void incrementCounterContended() {
+        counter.increment();
+    }
+
+    @Benchmark
+    public void recordRequest() {
+        handler.timer(null, HttpMethod.GET, 200).record(++value & 0xfffff);
+    }
+}
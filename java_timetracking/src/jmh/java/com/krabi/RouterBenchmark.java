@@ -0,0 +1,168 @@
+package com.krabi;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.http.PoolOptions;
+import io.vertx.ext.web.Router;
+import io.vertx.ext.web.client.HttpResponse;
+import io.vertx.ext.web.client.WebClient;
+import io.vertx.ext.web.client.WebClientOptions;
+import software.amazon.awssdk.services.dynamodb.DynamoDbAsyncClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.GetItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.GetItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.PutItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.PutItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.QueryRequest;
+import software.amazon.awssdk.services.dynamodb.model.QueryResponse;
+import software.amazon.awssdk.services.dynamodb.model.UpdateItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.UpdateItemResponse;
+
+/**
+ * The service's own router end to end over loopback HTTP: metrics, body handling, the data
+ * bulkhead, TaskService and the response encoding. Authentication runs in dev mode (covered by
+ * CognitoAuthServiceBenchmark) and DynamoDB is a stub answering at once, so the results are
+ * the service's own cost per request. Each invocation keeps {@link #IN_FLIGHT} requests open.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class RouterBenchmark {
+
+    private static final int IN_FLIGHT = 64;
+    private static final int PAGE_SIZE = 20;
+
+    private Vertx vertx;
+    private WebClient client;
+    private final Buffer newTask = Buffer.buffer(
+            "{\"date\":\"2025-01-15\",\"project\":\"bench\",\"hours\":8,\"task\":\"benchmark task\"}");
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        vertx = Vertx.vertx();
+        DynamoDbAsyncClient dynamoDb = new CannedDynamoDbClient();
+        SummaryService summaryService = new SummaryService(dynamoDb);
+        // no task cache, every request goes through the DynamoDB client
+        TaskService taskService = new TaskService(dynamoDb, summaryService, null, new TaskIdGenerator(1));
+        MainVerticle verticle = new MainVerticle();
+        verticle.init(vertx, vertx.getOrCreateContext());
+        Router router = verticle.router(taskService, summaryService, new AuthMiddleware(),
+                new Bulkhead("data-access", 512, 2048), new Metrics(), new AccessLogHandler(0), null, null);
+        int port = vertx.createHttpServer().requestHandler(router).listen(0, "localhost").await().actualPort();
+        client = WebClient.create(vertx, new WebClientOptions().setDefaultPort(port),
+                new PoolOptions().setHttp1MaxSize(IN_FLIGHT));
+        // fail fast rather than measure error responses
+        checkStatus(client.get("/api/tasks/1").send().await(), 200);
+        checkStatus(client.get("/api/tasks").send().await(), 200);
+        checkStatus(client.post("/api/tasks").putHeader("content-type", "application/json").sendBuffer(newTask).await(), 201);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        client.close();
+        vertx.close().await();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(IN_FLIGHT)
+    public Object getTask() {
+        List<Future<HttpResponse<Buffer>>> responses = new ArrayList<>(IN_FLIGHT);
+        for (int i = 0; i < IN_FLIGHT; i++) {
+            responses.add(client.get("/api/tasks/1").send());
+        }
+        return Future.all(responses).await();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(IN_FLIGHT)
+    public Object listTasks() {
+        List<Future<HttpResponse<Buffer>>> responses = new ArrayList<>(IN_FLIGHT);
+        for (int i = 0; i < IN_FLIGHT; i++) {
+            responses.add(client.get("/api/tasks").send());
+        }
+        return Future.all(responses).await();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(IN_FLIGHT)
+    public Object createTask() {
+        List<Future<HttpResponse<Buffer>>> responses = new ArrayList<>(IN_FLIGHT);
+        for (int i = 0; i < IN_FLIGHT; i++) {
+            responses.add(client.post("/api/tasks").putHeader("content-type", "application/json").sendBuffer(newTask));
+        }
+        return Future.all(responses).await();
+    }
+
+    private static void checkStatus(HttpResponse<Buffer> response, int expected) {
+        if (response.statusCode() != expected) {
+            throw new IllegalStateException("Expected " + expected + " but got " + response.statusCode()
+                    + ": " + response.bodyAsString());
+        }
+    }
+
+    // answers with fixed items right away; the summary updates of createTask succeed without effect
+    static class CannedDynamoDbClient implements DynamoDbAsyncClient {
+
+        private final Map<String, AttributeValue> item;
+        private final QueryResponse page;
+
+        CannedDynamoDbClient() {
+            Task task = new Task(1, "2025-01-15", "bench", 8, "benchmark task", "devuser");
+            task.setVersion(1);
+            item = TaskSchema.toItem(task, task.getId());
+            List<Map<String, AttributeValue>> items = new ArrayList<>();
+            for (int i = 0; i < PAGE_SIZE; i++) {
+                task.setId(i);
+                items.add(TaskSchema.toItem(task, task.getId()));
+            }
+            page = QueryResponse.builder().items(items).build();
+        }
+
+        @Override
+        public CompletableFuture<GetItemResponse> getItem(GetItemRequest request) {
+            return CompletableFuture.completedFuture(GetItemResponse.builder().item(item).build());
+        }
+
+        @Override
+        public CompletableFuture<QueryResponse> query(QueryRequest request) {
+            return CompletableFuture.completedFuture(page);
+        }
+
+        @Override
+        public CompletableFuture<PutItemResponse> putItem(PutItemRequest request) {
+            return CompletableFuture.completedFuture(PutItemResponse.builder().build());
+        }
+
+        @Override
+        public CompletableFuture<UpdateItemResponse> updateItem(UpdateItemRequest request) {
+            return CompletableFuture.completedFuture(UpdateItemResponse.builder().build());
+        }
+
+        @Override
+        public String serviceName() {
+            return SERVICE_NAME;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
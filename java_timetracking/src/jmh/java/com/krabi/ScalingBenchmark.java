@@ -0,0 +1,108 @@
+package com.krabi;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import io.vertx.core.AbstractVerticle;
+import io.vertx.core.DeploymentOptions;
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import io.vertx.core.VertxOptions;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.http.PoolOptions;
+import io.vertx.ext.web.client.HttpResponse;
+import io.vertx.ext.web.client.WebClient;
+import io.vertx.ext.web.client.WebClientOptions;
+
+/**
+ * Throughput of the service's router as event loops and verticle instances grow, the way
+ * {@code main} deploys them: one of each per {@link #instances}, all listening on one port and
+ * sharing one TaskService, bulkhead and metrics registry. DynamoDB is the canned client of
+ * {@link RouterBenchmark}, so every request is pure service CPU and the results should rise
+ * close to linearly until instances reach the free cores. The load generator runs in the same
+ * JVM on its own {@link #CLIENT_EVENT_LOOPS} event loops and takes cores too; compare runs on
+ * a machine with at least {@code instances + CLIENT_EVENT_LOOPS} cores.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class ScalingBenchmark {
+
+    private static final int IN_FLIGHT = 256;
+    private static final int CLIENT_EVENT_LOOPS = 4;
+    private static final int PORT = 8891;
+
+    @Param({"1", "2", "4", "8"})
+    public int instances;
+
+    private Vertx serverVertx;
+    private Vertx clientVertx;
+    private WebClient client;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        serverVertx = Vertx.vertx(new VertxOptions().setEventLoopPoolSize(instances));
+        RouterBenchmark.CannedDynamoDbClient dynamoDb = new RouterBenchmark.CannedDynamoDbClient();
+        SummaryService summaryService = new SummaryService(dynamoDb);
+        TaskService taskService = new TaskService(dynamoDb, summaryService, null, new TaskIdGenerator(1));
+        Bulkhead dataBulkhead = new Bulkhead("data-access", 512, 2048);
+        Metrics metrics = new Metrics();
+        serverVertx.deployVerticle(() -> new AbstractVerticle() {
+            @Override
+            public void start(Promise<Void> startPromise) {
+                MainVerticle verticle = new MainVerticle();
+                verticle.init(vertx, context);
+                vertx.createHttpServer()
+                        .requestHandler(verticle.router(taskService, summaryService, new AuthMiddleware(),
+                                dataBulkhead, metrics, new AccessLogHandler(0), null, null))
+                        .listen(PORT, "localhost")
+                        .<Void>mapEmpty()
+                        .onComplete(startPromise);
+            }
+        }, new DeploymentOptions().setInstances(instances)).await();
+        clientVertx = Vertx.vertx(new VertxOptions().setEventLoopPoolSize(CLIENT_EVENT_LOOPS));
+        client = WebClient.create(clientVertx, new WebClientOptions().setDefaultPort(PORT),
+                new PoolOptions().setHttp1MaxSize(IN_FLIGHT));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        client.close();
+        clientVertx.close().await();
+        serverVertx.close().await();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(IN_FLIGHT)
+    public Object getTask() {
+        List<Future<HttpResponse<Buffer>>> responses = new ArrayList<>(IN_FLIGHT);
+        for (int i = 0; i < IN_FLIGHT; i++) {
+            responses.add(client.get("/api/tasks/1").send());
+        }
+        return Future.all(responses).await();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(IN_FLIGHT)
+    public Object listTasks() {
+        List<Future<HttpResponse<Buffer>>> responses = new ArrayList<>(IN_FLIGHT);
+        for (int i = 0; i < IN_FLIGHT; i++) {
+            responses.add(client.get("/api/tasks").send());
+        }
+        return Future.all(responses).await();
+    }
+}
@@ -0,0 +1,54 @@
+package com.krabi;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.Json;
+
+/**
+ * Encoding a task history into a response body: Jackson via {@code Json.encode} (String, then
+ * Buffer) against {@link TaskCodec} writing straight into a Buffer. Run with the gc profiler
+ * for bytes allocated per encoded list.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class TaskCodecBenchmark {
+
+    @Param({"1", "10", "100", "1000", "5000"})
+    public int size;
+
+    private List<Task> tasks;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        tasks = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            tasks.add(new Task(1_700_000_000_000L + i, "2025-01-" + (10 + i % 20), "Project " + (i % 7),
+                    1 + i % 8, "Implemented feature #" + i + " and reviewed pull requests", "user@example.com"));
+        }
+    }
+
+    // what handlers did before: reflection-based encode to a String, copied into a Buffer by end()
+    @Benchmark
+    public Buffer jsonEncode() {
+        return Buffer.buffer(Json.encode(tasks));
+    }
+
+    @Benchmark
+    public Buffer taskCodec() {
+        return TaskCodec.encode(tasks);
+    }
+}
@@ -0,0 +1,46 @@
+package com.krabi;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
+/**
+ * Mapping one task to a DynamoDB item and back, which every write and every item read pays.
+ * With the gc profiler the results show bytes allocated per mapped task.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class TaskItemBenchmark {
+
+    private Task task;
+    private Map<String, AttributeValue> item;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        task = new Task(1_700_000_000_000L, "2025-01-15", "Project 3", 8,
+                "Implemented feature #42 and reviewed pull requests", "user@example.com");
+        task.setVersion(3);
+        item = TaskSchema.toItem(task, task.getId());
+    }
+
+    @Benchmark
+    public Map<String, AttributeValue> toItem() {
+        return TaskSchema.toItem(task, task.getId());
+    }
+
+    @Benchmark
+    public Task fromItem() {
+        return TaskSchema.fromItem(item);
+    }
+}
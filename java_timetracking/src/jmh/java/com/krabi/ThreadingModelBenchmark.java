@@ -0,0 +1,149 @@
+package com.krabi;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import io.vertx.core.AbstractVerticle;
+import io.vertx.core.DeploymentOptions;
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.ThreadingModel;
+import io.vertx.core.http.PoolOptions;
+import io.vertx.core.Vertx;
+import io.vertx.core.VertxOptions;
+import io.vertx.core.json.Json;
+import io.vertx.ext.web.client.WebClient;
+import io.vertx.ext.web.client.WebClientOptions;
+import software.amazon.awssdk.services.dynamodb.DynamoDbAsyncClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.QueryRequest;
+import software.amazon.awssdk.services.dynamodb.model.QueryResponse;
+
+/**
+ * GET /tasks throughput with the handler deployed on event loops, virtual threads or worker
+ * threads. The DynamoDB client is a stub answering after {@link #LATENCY_MILLIS}, so each
+ * invocation keeps {@link #IN_FLIGHT} requests waiting on I/O at once; with the gc profiler
+ * the results show bytes allocated per request.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class ThreadingModelBenchmark {
+
+    private static final int IN_FLIGHT = 256;
+    private static final long LATENCY_MILLIS = 2;
+    private static final int INSTANCES = 2;
+    private static final int PORT = 8890;
+
+    @Param({"EVENT_LOOP", "VIRTUAL_THREAD", "WORKER"})
+    public ThreadingModel threadingModel;
+
+    private Vertx vertx;
+    private WebClient client;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        vertx = Vertx.vertx(new VertxOptions().setEventLoopPoolSize(INSTANCES));
+        TaskService taskService = new TaskService(new StubDynamoDbClient(), null);
+        vertx.deployVerticle(() -> new TasksVerticle(taskService),
+                new DeploymentOptions().setInstances(INSTANCES).setThreadingModel(threadingModel))
+                .await();
+        client = WebClient.create(vertx, new WebClientOptions(), new PoolOptions().setHttp1MaxSize(IN_FLIGHT));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        client.close();
+        vertx.close().await();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(IN_FLIGHT)
+    public Object listTasks() {
+        List<Future<?>> responses = new ArrayList<>(IN_FLIGHT);
+        for (int i = 0; i < IN_FLIGHT; i++) {
+            responses.add(client.get(PORT, "localhost", "/tasks").send());
+        }
+        return Future.all(responses).await();
+    }
+
+    static class TasksVerticle extends AbstractVerticle {
+
+        private final TaskService taskService;
+
+        TasksVerticle(TaskService taskService) {
+            this.taskService = taskService;
+        }
+
+        @Override
+        public void start(Promise<Void> startPromise) {
+            vertx.createHttpServer()
+                    .requestHandler(req -> {
+                        if (Thread.currentThread().isVirtual()) {
+                            // await-style: the virtual thread parks until DynamoDB answers
+                            List<Task> tasks = taskService.listTasks("bench").await();
+                            req.response().end(Json.encode(tasks));
+                        } else {
+                            taskService.listTasks("bench")
+                                    .onSuccess(tasks -> req.response().end(Json.encode(tasks)));
+                        }
+                    })
+                    .listen(PORT, "localhost")
+                    .<Void>mapEmpty()
+                    .onComplete(startPromise);
+        }
+    }
+
+    // answers every query with one page of tasks after a fixed delay, like a nearby DynamoDB
+    static class StubDynamoDbClient implements DynamoDbAsyncClient {
+
+        private final Executor delayed = CompletableFuture.delayedExecutor(LATENCY_MILLIS, TimeUnit.MILLISECONDS);
+        private final QueryResponse page;
+
+        StubDynamoDbClient() {
+            List<Map<String, AttributeValue>> items = new ArrayList<>();
+            for (int i = 0; i < 20; i++) {
+                Map<String, AttributeValue> item = new HashMap<>();
+                item.put("id", AttributeValue.builder().n(Integer.toString(i)).build());
+                item.put("date", AttributeValue.builder().s("2025-01-15").build());
+                item.put("project", AttributeValue.builder().s("bench").build());
+                item.put("hours", AttributeValue.builder().n("8").build());
+                item.put("task", AttributeValue.builder().s("benchmark task " + i).build());
+                item.put("username", AttributeValue.builder().s("bench").build());
+                items.add(item);
+            }
+            page = QueryResponse.builder().items(items).build();
+        }
+
+        @Override
+        public CompletableFuture<QueryResponse> query(QueryRequest queryRequest) {
+            return CompletableFuture.supplyAsync(() -> page, delayed);
+        }
+
+        @Override
+        public String serviceName() {
+            return SERVICE_NAME;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,355 @@
+package com.krabi;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.core.http.HttpServer;
+import io.vertx.core.http.HttpServerRequest;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+
+/**
+ * In-memory stand-in for the DynamoDB JSON API, covering what this service sends: PutItem,
+ * GetItem, UpdateItem, DeleteItem, Query, BatchGetItem and BatchWriteItem on the Tasks and
+ * TaskSummaries tables. Expressions support AND-ed comparisons, BETWEEN, attribute_exists and
+ * attribute_not_exists; updates support SET, REMOVE and ADD. Indexes are sparse: items without
+ * the index's key attributes are not in it. Anything else is answered with a
+ * ValidationException, so an unsupported request shows up as errors in the load test instead
+ * of wrong data.
+ *
+ * <p>All requests are handled on the server's single event loop, so the tables need no locking.
+ */
+class DynamoDbStub {
+
+    private static final String TARGET_PREFIX = "DynamoDB_20120810.";
+    private static final String ERROR_PREFIX = "com.amazonaws.dynamodb.v20120810#";
+    private static final Pattern FUNCTION = Pattern.compile("(attribute_exists|attribute_not_exists)\\((\\S+)\\)");
+    private static final Pattern BETWEEN = Pattern.compile("(\\S+) BETWEEN (\\S+) AND (\\S+)");
+    private static final Pattern COMPARISON = Pattern.compile("(\\S+) (=|<>|<=|>=|<|>) (\\S+)");
+    private static final Pattern UPDATE_CLAUSE = Pattern.compile("(SET|REMOVE|ADD) (.+?)(?= (?:SET|REMOVE|ADD) |$)");
+
+    private final Map<String, Table> tables = Map.of(
+            "Tasks", new Table(List.of("id"), Map.of(TaskService.USER_DATE_INDEX, List.of("username", "date"),
+                    TaskService.USER_SEQ_INDEX, List.of("username", "seq"))),
+            "TaskSummaries", new Table(List.of("userMonth", "project"), Map.of()));
+
+    Future<HttpServer> start(Vertx vertx) {
+        return vertx.createHttpServer()
+                .requestHandler(req -> req.body().onSuccess(body -> handle(req, body.toJsonObject())))
+                .listen(0, "localhost");
+    }
+
+    private void handle(HttpServerRequest req, JsonObject request) {
+        String target = req.getHeader("X-Amz-Target");
+        String operation = target != null ? target.substring(TARGET_PREFIX.length()) : "";
+        JsonObject response;
+        try {
+            response = switch (operation) {
+                case "PutItem" -> putItem(request);
+                case "GetItem" -> getItem(request);
+                case "UpdateItem" -> updateItem(request);
+                case "DeleteItem" -> deleteItem(request);
+                case "Query" -> query(request);
+                case "BatchGetItem" -> batchGetItem(request);
+                case "BatchWriteItem" -> batchWriteItem(request);
+                default -> throw new StubException("UnknownOperationException", "Unsupported operation " + operation);
+            };
+        } catch (StubException e) {
+            JsonObject error = new JsonObject().put("__type", ERROR_PREFIX + e.type).put("message", e.getMessage());
+            if (e.item != null) {
+                error.put("Item", e.item);
+            }
+            req.response().setStatusCode(400)
+                    .putHeader("content-type", "application/x-amz-json-1.0")
+                    .end(error.encode());
+            return;
+        }
+        req.response().putHeader("content-type", "application/x-amz-json-1.0").end(response.encode());
+    }
+
+    private JsonObject putItem(JsonObject request) {
+        Table table = table(request);
+        JsonObject item = request.getJsonObject("Item");
+        String key = table.keyOf(item);
+        JsonObject old = table.items.get(key);
+        checkCondition(request, old);
+        table.items.put(key, item);
+        return withOld(request, old);
+    }
+
+    private JsonObject getItem(JsonObject request) {
+        JsonObject item = table(request).items.get(table(request).keyOf(request.getJsonObject("Key")));
+        return item != null ? new JsonObject().put("Item", item) : new JsonObject();
+    }
+
+    private JsonObject updateItem(JsonObject request) {
+        Table table = table(request);
+        JsonObject key = request.getJsonObject("Key");
+        JsonObject old = table.items.get(table.keyOf(key));
+        checkCondition(request, old);
+        JsonObject updated = old != null ? old.copy() : key.copy();
+        Matcher clauses = UPDATE_CLAUSE.matcher(request.getString("UpdateExpression").trim());
+        while (clauses.find()) {
+            for (String action : clauses.group(2).split(",")) {
+                String[] parts = action.trim().split("\\s*=\\s*|\\s+");
+                String name = name(request, parts[0]);
+                if (clauses.group(1).equals("REMOVE")) {
+                    updated.remove(name);
+                    continue;
+                }
+                JsonObject value = value(request, parts[1]);
+                if (clauses.group(1).equals("SET")) {
+                    updated.put(name, value);
+                } else {
+                    JsonObject current = updated.getJsonObject(name);
+                    BigDecimal sum = new BigDecimal(value.getString("N"))
+                            .add(current != null ? new BigDecimal(current.getString("N")) : BigDecimal.ZERO);
+                    updated.put(name, new JsonObject().put("N", sum.toPlainString()));
+                }
+            }
+        }
+        table.items.put(table.keyOf(key), updated);
+        String returnValues = request.getString("ReturnValues", "NONE");
+        if (returnValues.equals("ALL_NEW")) {
+            return new JsonObject().put("Attributes", updated);
+        }
+        return withOld(request, old);
+    }
+
+    private JsonObject deleteItem(JsonObject request) {
+        Table table = table(request);
+        String key = table.keyOf(request.getJsonObject("Key"));
+        JsonObject old = table.items.get(key);
+        checkCondition(request, old);
+        table.items.remove(key);
+        return withOld(request, old);
+    }
+
+    private JsonObject query(JsonObject request) {
+        Table table = table(request);
+        // partition key and, last, the sort key of the table or index queried
+        List<String> queryKey = request.containsKey("IndexName")
+                ? table.indexKeys.get(request.getString("IndexName"))
+                : table.key;
+        String sortKey = queryKey.size() > 1 ? queryKey.get(queryKey.size() - 1) : null;
+        List<JsonObject> matches = new ArrayList<>();
+        for (JsonObject item : table.items.values()) {
+            if (queryKey.stream().allMatch(item::containsKey)
+                    && matches(request, request.getString("KeyConditionExpression"), item)) {
+                matches.add(item);
+            }
+        }
+        Comparator<JsonObject> order = Comparator.comparing(item -> table.keyOf(item));
+        if (sortKey != null) {
+            order = Comparator.<JsonObject, JsonObject>comparing(item -> item.getJsonObject(sortKey), DynamoDbStub::compare)
+                    .thenComparing(order);
+        }
+        matches.sort(request.getBoolean("ScanIndexForward", true) ? order : order.reversed());
+        int start = 0;
+        if (request.containsKey("ExclusiveStartKey")) {
+            String after = table.keyOf(request.getJsonObject("ExclusiveStartKey"));
+            while (start < matches.size() && !table.keyOf(matches.get(start)).equals(after)) {
+                start++;
+            }
+            start++;
+        }
+        int limit = request.getInteger("Limit", Integer.MAX_VALUE);
+        int end = (int) Math.min(matches.size(), (long) start + limit);
+        JsonArray items = new JsonArray();
+        String filter = request.getString("FilterExpression");
+        for (int i = start; i < end; i++) {
+            if (filter == null || matches(request, filter, matches.get(i))) {
+                items.add(matches.get(i));
+            }
+        }
+        JsonObject response = new JsonObject().put("Items", items).put("Count", items.size());
+        if (end < matches.size()) {
+            JsonObject last = matches.get(end - 1);
+            JsonObject lastKey = new JsonObject();
+            for (String name : table.key) {
+                lastKey.put(name, last.getJsonObject(name));
+            }
+            for (String name : queryKey) {
+                lastKey.put(name, last.getJsonObject(name));
+            }
+            response.put("LastEvaluatedKey", lastKey);
+        }
+        return response;
+    }
+
+    private JsonObject batchGetItem(JsonObject request) {
+        JsonObject responses = new JsonObject();
+        JsonObject requestItems = request.getJsonObject("RequestItems");
+        for (String tableName : requestItems.fieldNames()) {
+            Table table = table(tableName);
+            JsonArray found = new JsonArray();
+            for (Object key : requestItems.getJsonObject(tableName).getJsonArray("Keys")) {
+                JsonObject item = table.items.get(table.keyOf((JsonObject) key));
+                if (item != null) {
+                    found.add(item);
+                }
+            }
+            responses.put(tableName, found);
+        }
+        return new JsonObject().put("Responses", responses).put("UnprocessedKeys", new JsonObject());
+    }
+
+    private JsonObject batchWriteItem(JsonObject request) {
+        JsonObject requestItems = request.getJsonObject("RequestItems");
+        for (String tableName : requestItems.fieldNames()) {
+            Table table = table(tableName);
+            for (Object write : requestItems.getJsonArray(tableName)) {
+                JsonObject put = ((JsonObject) write).getJsonObject("PutRequest");
+                if (put != null) {
+                    table.items.put(table.keyOf(put.getJsonObject("Item")), put.getJsonObject("Item"));
+                } else {
+                    JsonObject key = ((JsonObject) write).getJsonObject("DeleteRequest").getJsonObject("Key");
+                    table.items.remove(table.keyOf(key));
+                }
+            }
+        }
+        return new JsonObject().put("UnprocessedItems", new JsonObject());
+    }
+
+    private void checkCondition(JsonObject request, JsonObject current) {
+        String condition = request.getString("ConditionExpression");
+        if (condition != null && !matches(request, condition, current != null ? current : new JsonObject())) {
+            boolean returnOld = "ALL_OLD".equals(request.getString("ReturnValuesOnConditionCheckFailure"));
+            throw new StubException("ConditionalCheckFailedException", "The conditional request failed",
+                    returnOld ? current : null);
+        }
+    }
+
+    private static JsonObject withOld(JsonObject request, JsonObject old) {
+        return old != null && "ALL_OLD".equals(request.getString("ReturnValues"))
+                ? new JsonObject().put("Attributes", old)
+                : new JsonObject();
+    }
+
+    private boolean matches(JsonObject request, String expression, JsonObject item) {
+        List<String> terms = new ArrayList<>(List.of(expression.split(" AND ")));
+        for (int i = 0; i < terms.size(); i++) {
+            String term = terms.get(i).trim();
+            if (term.contains(" BETWEEN ")) {
+                // the AND of BETWEEN was split off as a term of its own
+                term = term + " AND " + terms.get(++i).trim();
+            }
+            if (term.startsWith("(") && term.endsWith(")")) {
+                term = term.substring(1, term.length() - 1);
+            }
+            if (!matchesTerm(request, term, item)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean matchesTerm(JsonObject request, String term, JsonObject item) {
+        Matcher m = FUNCTION.matcher(term);
+        if (m.matches()) {
+            boolean exists = item.containsKey(name(request, m.group(2)));
+            return m.group(1).equals("attribute_exists") == exists;
+        }
+        m = BETWEEN.matcher(term);
+        if (m.matches()) {
+            JsonObject actual = item.getJsonObject(name(request, m.group(1)));
+            return actual != null && compare(actual, value(request, m.group(2))) >= 0
+                    && compare(actual, value(request, m.group(3))) <= 0;
+        }
+        m = COMPARISON.matcher(term);
+        if (m.matches()) {
+            JsonObject actual = item.getJsonObject(name(request, m.group(1)));
+            if (actual == null) {
+                return false;
+            }
+            int c = compare(actual, value(request, m.group(3)));
+            return switch (m.group(2)) {
+                case "=" -> c == 0;
+                case "<>" -> c != 0;
+                case "<" -> c < 0;
+                case "<=" -> c <= 0;
+                case ">" -> c > 0;
+                default -> c >= 0;
+            };
+        }
+        throw new StubException("ValidationException", "Unsupported expression: " + term);
+    }
+
+    private static int compare(JsonObject a, JsonObject b) {
+        if (a.containsKey("N") && b.containsKey("N")) {
+            return new BigDecimal(a.getString("N")).compareTo(new BigDecimal(b.getString("N")));
+        }
+        return String.valueOf(a.getString("S")).compareTo(String.valueOf(b.getString("S")));
+    }
+
+    private static String name(JsonObject request, String token) {
+        return token.startsWith("#") ? request.getJsonObject("ExpressionAttributeNames").getString(token) : token;
+    }
+
+    private static JsonObject value(JsonObject request, String token) {
+        JsonObject value = request.getJsonObject("ExpressionAttributeValues", new JsonObject()).getJsonObject(token);
+        if (value == null) {
+            throw new StubException("ValidationException", "Missing value for " + token);
+        }
+        return value;
+    }
+
+    private Table table(JsonObject request) {
+        return table(request.getString("TableName"));
+    }
+
+    private Table table(String name) {
+        Table table = tables.get(name);
+        if (table == null) {
+            throw new StubException("ResourceNotFoundException", "Requested resource not found: " + name);
+        }
+        return table;
+    }
+
+    int size(String tableName) {
+        return tables.get(tableName).items.size();
+    }
+
+    private static final class Table {
+        final List<String> key;
+        final Map<String, List<String>> indexKeys;
+        final Map<String, JsonObject> items = new HashMap<>();
+
+        Table(List<String> key, Map<String, List<String>> indexKeys) {
+            this.key = key;
+            this.indexKeys = indexKeys;
+        }
+
+        String keyOf(JsonObject item) {
+            Map<String, Object> values = new LinkedHashMap<>();
+            for (String name : key) {
+                values.put(name, item.getJsonObject(name) != null ? item.getJsonObject(name).getMap() : null);
+            }
+            return values.toString();
+        }
+    }
+
+    private static final class StubException extends RuntimeException {
+        final String type;
+        final JsonObject item;
+
+        StubException(String type, String message) {
+            this(type, message, null);
+        }
+
+        StubException(String type, String message, JsonObject item) {
+            super(message);
+            this.type = type;
+            this.item = item;
+        }
+    }
+}
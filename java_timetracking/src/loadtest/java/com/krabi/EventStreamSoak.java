@@ -0,0 +1,373 @@
+package com.krabi;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import org.HdrHistogram.Histogram;
+
+import io.vertx.core.Context;
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import io.vertx.core.VertxOptions;
+import io.vertx.core.http.HttpClient;
+import io.vertx.core.http.HttpClientOptions;
+import io.vertx.core.http.HttpClientResponse;
+import io.vertx.core.http.HttpMethod;
+import io.vertx.core.http.PoolOptions;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.web.client.WebClient;
+import io.vertx.ext.web.client.WebClientOptions;
+
+/**
+ * Soak test for GET /api/tasks/events: starts the service as {@link LoadTest} does, opens
+ * --connections event streams (--streams-per-user of them per user, as for a user's devices)
+ * and holds them for --hold seconds while creating tasks at --write-rate. Every created task
+ * carries its send time, so each stream that receives it records the push latency.
+ *
+ * <p>Reports how many streams opened and stayed open, deliveries against what was expected,
+ * heartbeats seen and the service's resident memory before and after the streams opened, as
+ * a per-connection cost. Each side holds one socket per stream, so the file limit (ulimit -n)
+ * of both JVMs has to be above --connections.
+ *
+ * <pre>
+ * ./gradlew soakTest -PsoakTestArgs="--connections=10000 --hold=120 --write-rate=50"
+ * </pre>
+ */
+public class EventStreamSoak {
+
+    private static final long MAX_LATENCY_MICROS = TimeUnit.MINUTES.toMicros(1);
+    private static final String SENT_PREFIX = "soak ";
+    private static final long SETTLE_MILLIS = 2_000;
+    private static final int WRITE_CONNECTIONS = 16;
+
+    private final Options options;
+    private final Vertx vertx;
+    // all streams and writes live on this context, so none of the counts below need locking
+    private final Context context;
+    private final Histogram latencies = new Histogram(MAX_LATENCY_MICROS, 3);
+    private final List<String> authorizations = new ArrayList<>();
+    private HttpClient client;
+    private HttpClient writer;
+    private int opened;
+    private int openFailures;
+    private int dropped;
+    private long writes;
+    private long writeErrors;
+    private long expected;
+    private long delivered;
+    private long heartbeats;
+    private boolean closing;
+
+    EventStreamSoak(Options options, Vertx vertx) {
+        this.options = options;
+        this.vertx = vertx;
+        this.context = vertx.getOrCreateContext();
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options = Options.parse(args);
+        Vertx vertx = Vertx.vertx(new VertxOptions().setEventLoopPoolSize(2));
+        int exitCode = 0;
+        try {
+            JsonObject report = new EventStreamSoak(options, vertx).run();
+            File file = new File(options.out, "soak.json");
+            Files.writeString(file.toPath(), report.encodePrettily());
+            System.out.println("Report written to " + file);
+            if (report.getInteger("openFailures") > 0 || report.getInteger("dropped") > 0
+                    || report.getLong("delivered") < report.getLong("expected")) {
+                exitCode = 1;
+            }
+        } catch (Exception e) {
+            e.printStackTrace();
+            exitCode = 1;
+        } finally {
+            vertx.close().await();
+        }
+        System.exit(exitCode);
+    }
+
+    JsonObject run() throws Exception {
+        int dynamoDbPort = new DynamoDbStub().start(vertx).await().actualPort();
+        TokenIssuer tokenIssuer = new TokenIssuer(LoadTest.REGION, LoadTest.USER_POOL_ID, LoadTest.CLIENT_ID);
+        tokenIssuer.start(vertx).await();
+        int port = LoadTest.freePort();
+        Process service = LoadTest.startService(options.out, "soak", port, options.threads, "EVENT_LOOP",
+                "http://localhost:" + dynamoDbPort, tokenIssuer.jwksUrl());
+        WebClient admin = WebClient.create(vertx, new WebClientOptions().setDefaultPort(port));
+        try {
+            LoadTest.awaitReady(admin, service, options.out);
+            int users = Math.max(1, options.connections / options.streamsPerUser);
+            for (int user = 0; user < users; user++) {
+                authorizations.add("Bearer " + tokenIssuer.token("soakuser" + user));
+            }
+            // every stream holds its connection, the pool must not make them wait for each other
+            client = vertx.createHttpClient(new HttpClientOptions().setDefaultPort(port).setDefaultHost("localhost"),
+                    new PoolOptions().setHttp1MaxSize(options.connections));
+            writer = vertx.createHttpClient(new HttpClientOptions().setDefaultPort(port).setDefaultHost("localhost"),
+                    new PoolOptions().setHttp1MaxSize(WRITE_CONNECTIONS));
+            long rssBefore = residentKiB(service.pid());
+
+            long openStart = System.nanoTime();
+            onContext(this::openAll).await();
+            double openSeconds = (System.nanoTime() - openStart) / 1e9;
+            Thread.sleep(SETTLE_MILLIS);
+            long rssOpen = residentKiB(service.pid());
+            System.out.printf(Locale.ROOT, "%d streams open in %.1f s, %d failed%n", opened, openSeconds, openFailures);
+
+            onContext(this::write).await();
+            Thread.sleep(SETTLE_MILLIS);
+            long rssEnd = residentKiB(service.pid());
+            Files.writeString(new File(options.out, "metrics-soak.txt").toPath(),
+                    admin.get("/metrics").send().await().bodyAsString());
+
+            JsonObject report = onContext(() -> {
+                closing = true;
+                return Future.succeededFuture(report(openSeconds, rssBefore, rssOpen, rssEnd));
+            }).await();
+            System.out.println(report.encodePrettily());
+            return report;
+        } finally {
+            if (client != null) {
+                client.close();
+                writer.close();
+            }
+            admin.close();
+            service.destroy();
+            service.waitFor(10, TimeUnit.SECONDS);
+        }
+    }
+
+    /**
+     * Opens all streams, at most --open-concurrency at a time so the accept queue is not
+     * overrun, and completes once every one has answered or failed.
+     */
+    private Future<Void> openAll() {
+        Promise<Void> done = Promise.promise();
+        int[] next = {0};
+        int[] pending = {0};
+        Runnable[] openNext = new Runnable[1];
+        openNext[0] = () -> {
+            while (pending[0] < options.openConcurrency && next[0] < options.connections) {
+                int stream = next[0]++;
+                pending[0]++;
+                open(authorizations.get(stream % authorizations.size())).onComplete(ar -> {
+                    pending[0]--;
+                    if (ar.succeeded()) {
+                        opened++;
+                    } else {
+                        openFailures++;
+                    }
+                    if (next[0] == options.connections && pending[0] == 0) {
+                        done.complete();
+                    } else {
+                        openNext[0].run();
+                    }
+                });
+            }
+        };
+        openNext[0].run();
+        return done.future();
+    }
+
+    private Future<Void> open(String authorization) {
+        return client.request(HttpMethod.GET, "/api/tasks/events")
+                .compose(request -> request.putHeader("Authorization", authorization).send())
+                .compose(response -> {
+                    if (response.statusCode() != 200) {
+                        return response.body().compose(body -> Future.failedFuture(
+                                "Stream answered " + response.statusCode() + ": " + body));
+                    }
+                    listen(response);
+                    return Future.succeededFuture();
+                });
+    }
+
+    private void listen(HttpClientResponse response) {
+        StringBuilder pending = new StringBuilder();
+        response.handler(chunk -> {
+            pending.append(chunk.toString());
+            int end;
+            while ((end = pending.indexOf("\n\n")) >= 0) {
+                frame(pending.substring(0, end));
+                pending.delete(0, end + 2);
+            }
+        });
+        response.exceptionHandler(err -> streamLost());
+        response.endHandler(v -> streamLost());
+    }
+
+    private void frame(String frame) {
+        if (frame.startsWith(":")) {
+            heartbeats++;
+            return;
+        }
+        int data = frame.indexOf("data: ");
+        if (data < 0) {
+            return;
+        }
+        long now = System.nanoTime();
+        JsonArray changed = new JsonObject(frame.substring(data + 6)).getJsonArray("changed");
+        for (int i = 0; i < changed.size(); i++) {
+            String task = changed.getJsonObject(i).getString("task", "");
+            if (task.startsWith(SENT_PREFIX)) {
+                long micros = (now - Long.parseLong(task.substring(SENT_PREFIX.length()))) / 1000;
+                latencies.recordValue(Math.max(0, Math.min(micros, MAX_LATENCY_MICROS)));
+                delivered++;
+            }
+        }
+    }
+
+    private void streamLost() {
+        if (!closing) {
+            dropped++;
+        }
+    }
+
+    /**
+     * Creates tasks for random users at --write-rate for --hold seconds. Each one should reach
+     * every stream of its user.
+     */
+    private Future<Void> write() {
+        Promise<Void> done = Promise.promise();
+        long start = System.nanoTime();
+        long end = start + TimeUnit.SECONDS.toNanos(options.holdSeconds);
+        double intervalNanos = 1e9 / options.writeRate;
+        long[] sent = {0};
+        int[] inFlight = {0};
+        vertx.setPeriodic(10, timer -> {
+            long now = System.nanoTime();
+            long due = (long) ((Math.min(now, end) - start) / intervalNanos);
+            for (; sent[0] < due; sent[0]++) {
+                int user = ThreadLocalRandom.current().nextInt(authorizations.size());
+                int streams = streamsOf(user);
+                inFlight[0]++;
+                writer.request(HttpMethod.POST, "/api/tasks")
+                        .compose(request -> request.putHeader("Authorization", authorizations.get(user))
+                                .putHeader("content-type", "application/json")
+                                .send(new JsonObject()
+                                        .put("date", "2025-06-01")
+                                        .put("project", "Soak")
+                                        .put("hours", 1)
+                                        .put("task", SENT_PREFIX + System.nanoTime())
+                                        .toBuffer()))
+                        .compose(response -> response.body().map(body -> response.statusCode()))
+                        .onComplete(ar -> {
+                            inFlight[0]--;
+                            writes++;
+                            if (ar.succeeded() && ar.result() == 201) {
+                                expected += streams;
+                            } else {
+                                writeErrors++;
+                            }
+                        });
+            }
+            if (now >= end && inFlight[0] == 0) {
+                vertx.cancelTimer(timer);
+                done.complete();
+            }
+        });
+        return done.future();
+    }
+
+    // streams are handed to users round robin in openAll
+    private int streamsOf(int user) {
+        int users = authorizations.size();
+        return options.connections / users + (user < options.connections % users ? 1 : 0);
+    }
+
+    private JsonObject report(double openSeconds, long rssBefore, long rssOpen, long rssEnd) {
+        JsonObject report = new JsonObject()
+                .put("connections", options.connections)
+                .put("users", authorizations.size())
+                .put("opened", opened)
+                .put("openFailures", openFailures)
+                .put("openSeconds", openSeconds)
+                .put("dropped", dropped)
+                .put("holdSeconds", options.holdSeconds)
+                .put("writes", writes)
+                .put("writeErrors", writeErrors)
+                .put("expected", expected)
+                .put("delivered", delivered)
+                .put("heartbeats", heartbeats)
+                .put("p50Millis", latencies.getValueAtPercentile(50) / 1000.0)
+                .put("p99Millis", latencies.getValueAtPercentile(99) / 1000.0)
+                .put("maxMillis", latencies.getMaxValue() / 1000.0)
+                .put("rssBeforeKiB", rssBefore)
+                .put("rssOpenKiB", rssOpen)
+                .put("rssEndKiB", rssEnd);
+        if (rssBefore > 0 && opened > 0) {
+            // includes heap the JVM grew into and has not given back, an upper bound
+            report.put("rssPerStreamKiB", (double) (rssOpen - rssBefore) / opened);
+        }
+        return report;
+    }
+
+    private <T> Future<T> onContext(Supplier<Future<T>> action) {
+        Promise<T> promise = Promise.promise();
+        context.runOnContext(v -> action.get().onComplete(promise));
+        return promise.future();
+    }
+
+    /**
+     * VmRSS of the process from /proc, or -1 where there is none.
+     */
+    private static long residentKiB(long pid) {
+        try {
+            for (String line : Files.readAllLines(Path.of("/proc", Long.toString(pid), "status"))) {
+                if (line.startsWith("VmRSS:")) {
+                    return Long.parseLong(line.replaceAll("[^0-9]", ""));
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            // not Linux
+        }
+        return -1;
+    }
+
+    static final class Options {
+        int connections = 10_000;
+        int streamsPerUser = 2;
+        int holdSeconds = 60;
+        double writeRate = 20;
+        int openConcurrency = 200;
+        int threads = 1;
+        File out = new File("build/soak");
+
+        static Options parse(String[] args) {
+            Options options = new Options();
+            for (String arg : args) {
+                int eq = arg.indexOf('=');
+                if (!arg.startsWith("--") || eq < 0) {
+                    throw new IllegalArgumentException("Expected --name=value but got " + arg);
+                }
+                String value = arg.substring(eq + 1);
+                switch (arg.substring(2, eq)) {
+                    case "connections" -> options.connections = Integer.parseInt(value);
+                    case "streams-per-user" -> options.streamsPerUser = Integer.parseInt(value);
+                    case "hold" -> options.holdSeconds = Integer.parseInt(value);
+                    case "write-rate" -> options.writeRate = Double.parseDouble(value);
+                    case "open-concurrency" -> options.openConcurrency = Integer.parseInt(value);
+                    case "threads" -> options.threads = Integer.parseInt(value);
+                    case "out" -> options.out = new File(value);
+                    default -> throw new IllegalArgumentException("Unknown option " + arg);
+                }
+            }
+            if (options.connections < 1 || options.streamsPerUser < 1
+                    || options.streamsPerUser > TaskEventStreams.MAX_STREAMS_PER_USER) {
+                throw new IllegalArgumentException("Need at least one connection and 1 to "
+                        + TaskEventStreams.MAX_STREAMS_PER_USER + " streams per user");
+            }
+            return options;
+        }
+    }
+}
@@ -0,0 +1,467 @@
+package com.krabi;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.HdrHistogram.Histogram;
+
+import io.vertx.core.Context;
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import io.vertx.core.VertxOptions;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.http.PoolOptions;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.web.client.HttpRequest;
+import io.vertx.ext.web.client.HttpResponse;
+import io.vertx.ext.web.client.WebClient;
+import io.vertx.ext.web.client.WebClientOptions;
+
+/**
+ * End-to-end load test: starts the service in its own JVM against {@link DynamoDbStub} and
+ * {@link TokenIssuer}, seeds tasks for a set of users and drives a fixed arrival rate across
+ * the CRUD routes. Requests are sent on schedule whether or not earlier ones have answered
+ * (open model), and latency is taken from the scheduled send time, so a stalled service shows
+ * up in the percentiles instead of silently lowering the load.
+ *
+ * <p>Every combination of --threads and --threading-model runs against a fresh service and
+ * stub. Per-operation percentiles, throughput and errors go to the console and to a JSON
+ * report; the service's /metrics scrape is saved next to it.
+ *
+ * <pre>
+ * ./gradlew loadTest -PloadTestArgs="--rate=2000 --duration=30 --threads=1,4 --threading-model=event_loop,virtual_thread"
+ * </pre>
+ */
+public class LoadTest {
+
+    static final String REGION = "eu-north-1";
+    static final String USER_POOL_ID = "eu-north-1_loadtest";
+    static final String CLIENT_ID = "loadtest-client";
+    private static final long MAX_LATENCY_MICROS = TimeUnit.MINUTES.toMicros(1);
+    private static final long TICK_MILLIS = 1;
+    private static final long STARTUP_TIMEOUT_MILLIS = 30_000;
+    private static final long DRAIN_TIMEOUT_MILLIS = 10_000;
+
+    private static final Op[] OPS = Op.values();
+
+    // the request mix, in percent of all requests sent
+    enum Op {
+        LIST(40), GET(30), CREATE(20), PATCH(5), DELETE(5);
+
+        final int percent;
+
+        Op(int percent) {
+            this.percent = percent;
+        }
+    }
+
+    private final Options options;
+    private final Vertx vertx;
+
+    LoadTest(Options options, Vertx vertx) {
+        this.options = options;
+        this.vertx = vertx;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options = Options.parse(args);
+        // one event loop per driver, one more for the DynamoDB and token stand-ins
+        Vertx vertx = Vertx.vertx(new VertxOptions().setEventLoopPoolSize(options.drivers + 1));
+        int exitCode = 0;
+        try {
+            JsonArray runs = new LoadTest(options, vertx).runAll();
+            options.out.mkdirs();
+            File report = new File(options.out, "report.json");
+            Files.writeString(report.toPath(), new JsonObject()
+                    .put("rate", options.rate)
+                    .put("durationSeconds", options.durationSeconds)
+                    .put("users", options.users)
+                    .put("runs", runs)
+                    .encodePrettily());
+            System.out.println("Report written to " + report);
+        } catch (Exception e) {
+            e.printStackTrace();
+            exitCode = 1;
+        } finally {
+            vertx.close().await();
+        }
+        System.exit(exitCode);
+    }
+
+    JsonArray runAll() throws Exception {
+        JsonArray runs = new JsonArray();
+        for (int threads : options.threads) {
+            for (String threadingModel : options.threadingModels) {
+                runs.add(run(threads, threadingModel));
+            }
+        }
+        return runs;
+    }
+
+    private JsonObject run(int threads, String threadingModel) throws Exception {
+        String label = threads + "-" + threadingModel.toLowerCase(Locale.ROOT);
+        System.out.printf("%n== threadsCount=%d THREADING_MODEL=%s ==%n", threads, threadingModel);
+        int dynamoDbPort = new DynamoDbStub().start(vertx).await().actualPort();
+        TokenIssuer tokenIssuer = new TokenIssuer(REGION, USER_POOL_ID, CLIENT_ID);
+        tokenIssuer.start(vertx).await();
+        int port = freePort();
+        Process service = startService(options.out, label, port, threads, threadingModel,
+                "http://localhost:" + dynamoDbPort, tokenIssuer.jwksUrl());
+        WebClient admin = WebClient.create(vertx, new WebClientOptions().setDefaultPort(port));
+        try {
+            awaitReady(admin, service, options.out);
+            List<Driver> drivers = new ArrayList<>();
+            for (int i = 0; i < options.drivers; i++) {
+                drivers.add(new Driver(port, options.rate / options.drivers));
+            }
+            for (int user = 0; user < options.users; user++) {
+                String name = "loaduser" + user;
+                drivers.get(user % options.drivers).users.add(new User(name, tokenIssuer.token(name)));
+            }
+            Future.all(drivers.stream().map(Driver::seed).toList()).await();
+
+            Future.all(drivers.stream().map(d -> d.drive(options.warmupSeconds)).toList()).await();
+            Future.all(drivers.stream().map(Driver::reset).toList()).await();
+            long start = System.nanoTime();
+            Future.all(drivers.stream().map(d -> d.drive(options.durationSeconds)).toList()).await();
+            double seconds = (System.nanoTime() - start) / 1e9;
+
+            JsonObject result = report(threads, threadingModel, drivers, seconds);
+            String metrics = admin.get("/metrics").send().await().bodyAsString();
+            Files.writeString(new File(options.out, "metrics-" + label + ".txt").toPath(), metrics);
+            drivers.forEach(d -> d.client.close());
+            return result;
+        } finally {
+            admin.close();
+            service.destroy();
+            service.waitFor(10, TimeUnit.SECONDS);
+        }
+    }
+
+    /**
+     * Starts the service in its own JVM on this classpath, logging to {@code out}.
+     */
+    static Process startService(File out, String label, int port, int threads, String threadingModel,
+            String dynamoDbEndpoint, String jwksUrl) throws IOException {
+        out.mkdirs();
+        String java = ProcessHandle.current().info().command().orElse("java");
+        ProcessBuilder builder = new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"),
+                MainVerticle.class.getName())
+                .redirectErrorStream(true)
+                .redirectOutput(new File(out, "service-" + label + ".log"));
+        Map<String, String> env = builder.environment();
+        env.put("port", String.valueOf(port));
+        env.put("host", "localhost");
+        env.put("threadsCount", String.valueOf(threads));
+        env.put("THREADING_MODEL", threadingModel);
+        env.put("DYNAMODB_ENDPOINT", dynamoDbEndpoint);
+        env.put("AWS_REGION", REGION);
+        env.put("AWS_ACCESS_KEY_ID", "loadtest");
+        env.put("AWS_SECRET_ACCESS_KEY", "loadtest");
+        env.put("COGNITO_USER_POOL_ID", USER_POOL_ID);
+        env.put("COGNITO_CLIENT_ID", CLIENT_ID);
+        env.put("COGNITO_JWKS_URL", jwksUrl);
+        env.put("NODE_ID", "1");
+        return builder.start();
+    }
+
+    static void awaitReady(WebClient admin, Process service, File out) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + STARTUP_TIMEOUT_MILLIS;
+        while (System.currentTimeMillis() < deadline) {
+            if (!service.isAlive()) {
+                throw new IllegalStateException("Service exited with " + service.exitValue() + ", see its log in " + out);
+            }
+            try {
+                if (admin.get("/api/test").send().await().statusCode() == 200) {
+                    return;
+                }
+            } catch (Exception e) {
+                // not listening yet
+            }
+            Thread.sleep(100);
+        }
+        throw new IllegalStateException("Service did not start within " + STARTUP_TIMEOUT_MILLIS + " ms");
+    }
+
+    private JsonObject report(int threads, String threadingModel, List<Driver> drivers, double seconds) {
+        JsonObject result = new JsonObject()
+                .put("threadsCount", threads)
+                .put("threadingModel", threadingModel)
+                .put("seconds", seconds);
+        Histogram all = new Histogram(MAX_LATENCY_MICROS, 3);
+        long allErrors = 0;
+        JsonObject ops = new JsonObject();
+        System.out.printf("%-8s %9s %9s %7s %9s %9s %9s %9s %9s%n",
+                "op", "requests", "req/s", "errors", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms");
+        for (Op op : OPS) {
+            Histogram histogram = new Histogram(MAX_LATENCY_MICROS, 3);
+            long errors = 0;
+            Map<String, Long> statuses = new HashMap<>();
+            for (Driver driver : drivers) {
+                histogram.add(driver.latencies.get(op));
+                errors += driver.errors.get(op);
+                driver.errorStatuses.get(op).forEach((status, count) -> statuses.merge(status, count, Long::sum));
+            }
+            all.add(histogram);
+            allErrors += errors;
+            ops.put(op.name().toLowerCase(Locale.ROOT), summary(histogram, errors, seconds)
+                    .put("errorsByStatus", new JsonObject(new LinkedHashMap<>(statuses))));
+            print(op.name().toLowerCase(Locale.ROOT), histogram, errors, seconds);
+        }
+        print("all", all, allErrors, seconds);
+        return result.put("all", summary(all, allErrors, seconds)).put("operations", ops);
+    }
+
+    private static JsonObject summary(Histogram histogram, long errors, double seconds) {
+        return new JsonObject()
+                .put("requests", histogram.getTotalCount())
+                .put("throughput", histogram.getTotalCount() / seconds)
+                .put("errors", errors)
+                .put("p50Millis", millis(histogram, 50))
+                .put("p90Millis", millis(histogram, 90))
+                .put("p99Millis", millis(histogram, 99))
+                .put("p999Millis", millis(histogram, 99.9))
+                .put("maxMillis", histogram.getMaxValue() / 1000.0);
+    }
+
+    private static void print(String name, Histogram histogram, long errors, double seconds) {
+        System.out.printf(Locale.ROOT, "%-8s %9d %9.1f %7d %9.2f %9.2f %9.2f %9.2f %9.2f%n",
+                name, histogram.getTotalCount(), histogram.getTotalCount() / seconds, errors,
+                millis(histogram, 50), millis(histogram, 90), millis(histogram, 99), millis(histogram, 99.9),
+                histogram.getMaxValue() / 1000.0);
+    }
+
+    private static double millis(Histogram histogram, double percentile) {
+        return histogram.getValueAtPercentile(percentile) / 1000.0;
+    }
+
+    static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    private static final class User {
+        final String name;
+        final String authorization;
+        final List<Long> taskIds = new ArrayList<>();
+
+        User(String name, String token) {
+            this.name = name;
+            this.authorization = "Bearer " + token;
+        }
+    }
+
+    /**
+     * Sends one share of the arrival rate from its own event loop. A driver owns its users, so
+     * their task ids are only touched from that loop and the histograms need no locking.
+     */
+    private final class Driver {
+        final Context context = vertx.getOrCreateContext();
+        final WebClient client;
+        final double ratePerSecond;
+        final List<User> users = new ArrayList<>();
+        final Map<Op, Histogram> latencies = new HashMap<>();
+        final Map<Op, Long> errors = new HashMap<>();
+        final Map<Op, Map<String, Long>> errorStatuses = new HashMap<>();
+        int inFlight;
+        // requests scheduled earlier belong to the warmup and are not recorded
+        long measureFrom;
+
+        Driver(int port, double ratePerSecond) {
+            this.ratePerSecond = ratePerSecond;
+            this.client = WebClient.create(vertx, new WebClientOptions().setDefaultPort(port),
+                    new PoolOptions().setHttp1MaxSize(options.connections));
+            clear();
+        }
+
+        /**
+         * Starts measuring afresh; warmup requests still open when it runs are left out.
+         */
+        Future<Void> reset() {
+            Promise<Void> promise = Promise.promise();
+            context.runOnContext(v -> {
+                clear();
+                measureFrom = System.nanoTime();
+                promise.complete();
+            });
+            return promise.future();
+        }
+
+        private void clear() {
+            for (Op op : OPS) {
+                latencies.put(op, new Histogram(MAX_LATENCY_MICROS, 3));
+                errors.put(op, 0L);
+                errorStatuses.put(op, new HashMap<>());
+            }
+        }
+
+        Future<Void> seed() {
+            Promise<Void> promise = Promise.promise();
+            context.runOnContext(v -> {
+                List<Future<?>> creates = new ArrayList<>();
+                for (User user : users) {
+                    for (int i = 0; i < options.tasksPerUser; i++) {
+                        creates.add(create(user).andThen(ar -> {
+                            if (ar.succeeded() && ar.result().statusCode() == 201) {
+                                user.taskIds.add(ar.result().bodyAsJsonObject().getLong("id"));
+                            }
+                        }));
+                    }
+                }
+                Future.all(creates).<Void>mapEmpty().onComplete(promise);
+            });
+            return promise.future();
+        }
+
+        /**
+         * Fires requests at their scheduled times for {@code seconds}, then waits for the ones
+         * still open. The 1 ms tick sends everything that has come due since the previous one.
+         */
+        Future<Void> drive(int seconds) {
+            Promise<Void> done = Promise.promise();
+            context.runOnContext(v -> {
+                long start = System.nanoTime();
+                long end = start + TimeUnit.SECONDS.toNanos(seconds);
+                double intervalNanos = 1e9 / ratePerSecond;
+                long[] sent = {0};
+                vertx.setPeriodic(TICK_MILLIS, timer -> {
+                    long now = System.nanoTime();
+                    long due = (long) ((Math.min(now, end) - start) / intervalNanos);
+                    for (; sent[0] < due; sent[0]++) {
+                        send(start + (long) (sent[0] * intervalNanos));
+                    }
+                    if (now >= end) {
+                        vertx.cancelTimer(timer);
+                        drain(System.currentTimeMillis() + DRAIN_TIMEOUT_MILLIS, done);
+                    }
+                });
+            });
+            return done.future();
+        }
+
+        private void drain(long deadline, Promise<Void> done) {
+            if (inFlight == 0 || System.currentTimeMillis() > deadline) {
+                done.complete();
+            } else {
+                vertx.setTimer(10, t -> drain(deadline, done));
+            }
+        }
+
+        private void send(long scheduledNanos) {
+            User user = users.get(ThreadLocalRandom.current().nextInt(users.size()));
+            Op op = pick();
+            Long id = user.taskIds.isEmpty() ? null : user.taskIds.get(ThreadLocalRandom.current().nextInt(user.taskIds.size()));
+            if (id == null && op != Op.LIST) {
+                op = Op.CREATE;
+            }
+            Future<HttpResponse<Buffer>> response = switch (op) {
+                case LIST -> client.get("/api/tasks").addQueryParam("limit", "20")
+                        .putHeader("Authorization", user.authorization).send();
+                case GET -> client.get("/api/tasks/" + id).putHeader("Authorization", user.authorization).send();
+                case CREATE -> create(user).andThen(ar -> {
+                    if (ar.succeeded() && ar.result().statusCode() == 201) {
+                        user.taskIds.add(ar.result().bodyAsJsonObject().getLong("id"));
+                    }
+                });
+                case PATCH -> client.patch("/api/tasks/" + id).putHeader("Authorization", user.authorization)
+                        .sendJsonObject(new JsonObject().put("hours", 1 + ThreadLocalRandom.current().nextInt(8)));
+                case DELETE -> {
+                    // dropped first, so no later request of this driver targets the deleted task
+                    user.taskIds.remove(id);
+                    yield client.delete("/api/tasks/" + id).putHeader("Authorization", user.authorization).send();
+                }
+            };
+            Op sentOp = op;
+            inFlight++;
+            response.onComplete(ar -> {
+                inFlight--;
+                if (scheduledNanos < measureFrom) {
+                    return;
+                }
+                long micros = Math.max(0, (System.nanoTime() - scheduledNanos) / 1000);
+                latencies.get(sentOp).recordValue(Math.min(micros, MAX_LATENCY_MICROS));
+                String status = ar.succeeded() ? String.valueOf(ar.result().statusCode()) : "failed";
+                if (ar.failed() || ar.result().statusCode() >= 400) {
+                    errors.merge(sentOp, 1L, Long::sum);
+                    errorStatuses.get(sentOp).merge(status, 1L, Long::sum);
+                }
+            });
+        }
+
+        private Future<HttpResponse<Buffer>> create(User user) {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            HttpRequest<Buffer> request = client.post("/api/tasks").putHeader("Authorization", user.authorization);
+            return request.sendJsonObject(new JsonObject()
+                    .put("date", String.format("2025-%02d-%02d", 1 + random.nextInt(12), 1 + random.nextInt(28)))
+                    .put("project", "Project " + random.nextInt(5))
+                    .put("hours", 1 + random.nextInt(8))
+                    .put("task", "Load test task for " + user.name));
+        }
+
+        private Op pick() {
+            int roll = ThreadLocalRandom.current().nextInt(100);
+            for (Op op : OPS) {
+                roll -= op.percent;
+                if (roll < 0) {
+                    return op;
+                }
+            }
+            return Op.LIST;
+        }
+    }
+
+    static final class Options {
+        double rate = 1000;
+        int durationSeconds = 30;
+        int warmupSeconds = 10;
+        int users = 100;
+        int tasksPerUser = 20;
+        int connections = 64;
+        int drivers = 2;
+        List<Integer> threads = List.of(1);
+        List<String> threadingModels = List.of("EVENT_LOOP");
+        File out = new File("build/loadtest");
+
+        static Options parse(String[] args) {
+            Options options = new Options();
+            for (String arg : args) {
+                int eq = arg.indexOf('=');
+                if (!arg.startsWith("--") || eq < 0) {
+                    throw new IllegalArgumentException("Expected --name=value but got " + arg);
+                }
+                String value = arg.substring(eq + 1);
+                switch (arg.substring(2, eq)) {
+                    case "rate" -> options.rate = Double.parseDouble(value);
+                    case "duration" -> options.durationSeconds = Integer.parseInt(value);
+                    case "warmup" -> options.warmupSeconds = Integer.parseInt(value);
+                    case "users" -> options.users = Integer.parseInt(value);
+                    case "tasks-per-user" -> options.tasksPerUser = Integer.parseInt(value);
+                    case "connections" -> options.connections = Integer.parseInt(value);
+                    case "drivers" -> options.drivers = Integer.parseInt(value);
+                    case "threads" -> options.threads = List.of(value.split(",")).stream().map(Integer::parseInt).toList();
+                    case "threading-model" -> options.threadingModels = List.of(value.split(",")).stream()
+                            .map(s -> s.trim().toUpperCase(Locale.ROOT).replace('-', '_')).toList();
+                    case "out" -> options.out = new File(value);
+                    default -> throw new IllegalArgumentException("Unknown option " + arg);
+                }
+            }
+            if (options.users < options.drivers) {
+                throw new IllegalArgumentException("Need at least one user per driver");
+            }
+            return options;
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package com.krabi;
+
+import java.math.BigInteger;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.NoSuchAlgorithmException;
+import java.security.interfaces.RSAPrivateKey;
+import java.security.interfaces.RSAPublicKey;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Date;
+
+import com.auth0.jwt.JWT;
+import com.auth0.jwt.algorithms.Algorithm;
+
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+
+/**
+ * Local stand-in for a Cognito user pool: serves the JWKS of one RSA key and signs ID tokens
+ * the service verifies like real ones. Point the service at it with COGNITO_JWKS_URL.
+ */
+class TokenIssuer {
+
+    private static final String KID = "loadtest";
+    private static final long TOKEN_LIFETIME_MILLIS = 3_600_000;
+
+    private final String issuer;
+    private final String clientId;
+    private final KeyPair keyPair;
+    private final Algorithm algorithm;
+    private int port;
+
+    TokenIssuer(String region, String userPoolId, String clientId) {
+        this.issuer = String.format("https://cognito-idp.%s.amazonaws.com/%s", region, userPoolId);
+        this.clientId = clientId;
+        try {
+            KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+            generator.initialize(2048);
+            this.keyPair = generator.generateKeyPair();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        this.algorithm = Algorithm.RSA256((RSAPublicKey) keyPair.getPublic(), (RSAPrivateKey) keyPair.getPrivate());
+    }
+
+    Future<Void> start(Vertx vertx) {
+        String jwks = new JsonObject().put("keys", new JsonArray().add(jwk())).encode();
+        return vertx.createHttpServer()
+                .requestHandler(req -> req.response().putHeader("content-type", "application/json").end(jwks))
+                .listen(0, "localhost")
+                .onSuccess(server -> port = server.actualPort())
+                .mapEmpty();
+    }
+
+    String jwksUrl() {
+        return "http://localhost:" + port + "/.well-known/jwks.json";
+    }
+
+    String token(String username) {
+        return JWT.create()
+                .withKeyId(KID)
+                .withIssuer(issuer)
+                .withAudience(clientId)
+                .withSubject("sub-" + username)
+                .withClaim("cognito:username", username)
+                .withExpiresAt(new Date(System.currentTimeMillis() + TOKEN_LIFETIME_MILLIS))
+                .sign(algorithm);
+    }
+
+    private JsonObject jwk() {
+        RSAPublicKey publicKey = (RSAPublicKey) keyPair.getPublic();
+        return new JsonObject()
+                .put("kty", "RSA")
+                .put("alg", "RS256")
+                .put("use", "sig")
+                .put("kid", KID)
+                .put("n", base64Url(publicKey.getModulus()))
+                .put("e", base64Url(publicKey.getPublicExponent()));
+    }
+
+    private static String base64Url(BigInteger value) {
+        byte[] bytes = value.toByteArray();
+        if (bytes[0] == 0) {
+            bytes = Arrays.copyOfRange(bytes, 1, bytes.length);
+        }
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+}
@@ -0,0 +1,115 @@
+package com.krabi;
+
+import java.time.Instant;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import io.vertx.core.Context;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.web.RoutingContext;
+
+/**
+ * Writes one JSON line per request to the {@value #LOGGER} logger and tags every request with
+ * a correlation id. The id is taken from the caller's {@value #REQUEST_ID_HEADER} when it has
+ * a usable one, otherwise generated; it is echoed in the response header and kept in the
+ * context under {@value #REQUEST_ID}. It is also stored in the request's Vert.x context as
+ * {@link RequestIdMdcFilter#REQUEST_ID_LOCAL}. Every callback of the request runs on that
+ * context, whichever thread it is, so {@link RequestIdMdcFilter} can put the id into the MDC
+ * of each log line written meanwhile.
+ *
+ * <p>Failed requests (status 400 and up) are always logged, successful ones only with
+ * probability {@code sampleRate}. logback.xml puts the logger behind an async appender that
+ * drops lines rather than block when stdout falls behind.
+ */
+class AccessLogHandler implements Handler<RoutingContext> {
+
+    static final String LOGGER = "access";
+    static final String REQUEST_ID_HEADER = "X-Request-Id";
+    static final String REQUEST_ID = "requestId";
+    private static final int MAX_REQUEST_ID_LENGTH = 128;
+
+    private final double sampleRate;
+    private final Logger logger;
+
+    /**
+     * @param sampleRate share of successful requests logged, from 0 (none) to 1 (all)
+     */
+    AccessLogHandler(double sampleRate) {
+        this(sampleRate, LoggerFactory.getLogger(LOGGER));
+    }
+
+    AccessLogHandler(double sampleRate, Logger logger) {
+        if (sampleRate < 0 || sampleRate > 1) {
+            throw new IllegalArgumentException("Access log sample rate must be between 0 and 1");
+        }
+        this.sampleRate = sampleRate;
+        this.logger = logger;
+    }
+
+    @Override
+    public void handle(RoutingContext ctx) {
+        long start = System.nanoTime();
+        String requestId = requestId(ctx.request().getHeader(REQUEST_ID_HEADER));
+        ctx.put(REQUEST_ID, requestId);
+        // every request runs on a context of its own, the id goes away with it
+        Vertx.currentContext().putLocal(RequestIdMdcFilter.REQUEST_ID_LOCAL, requestId);
+        ctx.response().putHeader(REQUEST_ID_HEADER, requestId);
+        ctx.addEndHandler(ar -> {
+            int status = ctx.response().getStatusCode();
+            if (logger.isInfoEnabled() && (status >= 400 || sampled())) {
+                logger.info(entry(ctx, requestId, status, System.nanoTime() - start));
+            }
+        });
+        ctx.next();
+    }
+
+    private boolean sampled() {
+        return sampleRate >= 1 || (sampleRate > 0 && ThreadLocalRandom.current().nextDouble() < sampleRate);
+    }
+
+    private static String entry(RoutingContext ctx, String requestId, int status, long nanos) {
+        JsonObject user = ctx.get(MainVerticle.USER);
+        JsonObject entry = new JsonObject()
+                .put("time", Instant.now().toString())
+                .put("requestId", requestId)
+                .put("method", ctx.request().method().name())
+                .put("path", ctx.request().path())
+                .put("status", status)
+                .put("durationMs", nanos / 1_000_000.0)
+                .put("bytes", ctx.response().bytesWritten());
+        if (user != null) {
+            entry.put("user", user.getString(AuthMiddleware.USERNAME));
+        }
+        return entry.encode();
+    }
+
+    /**
+     * The id of the request whose callback is running on this thread, or null outside of one.
+     */
+    static String currentRequestId() {
+        Context context = Vertx.currentContext();
+        return (context != null) ? context.getLocal(RequestIdMdcFilter.REQUEST_ID_LOCAL) : null;
+    }
+
+    /**
+     * Keeps a caller's id when it is short printable ASCII, so it can go into a log line and
+     * a header unescaped; anything else is replaced.
+     */
+    static String requestId(String header) {
+        if (header != null && !header.isEmpty() && header.length() <= MAX_REQUEST_ID_LENGTH) {
+            boolean printable = true;
+            for (int i = 0; i < header.length() && printable; i++) {
+                char c = header.charAt(i);
+                printable = c > ' ' && c < 127 && c != '"' && c != '\\';
+            }
+            if (printable) {
+                return header;
+            }
+        }
+        return Long.toHexString(ThreadLocalRandom.current().nextLong() | Long.MIN_VALUE);
+    }
+}
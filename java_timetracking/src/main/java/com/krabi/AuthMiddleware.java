@@ -15,6 +15,7 @@ public class AuthMiddleware {
     protected static final String MISSING_OR_INVALID_AUTHORIZATION_HEADER = "Missing or invalid Authorization header";
     protected static final String AUTHENTICATION_REQUIRED = "Authentication required";
     protected static final String INSUFFICIENT_PERMISSIONS = "Insufficient permissions";
+    protected static final String SERVICE_OVERLOADED = "Service overloaded";
     private final CognitoAuthService authService;
 
     public AuthMiddleware(CognitoAuthService authService) {
@@ -55,6 +56,16 @@ public class AuthMiddleware {
                         ctx.next();
                     })
                     .onFailure(err -> {
+                        if (err instanceof BulkheadRejectedException rejected) {
+                            ctx.response()
+                                    .setStatusCode(503)
+                                    .putHeader("content-type", "application/json")
+                                    .putHeader("Retry-After", String.valueOf(rejected.getRetryAfterSeconds()))
+                                    .end(new JsonObject()
+                                            .put("error", SERVICE_OVERLOADED)
+                                            .encode());
+                            return;
+                        }
                         ctx.response()
                                 .setStatusCode(401)
                                 .putHeader("content-type", "application/json")
@@ -0,0 +1,27 @@
+package com.krabi;
+
+public class BatchItemResult {
+    static final String CREATED = "created";
+    static final String DELETED = "deleted";
+    static final String NOT_FOUND = "not_found";
+    static final String FAILED = "failed";
+
+    private final long id;
+    private final String status;
+    private final String error;
+
+    public BatchItemResult(long id, String status, String error) {
+        this.id = id;
+        this.status = status;
+        this.error = error;
+    }
+
+    static BatchItemResult failed(long id, String error) {
+        return new BatchItemResult(id, FAILED, error);
+    }
+
+    public long getId() { return id; }
+    public String getStatus() { return status; }
+    // null unless the item failed
+    public String getError() { return error; }
+}
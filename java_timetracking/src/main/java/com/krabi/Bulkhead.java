@@ -0,0 +1,91 @@
+package com.krabi;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.function.Supplier;
+
+import io.vertx.core.Context;
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import io.vertx.core.shareddata.Shareable;
+
+/**
+ * Caps how many operations of one kind run at once. Up to {@code maxQueued} more wait for a
+ * slot; beyond that callers fail fast with {@link BulkheadRejectedException} instead of
+ * queueing without bound. A waiting operation is resumed on the Vert.x context it was
+ * submitted from. Thread safe, so one instance can be shared by all verticle instances.
+ */
+public class Bulkhead implements Shareable {
+
+    static final int RETRY_AFTER_SECONDS = 1;
+
+    private final String name;
+    private final int maxConcurrent;
+    private final int maxQueued;
+    private final Queue<Runnable> waiting = new ArrayDeque<>();
+    private int active;
+
+    public Bulkhead(String name, int maxConcurrent, int maxQueued) {
+        this.name = name;
+        this.maxConcurrent = maxConcurrent;
+        this.maxQueued = maxQueued;
+    }
+
+    public <T> Future<T> execute(Supplier<Future<T>> operation) {
+        synchronized (this) {
+            if (active < maxConcurrent) {
+                active++;
+            } else if (waiting.size() < maxQueued) {
+                Promise<T> promise = Promise.promise();
+                Context context = Vertx.currentContext();
+                waiting.add(() -> {
+                    if (context != null) {
+                        context.runOnContext(v -> run(operation).onComplete(promise));
+                    } else {
+                        run(operation).onComplete(promise);
+                    }
+                });
+                return promise.future();
+            } else {
+                return Future.failedFuture(new BulkheadRejectedException(name, RETRY_AFTER_SECONDS));
+            }
+        }
+        return run(operation);
+    }
+
+    private <T> Future<T> run(Supplier<Future<T>> operation) {
+        Future<T> result;
+        try {
+            result = operation.get();
+        } catch (RuntimeException e) {
+            result = Future.failedFuture(e);
+        }
+        return result.onComplete(ar -> release());
+    }
+
+    private void release() {
+        Runnable next;
+        synchronized (this) {
+            next = waiting.poll();
+            if (next == null) {
+                active--;
+                return;
+            }
+        }
+        // the slot passes straight to the next waiting operation
+        next.run();
+    }
+
+    public synchronized int active() {
+        return active;
+    }
+
+    public synchronized int queued() {
+        return waiting.size();
+    }
+
+    public String name() {
+        return name;
+    }
+}
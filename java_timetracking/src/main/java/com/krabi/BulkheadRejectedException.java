@@ -0,0 +1,18 @@
+package com.krabi;
+
+/**
+ * Raised when a {@link Bulkhead} is saturated. Mapped to 503 with a Retry-After header.
+ */
+public class BulkheadRejectedException extends RuntimeException {
+
+    private final int retryAfterSeconds;
+
+    public BulkheadRejectedException(String name, int retryAfterSeconds) {
+        super(name + " is overloaded, retry later");
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public int getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
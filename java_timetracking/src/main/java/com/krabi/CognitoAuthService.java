@@ -1,23 +1,22 @@
 package com.krabi;
 
-import java.net.MalformedURLException;
-import java.net.URI;
 import java.security.interfaces.RSAPublicKey;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.auth0.jwk.JwkProvider;
-import com.auth0.jwk.JwkProviderBuilder;
 import com.auth0.jwt.JWT;
 import com.auth0.jwt.algorithms.Algorithm;
+import com.auth0.jwt.exceptions.JWTDecodeException;
 import com.auth0.jwt.exceptions.JWTVerificationException;
 import com.auth0.jwt.interfaces.DecodedJWT;
 import com.auth0.jwt.interfaces.JWTVerifier;
 
 import io.vertx.core.Future;
 import io.vertx.core.Vertx;
+import io.vertx.core.WorkerExecutor;
 import io.vertx.core.json.JsonObject;
 import software.amazon.awssdk.services.cognitoidentityprovider.CognitoIdentityProviderClient;
 import software.amazon.awssdk.services.cognitoidentityprovider.model.AuthFlowType;
@@ -32,61 +31,169 @@ public class CognitoAuthService {
     private final String region;
     private final CognitoIdentityProviderClient cognitoClient;
     private final Vertx vertx;
-    private JwkProvider jwkProvider;
-    private final Map<Algorithm, JWTVerifier> algorithmMap = new java.util.concurrent.ConcurrentHashMap<>();
+    private final JwksKeyStore jwksKeyStore;
+    // one verifier per signing key, rebuilt only when the pool rotates or replaces a key
+    private final Map<String, KeyVerifier> verifiers = new ConcurrentHashMap<>();
+    private final String issuer;
+    private final TokenCache tokenCache;
+    private final WorkerExecutor verifierPool;
+    private final Bulkhead authBulkhead;
+    private final Metrics.Timer verifyTimer;
+    private final Metrics.Counter verifyFailures;
 
     public CognitoAuthService(Vertx vertx, String userPoolId, String clientId, String region) {
+        this(vertx, userPoolId, clientId, region, null);
+    }
+
+    /**
+     * @param tokenCache verified tokens shared between instances, null disables caching
+     */
+    public CognitoAuthService(Vertx vertx, String userPoolId, String clientId, String region, TokenCache tokenCache) {
+        this(vertx, userPoolId, clientId, region, tokenCache, new JwksKeyStore(vertx, jwksUrl(region, userPoolId)));
+    }
+
+    /**
+     * @param jwksKeyStore signing keys of the user pool, may be shared between instances
+     */
+    public CognitoAuthService(Vertx vertx, String userPoolId, String clientId, String region, TokenCache tokenCache,
+            JwksKeyStore jwksKeyStore) {
+        this(vertx, userPoolId, clientId, region, tokenCache, jwksKeyStore, null, null);
+    }
+
+    /**
+     * @param verifierPool dedicated pool running the RSA signature checks, null verifies on the
+     *                     calling event loop
+     * @param authBulkhead bounds the verifications running and waiting on {@code verifierPool}
+     */
+    public CognitoAuthService(Vertx vertx, String userPoolId, String clientId, String region, TokenCache tokenCache,
+            JwksKeyStore jwksKeyStore, WorkerExecutor verifierPool, Bulkhead authBulkhead) {
+        this(vertx, userPoolId, clientId, region, tokenCache, jwksKeyStore, verifierPool, authBulkhead, null);
+    }
+
+    /**
+     * @param metrics receives the time of each signature check and the rejected tokens, may be null
+     */
+    public CognitoAuthService(Vertx vertx, String userPoolId, String clientId, String region, TokenCache tokenCache,
+            JwksKeyStore jwksKeyStore, WorkerExecutor verifierPool, Bulkhead authBulkhead, Metrics metrics) {
         this.vertx = vertx;
+        this.verifyTimer = metrics != null
+                ? metrics.timer("auth_jwt_verify_seconds", "Time to verify a token not found in the token cache")
+                : null;
+        this.verifyFailures = metrics != null
+                ? metrics.counter("auth_jwt_failures_total", "Tokens that failed verification")
+                : null;
+        this.verifierPool = verifierPool;
+        this.authBulkhead = authBulkhead;
+        this.tokenCache = tokenCache;
+        this.jwksKeyStore = jwksKeyStore;
         this.userPoolId = userPoolId;
         this.clientId = clientId;
         this.region = region;
+        this.issuer = String.format("https://cognito-idp.%s.amazonaws.com/%s", region, userPoolId);
         this.cognitoClient = CognitoIdentityProviderClient.builder()
                 .region(software.amazon.awssdk.regions.Region.of(region))
                 .build();
-        initializeJwkProvider();
     }
 
-    private void initializeJwkProvider() {
+    public static String jwksUrl(String region, String userPoolId) {
+        return String.format("https://cognito-idp.%s.amazonaws.com/%s/.well-known/jwks.json", region, userPoolId);
+    }
+
+    /**
+     * Preloads the user pool signing keys and starts their background refresh.
+     */
+    public Future<Void> start() {
+        return jwksKeyStore.start();
+    }
+
+    public Future<JsonObject> validateToken(String token) {
+        // The SPA sends the same ID token until it expires, answer repeats on the event loop
+        if (tokenCache != null) {
+            JsonObject cached = tokenCache.get(token);
+            if (cached != null) {
+                return Future.succeededFuture(cached);
+            }
+        }
+        // Keys come from the in-memory JWKS store, nothing here blocks the event loop
+        DecodedJWT jwt;
         try {
-            String jwksUrl = String.format("https://cognito-idp.%s.amazonaws.com/%s/.well-known/jwks.json", region,
-                    userPoolId);
-            this.jwkProvider = new JwkProviderBuilder(new URI(jwksUrl).toURL()).build();
-        } catch (MalformedURLException | java.net.URISyntaxException e) {
-            throw new RuntimeException("Failed to initialize JWK provider", e);
+            jwt = JWT.decode(token);
+        } catch (JWTDecodeException e) {
+            return Future.failedFuture(e);
         }
+        String kid = jwt.getKeyId();
+        return jwksKeyStore.getKey(kid).compose(publicKey -> {
+            JWTVerifier verifier = verifierFor(kid, publicKey);
+            if (verifierPool == null) {
+                return Future.succeededFuture(verify(token, verifier));
+            }
+            // Signature checks are CPU bound, a burst of new tokens must not stall the event loop
+            return authBulkhead.execute(() -> verifierPool.executeBlocking(() -> verify(token, verifier), false));
+        });
     }
 
-    public Future<JsonObject> validateToken(String token) {
-        // Don't remove blocking calls, this will break authentification
-        return vertx.executeBlocking(() -> {
-            DecodedJWT jwt = JWT.decode(token);
-            // Verify the token signature
-            RSAPublicKey publicKey = (RSAPublicKey) jwkProvider.get(jwt.getKeyId()).getPublicKey();
-            Algorithm algorithm = Algorithm.RSA256(publicKey, null);
-            JWTVerifier verifier = algorithmMap.computeIfAbsent(algorithm, alg -> JWT.require(alg)
-                    .withIssuer(String.format("https://cognito-idp.%s.amazonaws.com/%s", region, userPoolId))
-                    .build());
-            DecodedJWT verifiedJwt = verifier.verify(token);
-
-            // Accept if either aud or client_id matches clientId
-            boolean audOk = verifiedJwt.getAudience() != null && verifiedJwt.getAudience().contains(clientId);
-            boolean clientIdOk = clientId.equals(verifiedJwt.getClaim("client_id").asString());
-
-            if (!audOk && !clientIdOk) {
-                throw new JWTVerificationException(
-                        "Token audience (aud) or client_id does not match application client ID");
+    /**
+     * Returns the cached verifier of {@code kid}. A new one is only built for a key not seen
+     * before or a kid whose key changed; that is also when verifiers of kids the pool no longer
+     * publishes are dropped, so the map never outgrows the JWKS.
+     */
+    JWTVerifier verifierFor(String kid, RSAPublicKey publicKey) {
+        KeyVerifier cached = verifiers.get(kid);
+        if (cached != null && cached.publicKey().equals(publicKey)) {
+            return cached.verifier();
+        }
+        JWTVerifier verifier = JWT.require(Algorithm.RSA256(publicKey, null))
+                .withIssuer(issuer)
+                .build();
+        verifiers.put(kid, new KeyVerifier(publicKey, verifier));
+        verifiers.keySet().retainAll(jwksKeyStore.keyIds());
+        return verifier;
+    }
+
+    int cachedVerifiers() {
+        return verifiers.size();
+    }
+
+    private JsonObject verify(String token, JWTVerifier verifier) {
+        long start = System.nanoTime();
+        try {
+            return verifyClaims(token, verifier);
+        } catch (RuntimeException e) {
+            if (verifyFailures != null) {
+                verifyFailures.increment();
             }
+            throw e;
+        } finally {
+            if (verifyTimer != null) {
+                verifyTimer.recordSince(start);
+            }
+        }
+    }
 
-            // Extract user information
-            JsonObject userInfo = new JsonObject()
-                    .put("sub", verifiedJwt.getSubject())
-                    .put("email", verifiedJwt.getClaim("email").asString())
-                    .put("username", verifiedJwt.getClaim("cognito:username").asString())
-                    .put("groups", verifiedJwt.getClaim("cognito:groups").asList(String.class));
+    private JsonObject verifyClaims(String token, JWTVerifier verifier) {
+        DecodedJWT verifiedJwt = verifier.verify(token);
 
-            logger.info("token validated, username: {}", userInfo.getString("username"));
-            return userInfo;
-        });
+        // Accept if either aud or client_id matches clientId
+        boolean audOk = verifiedJwt.getAudience() != null && verifiedJwt.getAudience().contains(clientId);
+        boolean clientIdOk = clientId.equals(verifiedJwt.getClaim("client_id").asString());
+
+        if (!audOk && !clientIdOk) {
+            throw new JWTVerificationException(
+                    "Token audience (aud) or client_id does not match application client ID");
+        }
+
+        // Extract user information
+        JsonObject userInfo = new JsonObject()
+                .put("sub", verifiedJwt.getSubject())
+                .put("email", verifiedJwt.getClaim("email").asString())
+                .put("username", verifiedJwt.getClaim("cognito:username").asString())
+                .put("groups", verifiedJwt.getClaim("cognito:groups").asList(String.class));
+
+        logger.debug("token validated, username: {}", userInfo.getString("username"));
+        if (tokenCache != null && verifiedJwt.getExpiresAt() != null) {
+            tokenCache.put(token, userInfo, verifiedJwt.getExpiresAt().getTime());
+        }
+        return userInfo;
     }
 
     // this method authenticateUser not used as authentication handled by frontend
@@ -111,6 +218,9 @@ public class CognitoAuthService {
         });
     }
 
+    private record KeyVerifier(RSAPublicKey publicKey, JWTVerifier verifier) {
+    }
+
     public void close() {
         if (cognitoClient != null) {
             cognitoClient.close();
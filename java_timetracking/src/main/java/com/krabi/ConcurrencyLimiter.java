@@ -0,0 +1,94 @@
+package com.krabi;
+
+import io.vertx.core.shareddata.Shareable;
+
+/**
+ * Concurrency limit that follows observed latency instead of a fixed number, in the style of
+ * the gradient limiters of Netflix's concurrency-limits. A long-term average of request
+ * latency serves as the no-load baseline; while recent latency stays near it the limit grows
+ * by about its square root per sample, and as latency climbs above the baseline the limit
+ * shrinks in proportion. Server errors cut it multiplicatively. Requests beyond the limit are
+ * rejected at once rather than queued, so an overloaded service answers fast 503s while the
+ * admitted requests keep their latency.
+ *
+ * <p>Thread safe, so one instance can be shared by all verticle instances.
+ */
+public class ConcurrencyLimiter implements Shareable {
+
+    static final int INITIAL_LIMIT = 100;
+    // samples in the long-term latency average
+    private static final double LONG_WINDOW = 600;
+    // recent latency may exceed the baseline by this much before the limit shrinks
+    private static final double TOLERANCE = 2.0;
+    // weight of each new estimate, damps the limit against single slow requests
+    private static final double SMOOTHING = 0.2;
+    private static final double BACKOFF_RATIO = 0.9;
+
+    private final String name;
+    private final int minLimit;
+    private final int maxLimit;
+    private double limit;
+    private double longRttNanos;
+    private int inFlight;
+
+    public ConcurrencyLimiter(String name, int minLimit, int maxLimit) {
+        if (minLimit < 1 || maxLimit < minLimit) {
+            throw new IllegalArgumentException("Limits must satisfy 1 <= min <= max");
+        }
+        this.name = name;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.limit = Math.max(minLimit, Math.min(maxLimit, INITIAL_LIMIT));
+    }
+
+    /**
+     * Takes a slot if fewer than the current limit are in flight. Every successful call must
+     * be followed by one {@link #release}.
+     */
+    public synchronized boolean tryAcquire() {
+        if (inFlight >= (int) limit) {
+            return false;
+        }
+        inFlight++;
+        return true;
+    }
+
+    /**
+     * Returns the slot and adjusts the limit from the request's latency.
+     *
+     * @param rttNanos time from {@link #tryAcquire} to the response
+     * @param failed   the request failed on the server side, which counts as overload
+     */
+    public synchronized void release(long rttNanos, boolean failed) {
+        int inFlightBefore = inFlight--;
+        if (failed) {
+            limit = Math.max(minLimit, limit * BACKOFF_RATIO);
+            return;
+        }
+        double rtt = Math.max(1, rttNanos);
+        longRttNanos = longRttNanos == 0 ? rtt : longRttNanos + (rtt - longRttNanos) / LONG_WINDOW;
+        if (longRttNanos > 2 * rtt) {
+            // latency recovered after a slow period, let the baseline catch up faster
+            longRttNanos *= 0.95;
+        }
+        if (inFlightBefore < limit / 2) {
+            // too little load to say anything about capacity
+            return;
+        }
+        double gradient = Math.max(0.5, Math.min(1.0, TOLERANCE * longRttNanos / rtt));
+        double estimate = limit * gradient + Math.sqrt(limit);
+        limit = Math.max(minLimit, Math.min(maxLimit, limit * (1 - SMOOTHING) + estimate * SMOOTHING));
+    }
+
+    public synchronized int limit() {
+        return (int) limit;
+    }
+
+    public synchronized int inFlight() {
+        return inFlight;
+    }
+
+    public String name() {
+        return name;
+    }
+}
@@ -1,21 +1,50 @@
 package com.krabi;
 
 import java.net.URI;
+import java.time.Duration;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import software.amazon.awssdk.auth.credentials.DefaultCredentialsProvider;
+import software.amazon.awssdk.http.nio.netty.NettyNioAsyncHttpClient;
+import software.amazon.awssdk.metrics.MetricPublisher;
 import software.amazon.awssdk.regions.Region;
-import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.DynamoDbAsyncClient;
 
 public class DynamoDBClientProvider {
 
     private static final Logger logger = LoggerFactory.getLogger(DynamoDBClientProvider.class);
 
-    private static DynamoDbClient client;
+    // Netty connection pool, the SDK defaults (50 connections) queue requests long before the
+    // data bulkhead (DATA_MAX_IN_FLIGHT) does
+    private static final String MAX_CONNECTIONS = "DYNAMODB_MAX_CONNECTIONS";
+    private static final int DEFAULT_MAX_CONNECTIONS = 512;
+    private static final String CONNECTION_TIMEOUT_MILLIS = "DYNAMODB_CONNECTION_TIMEOUT_MILLIS";
+    private static final int DEFAULT_CONNECTION_TIMEOUT_MILLIS = 2_000;
+    private static final String ACQUIRE_TIMEOUT_MILLIS = "DYNAMODB_ACQUIRE_TIMEOUT_MILLIS";
+    private static final int DEFAULT_ACQUIRE_TIMEOUT_MILLIS = 5_000;
+    private static final String READ_TIMEOUT_MILLIS = "DYNAMODB_READ_TIMEOUT_MILLIS";
+    private static final int DEFAULT_READ_TIMEOUT_MILLIS = 10_000;
+    private static final String MAX_IDLE_MILLIS = "DYNAMODB_MAX_IDLE_MILLIS";
+    private static final int DEFAULT_MAX_IDLE_MILLIS = 60_000;
 
-    public static DynamoDbClient getClient() {
+    // one client per process, built by whichever verticle instance starts first
+    private static DynamoDbAsyncClient client;
+
+    public static DynamoDbAsyncClient getClient() {
+        return getClient(null);
+    }
+
+    /**
+     * Returns the process-wide client, building it on the first call. Verticle instances start
+     * concurrently on their own event loops, so this is synchronized; later calls only pay an
+     * uncontended lock.
+     *
+     * @param metricPublisher receives the SDK metrics of every call, only used by the call
+     *                        that creates the client
+     */
+    public static synchronized DynamoDbAsyncClient getClient(MetricPublisher metricPublisher) {
         if (client == null) {
 
             String endpoint = System.getenv("DYNAMODB_ENDPOINT");
@@ -24,7 +53,10 @@ public class DynamoDBClientProvider {
             logger.info("endpoint: {}", endpoint);
             logger.info("region: {}", region);
 
-            var builder = DynamoDbClient.builder().region(region);
+            // Non-blocking Netty transport, requests never park the calling event loop thread
+            var builder = DynamoDbAsyncClient.builder()
+                    .region(region)
+                    .httpClientBuilder(httpClientBuilder());
 
             if (endpoint != null) {
                 // Local/dev: use dummy credentials
@@ -35,8 +67,31 @@ public class DynamoDBClientProvider {
                 // AWS: use default provider chain (supports EC2 IAM roles)
                 builder = builder.credentialsProvider(DefaultCredentialsProvider.builder().build());
             }
+            if (metricPublisher != null) {
+                builder = builder.overrideConfiguration(o -> o.addMetricPublisher(metricPublisher));
+            }
             client = builder.build();
         }
         return client;
     }
+
+    /**
+     * Pooled, kept-alive connections sized for every verticle instance of the process together.
+     */
+    static NettyNioAsyncHttpClient.Builder httpClientBuilder() {
+        int maxConnections = intEnv(MAX_CONNECTIONS, DEFAULT_MAX_CONNECTIONS);
+        logger.info("max connections: {}", maxConnections);
+        return NettyNioAsyncHttpClient.builder()
+                .maxConcurrency(maxConnections)
+                .connectionTimeout(Duration.ofMillis(intEnv(CONNECTION_TIMEOUT_MILLIS, DEFAULT_CONNECTION_TIMEOUT_MILLIS)))
+                .connectionAcquisitionTimeout(Duration.ofMillis(intEnv(ACQUIRE_TIMEOUT_MILLIS, DEFAULT_ACQUIRE_TIMEOUT_MILLIS)))
+                .readTimeout(Duration.ofMillis(intEnv(READ_TIMEOUT_MILLIS, DEFAULT_READ_TIMEOUT_MILLIS)))
+                .connectionMaxIdleTime(Duration.ofMillis(intEnv(MAX_IDLE_MILLIS, DEFAULT_MAX_IDLE_MILLIS)))
+                .tcpKeepAlive(true);
+    }
+
+    private static int intEnv(String name, int defaultValue) {
+        String value = System.getenv(name);
+        return (value != null) ? Integer.parseInt(value) : defaultValue;
+    }
 }
@@ -0,0 +1,61 @@
+package com.krabi;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import software.amazon.awssdk.core.metrics.CoreMetric;
+import software.amazon.awssdk.metrics.MetricCollection;
+import software.amazon.awssdk.metrics.MetricPublisher;
+
+/**
+ * Feeds the SDK's per-call metrics into {@link Metrics}: latency of every DynamoDB operation
+ * including its retries, retries, and failures by error type (Throttling, ServerError,
+ * ClientError, IO). Attached to the client, so every call of every service is covered.
+ */
+class DynamoDbMetricsPublisher implements MetricPublisher {
+
+    private final Metrics metrics;
+    private final Map<String, Metrics.Timer> latency = new ConcurrentHashMap<>();
+    private final Map<String, Metrics.Counter> retries = new ConcurrentHashMap<>();
+
+    DynamoDbMetricsPublisher(Metrics metrics) {
+        this.metrics = metrics;
+    }
+
+    @Override
+    public void publish(MetricCollection call) {
+        String operation = first(call.metricValues(CoreMetric.OPERATION_NAME), "unknown");
+        Duration duration = first(call.metricValues(CoreMetric.API_CALL_DURATION), null);
+        if (duration != null) {
+            latency.computeIfAbsent(operation, op -> metrics.timer("dynamodb_request_seconds",
+                    "DynamoDB call latency including retries, by operation", "operation", op))
+                    .record(duration.toNanos());
+        }
+        Integer retryCount = first(call.metricValues(CoreMetric.RETRY_COUNT), 0);
+        if (retryCount > 0) {
+            retries.computeIfAbsent(operation, op -> metrics.counter("dynamodb_retries_total",
+                    "DynamoDB attempts retried by the SDK, by operation", "operation", op))
+                    .add(retryCount);
+        }
+        if (!first(call.metricValues(CoreMetric.API_CALL_SUCCESSFUL), true)) {
+            // the error type is recorded per attempt, the last attempt decided the call
+            String errorType = "Other";
+            for (MetricCollection attempt : call.children()) {
+                errorType = first(attempt.metricValues(CoreMetric.ERROR_TYPE), errorType);
+            }
+            // failures are rare, looking the counter up by labels is fine here
+            metrics.counter("dynamodb_errors_total", "Failed DynamoDB calls, by operation and error type",
+                    "operation", operation, "error_type", errorType).increment();
+        }
+    }
+
+    @Override
+    public void close() {
+    }
+
+    private static <T> T first(List<T> values, T defaultValue) {
+        return values.isEmpty() ? defaultValue : values.get(0);
+    }
+}
@@ -0,0 +1,158 @@
+package com.krabi;
+
+import java.security.interfaces.RSAPublicKey;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.auth0.jwk.InvalidPublicKeyException;
+import com.auth0.jwk.Jwk;
+
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.shareddata.Shareable;
+import io.vertx.ext.web.client.WebClient;
+
+/**
+ * In-memory copy of the user pool's JSON Web Key Set. Keys are loaded at startup and refreshed
+ * in the background with the non-blocking web client, so looking a key up never blocks the
+ * calling event loop. A token signed with an unknown {@code kid} (key rotation) triggers one
+ * refresh that all concurrent callers share. Thread safe, one instance can serve every
+ * verticle instance.
+ */
+public class JwksKeyStore implements Shareable {
+
+    private static final Logger logger = LoggerFactory.getLogger(JwksKeyStore.class);
+    static final long DEFAULT_REFRESH_INTERVAL_MILLIS = TimeUnit.MINUTES.toMillis(60);
+    // unknown kids cannot force refetches more often than this
+    static final long MIN_REFRESH_INTERVAL_MILLIS = TimeUnit.SECONDS.toMillis(30);
+
+    private final Vertx vertx;
+    private final WebClient webClient;
+    private final String jwksUrl;
+    private final long refreshIntervalMillis;
+    private final long minRefreshIntervalMillis;
+    private final AtomicReference<Future<Void>> inFlightRefresh = new AtomicReference<>();
+    private volatile Map<String, RSAPublicKey> keys = Map.of();
+    private volatile long lastRefreshMillis;
+    private long timerId = -1;
+
+    public JwksKeyStore(Vertx vertx, String jwksUrl) {
+        this(vertx, jwksUrl, DEFAULT_REFRESH_INTERVAL_MILLIS);
+    }
+
+    public JwksKeyStore(Vertx vertx, String jwksUrl, long refreshIntervalMillis) {
+        this(vertx, jwksUrl, refreshIntervalMillis, MIN_REFRESH_INTERVAL_MILLIS);
+    }
+
+    JwksKeyStore(Vertx vertx, String jwksUrl, long refreshIntervalMillis, long minRefreshIntervalMillis) {
+        this.vertx = vertx;
+        this.webClient = WebClient.create(vertx);
+        this.jwksUrl = jwksUrl;
+        this.refreshIntervalMillis = refreshIntervalMillis;
+        this.minRefreshIntervalMillis = minRefreshIntervalMillis;
+    }
+
+    /**
+     * Preloads the keys and schedules the periodic background refresh.
+     */
+    public synchronized Future<Void> start() {
+        if (timerId == -1) {
+            timerId = vertx.setPeriodic(refreshIntervalMillis, id -> refresh()
+                    .onFailure(err -> logger.warn("Background JWKS refresh failed: {}", err.getMessage())));
+        }
+        return refresh();
+    }
+
+    /**
+     * Resolves the public key for {@code kid}. Known keys complete immediately.
+     */
+    public Future<RSAPublicKey> getKey(String kid) {
+        RSAPublicKey key = keys.get(kid);
+        if (key != null) {
+            return Future.succeededFuture(key);
+        }
+        if (System.currentTimeMillis() - lastRefreshMillis < minRefreshIntervalMillis
+                && inFlightRefresh.get() == null) {
+            return Future.failedFuture(new IllegalArgumentException("Unknown signing key: " + kid));
+        }
+        return refresh().compose(v -> {
+            RSAPublicKey refreshed = keys.get(kid);
+            return refreshed != null
+                    ? Future.succeededFuture(refreshed)
+                    : Future.failedFuture(new IllegalArgumentException("Unknown signing key: " + kid));
+        });
+    }
+
+    /**
+     * Fetches the key set. While a fetch is running every caller gets that same future.
+     */
+    Future<Void> refresh() {
+        Promise<Void> promise = Promise.promise();
+        Future<Void> existing = inFlightRefresh.compareAndExchange(null, promise.future());
+        if (existing != null) {
+            return existing;
+        }
+        webClient.getAbs(jwksUrl).send()
+                .map(response -> {
+                    if (response.statusCode() != 200) {
+                        throw new IllegalStateException("JWKS endpoint returned " + response.statusCode());
+                    }
+                    return parseKeys(response.bodyAsJsonObject());
+                })
+                .onComplete(ar -> {
+                    if (ar.succeeded()) {
+                        keys = ar.result();
+                        lastRefreshMillis = System.currentTimeMillis();
+                        logger.info("Loaded {} JWKS keys", ar.result().size());
+                    }
+                    inFlightRefresh.set(null);
+                    promise.handle(ar.mapEmpty());
+                });
+        return promise.future();
+    }
+
+    /**
+     * Key ids currently published by the user pool.
+     */
+    public Set<String> keyIds() {
+        return keys.keySet();
+    }
+
+    int size() {
+        return keys.size();
+    }
+
+    public synchronized void close() {
+        if (timerId != -1) {
+            vertx.cancelTimer(timerId);
+            timerId = -1;
+        }
+        webClient.close();
+    }
+
+    private static Map<String, RSAPublicKey> parseKeys(JsonObject jwks) {
+        Map<String, RSAPublicKey> parsed = new HashMap<>();
+        JsonArray jwkArray = jwks.getJsonArray("keys", new JsonArray());
+        for (int i = 0; i < jwkArray.size(); i++) {
+            Jwk jwk = Jwk.fromValues(jwkArray.getJsonObject(i).getMap());
+            if (!"RSA".equals(jwk.getType()) || jwk.getId() == null) {
+                continue;
+            }
+            try {
+                parsed.put(jwk.getId(), (RSAPublicKey) jwk.getPublicKey());
+            } catch (InvalidPublicKeyException e) {
+                logger.warn("Skipping invalid JWKS key {}: {}", jwk.getId(), e.getMessage());
+            }
+        }
+        return Map.copyOf(parsed);
+    }
+}
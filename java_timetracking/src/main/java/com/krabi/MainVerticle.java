@@ -1,19 +1,37 @@
 package com.krabi;
 
+import java.time.YearMonth;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.Locale;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import io.vertx.core.AbstractVerticle;
 import io.vertx.core.DeploymentOptions;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
 import io.vertx.core.Promise;
+import io.vertx.core.ThreadingModel;
 import io.vertx.core.Vertx;
 import io.vertx.core.VertxOptions;
+import io.vertx.core.WorkerExecutor;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.http.HttpHeaders;
+import io.vertx.core.http.HttpServerResponse;
 import io.vertx.core.json.Json;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.shareddata.LocalMap;
 import io.vertx.ext.web.Router;
 import io.vertx.ext.web.RoutingContext;
 import io.vertx.ext.web.handler.BodyHandler;
+import software.amazon.awssdk.services.dynamodb.DynamoDbAsyncClient;
 
 public class MainVerticle extends AbstractVerticle {
 
@@ -21,30 +39,86 @@ public class MainVerticle extends AbstractVerticle {
     private static final String COGNITO_USER_POOL_ID = "COGNITO_USER_POOL_ID";
     private static final String COGNITO_CLIENT_ID = "COGNITO_CLIENT_ID";
     private static final String AWS_REGION = "AWS_REGION";
+    private static final String COGNITO_JWKS_URL = "COGNITO_JWKS_URL";
     private static final String PORT = "port";
     private static final String HOST = "host";
     private static final String DEV = "dev";
     private static final String PLEASE_SET_AWS_ENVIRONMENT_VARIABLES = "Please set COGNITO_USER_POOL_ID, COGNITO_CLIENT_ID, and AWS_REGION environment variables.";
+    private static final String PLEASE_SET_NODE_ID = "Please set NODE_ID (0-" + TaskIdGenerator.MAX_NODE_ID
+            + "), distinct for every instance writing to the same table.";
     private static final String HTTP_SERVER_STARTED_ON_PORT = "HTTP server started on port ";
     private static final String HTTP_SERVER_FAILED_TO_START = "HTTP server failed to start";
-    private static final String USER = "user";
+    static final String USER = "user";
     private static final String THREADS_COUNT = "threadsCount";
+    private static final String THREADING_MODEL = "THREADING_MODEL";
+    private static final String NODE_ID = "NODE_ID";
+    private static final String LIMIT = "limit";
+    private static final String CURSOR = "cursor";
+    private static final String SINCE = "since";
+    private static final String FROM = "from";
+    private static final String TO = "to";
+    private static final String PROJECT = "project";
+    private static final String MONTH = "month";
+    private static final String AUTH_CACHE_SIZE = "AUTH_CACHE_SIZE";
+    private static final long DEFAULT_AUTH_CACHE_SIZE = 10_000;
+    private static final String TASK_CACHE_SIZE = "TASK_CACHE_SIZE";
+    private static final int DEFAULT_TASK_CACHE_SIZE = 10_000;
+    private static final String TASK_CACHE_TTL_SECONDS = "TASK_CACHE_TTL_SECONDS";
+    private static final int DEFAULT_TASK_CACHE_TTL_SECONDS = 60;
+    private static final String AUTH_WORKER_POOL = "auth-worker";
+    private static final String AUTH_WORKER_POOL_SIZE = "AUTH_WORKER_POOL_SIZE";
+    private static final String AUTH_MAX_QUEUE = "AUTH_MAX_QUEUE";
+    private static final int DEFAULT_AUTH_MAX_QUEUE = 1000;
+    private static final String DATA_ACCESS = "data-access";
+    private static final String DATA_MAX_IN_FLIGHT = "DATA_MAX_IN_FLIGHT";
+    private static final String DATA_MAX_QUEUE = "DATA_MAX_QUEUE";
+    private static final int DEFAULT_DATA_MAX_IN_FLIGHT = 512;
+    private static final int DEFAULT_DATA_MAX_QUEUE = 2048;
+    private static final String ACCESS_LOG_SAMPLE_RATE = "ACCESS_LOG_SAMPLE_RATE";
+    private static final double DEFAULT_ACCESS_LOG_SAMPLE_RATE = 0.01;
+    private static final String API = "api";
+    private static final String CONCURRENCY_LIMIT_MIN = "CONCURRENCY_LIMIT_MIN";
+    private static final String CONCURRENCY_LIMIT_MAX = "CONCURRENCY_LIMIT_MAX";
+    private static final int DEFAULT_CONCURRENCY_LIMIT_MIN = 20;
+    private static final int DEFAULT_CONCURRENCY_LIMIT_MAX = 2000;
+    private static final String RATE_LIMIT_READS_PER_SECOND = "RATE_LIMIT_READS_PER_SECOND";
+    private static final String RATE_LIMIT_READ_BURST = "RATE_LIMIT_READ_BURST";
+    private static final String RATE_LIMIT_WRITES_PER_SECOND = "RATE_LIMIT_WRITES_PER_SECOND";
+    private static final String RATE_LIMIT_WRITE_BURST = "RATE_LIMIT_WRITE_BURST";
+    private static final String RATE_LIMIT_MAX_USERS = "RATE_LIMIT_MAX_USERS";
+    private static final int DEFAULT_RATE_LIMIT_READS_PER_SECOND = 50;
+    private static final int DEFAULT_RATE_LIMIT_READ_BURST = 200;
+    private static final int DEFAULT_RATE_LIMIT_WRITES_PER_SECOND = 10;
+    private static final int DEFAULT_RATE_LIMIT_WRITE_BURST = 50;
+    private static final int DEFAULT_RATE_LIMIT_MAX_USERS = 100_000;
+    // cheap routes that must answer even while the API sheds load; event streams stay open for
+    // hours and would hold a slot each
+    private static final Set<String> UNLIMITED_PATHS = Set.of("/api/test", "/api/tasks/events");
+    private static final int DEFAULT_PAGE_SIZE = 100;
+    private static final int MAX_PAGE_SIZE = 1000;
+    private static final int MAX_BATCH_ITEMS = 1000;
+    private static final long LAG_PROBE_INTERVAL_MILLIS = 100;
+    private static final String MALFORMED_BATCH = "Request body must be a JSON array of tasks or task ids";
     boolean isDev = false;
 
     public static void main(String[] args) {
 
-        String threadsCount = System.getenv(THREADS_COUNT);
-        int threads = (threadsCount != null) ? Integer.parseInt(threadsCount) : 1;
+        // One event loop and one verticle instance per core unless threadsCount says otherwise;
+        // availableProcessors honours container CPU limits
+        int threads = intEnv(THREADS_COUNT, Runtime.getRuntime().availableProcessors());
 
         // Configure Vert.x with configured event loop threads
         VertxOptions options = new VertxOptions().setEventLoopPoolSize(threads);
         Vertx vertx = Vertx.vertx(options);
 
-        // Deploy configured instances of the verticle
-        DeploymentOptions deploymentOptions = new DeploymentOptions().setInstances(threads);
+        // Deploy configured instances of the verticle, on event loops unless THREADING_MODEL says otherwise
+        ThreadingModel threadingModel = threadingModel(System.getenv(THREADING_MODEL));
+        DeploymentOptions deploymentOptions = new DeploymentOptions()
+                .setInstances(threads)
+                .setThreadingModel(threadingModel);
         vertx.deployVerticle(MainVerticle.class.getName(), deploymentOptions)
                 .onSuccess(deploymentId
-                        -> logger.info("Deployed {} instances of MainVerticle with deployment ID: {}", String.valueOf(threads), deploymentId)
+                        -> logger.info("Deployed {} {} instances of MainVerticle with deployment ID: {}", String.valueOf(threads), threadingModel, deploymentId)
                 )
                 .onFailure(cause
                         -> logger.error("Failed to deploy MainVerticle", cause)
@@ -53,8 +127,24 @@ public class MainVerticle extends AbstractVerticle {
 
     @Override
     public void start(Promise<Void> startPromise) throws Exception {
-        Router router = Router.router(vertx);
-        TaskService taskService = new TaskService(DynamoDBClientProvider.getClient());
+        // Check for dev mode
+        isDev = "true".equalsIgnoreCase(System.getenv(DEV));
+        logger.info("isDev: {}", isDev);
+
+        Metrics metrics = sharedMetrics();
+        DynamoDbAsyncClient dynamoDbClient = DynamoDBClientProvider.getClient(new DynamoDbMetricsPublisher(metrics));
+        SummaryService summaryService = new SummaryService(dynamoDbClient);
+        TaskCache taskCache = sharedTaskCache();
+        TaskService taskService = new TaskService(dynamoDbClient, summaryService, taskCache, sharedIdGenerator(),
+                vertx.eventBus());
+        if (taskCache != null) {
+            metrics.counter("task_cache_hits_total", "Task reads answered from the cache", taskCache::hits);
+            metrics.counter("task_cache_misses_total", "Task reads that went to DynamoDB", taskCache::misses);
+            metrics.counter("task_cache_evictions_total", "Task cache entries dropped for size or age", taskCache::evictions);
+            metrics.gauge("task_cache_size", "Task lists and tasks in the cache", taskCache::size);
+        }
+        probeEventLoopLag(metrics.timer("vertx_event_loop_lag_seconds",
+                "How late a timer fires on a verticle's event loop, the time it was kept busy"));
 
         // These values should be configured via environment variables
         // Initialize Cognito authentication
@@ -65,9 +155,6 @@ public class MainVerticle extends AbstractVerticle {
         String port = System.getenv(PORT);
         String host = System.getenv(HOST);
 
-        // Check for dev mode
-        isDev = "true".equalsIgnoreCase(System.getenv(DEV));
-        logger.info("isDev: {}", isDev);
         logger.info("userPoolId: {}", userPoolId);
         logger.info("clientId: {}", clientId);
         logger.info("region: {}", region);
@@ -82,53 +169,343 @@ public class MainVerticle extends AbstractVerticle {
                 logger.warn(PLEASE_SET_AWS_ENVIRONMENT_VARIABLES);
                 System.exit(-1);
             }
-            authService = new CognitoAuthService(vertx, userPoolId, clientId, region);
+            // the override points at a local token issuer, for load tests
+            String jwksUrl = Objects.requireNonNullElse(System.getenv(COGNITO_JWKS_URL),
+                    CognitoAuthService.jwksUrl(region, userPoolId));
+            JwksKeyStore jwksKeyStore = vertx.sharedData().<String, JwksKeyStore>getLocalMap(JwksKeyStore.class.getName())
+                    .computeIfAbsent(userPoolId, k -> new JwksKeyStore(vertx, jwksUrl));
+            // RSA checks get their own named pool, sized and bounded apart from everything else
+            int authPoolSize = intEnv(AUTH_WORKER_POOL_SIZE, Runtime.getRuntime().availableProcessors());
+            WorkerExecutor verifierPool = vertx.createSharedWorkerExecutor(AUTH_WORKER_POOL, authPoolSize);
+            Bulkhead authBulkhead = sharedBulkhead(AUTH_WORKER_POOL, authPoolSize, intEnv(AUTH_MAX_QUEUE, DEFAULT_AUTH_MAX_QUEUE));
+            registerBulkhead(metrics, authBulkhead);
+            TokenCache tokenCache = sharedTokenCache();
+            if (tokenCache != null) {
+                metrics.gauge("token_cache_hit_ratio", "Share of token checks answered from the cache", tokenCache::hitRatio);
+                metrics.gauge("token_cache_size", "Verified tokens in the cache", tokenCache::size);
+            }
+            authService = new CognitoAuthService(vertx, userPoolId, clientId, region, tokenCache, jwksKeyStore,
+                    verifierPool, authBulkhead, metrics);
             authMiddleware = new AuthMiddleware(authService);
         } else {
+            authService = null;
             authMiddleware = new AuthMiddleware();
         }
 
+        // DynamoDB calls are non-blocking, so data access is bounded by requests in flight
+        // rather than by a thread pool; excess load is shed with 503 instead of queueing
+        Bulkhead dataBulkhead = sharedBulkhead(DATA_ACCESS, intEnv(DATA_MAX_IN_FLIGHT, DEFAULT_DATA_MAX_IN_FLIGHT),
+                intEnv(DATA_MAX_QUEUE, DEFAULT_DATA_MAX_QUEUE));
+        registerBulkhead(metrics, dataBulkhead);
+        // Admission to the API follows observed latency, so a slow DynamoDB or Cognito turns
+        // into fast 503s instead of a growing backlog; CONCURRENCY_LIMIT_MAX=0 turns it off
+        int maxLimit = intEnv(CONCURRENCY_LIMIT_MAX, DEFAULT_CONCURRENCY_LIMIT_MAX);
+        ConcurrencyLimiter apiLimiter = maxLimit > 0
+                ? sharedConcurrencyLimiter(intEnv(CONCURRENCY_LIMIT_MIN, DEFAULT_CONCURRENCY_LIMIT_MIN), maxLimit)
+                : null;
+        if (apiLimiter != null) {
+            metrics.gauge("concurrency_limit", "Current adaptive limit of requests in flight", apiLimiter::limit,
+                    "name", apiLimiter.name());
+            metrics.gauge("concurrency_in_flight", "Requests admitted and not yet answered", apiLimiter::inFlight,
+                    "name", apiLimiter.name());
+        }
+        // Per-user budgets keep one busy client from spending the table's capacity for everyone;
+        // a rate of 0 turns that budget off
+        RateLimiter readLimiter = sharedRateLimiter("read", RATE_LIMIT_READS_PER_SECOND,
+                DEFAULT_RATE_LIMIT_READS_PER_SECOND, RATE_LIMIT_READ_BURST, DEFAULT_RATE_LIMIT_READ_BURST);
+        RateLimiter writeLimiter = sharedRateLimiter("write", RATE_LIMIT_WRITES_PER_SECOND,
+                DEFAULT_RATE_LIMIT_WRITES_PER_SECOND, RATE_LIMIT_WRITE_BURST, DEFAULT_RATE_LIMIT_WRITE_BURST);
+        for (RateLimiter limiter : new RateLimiter[] {readLimiter, writeLimiter}) {
+            if (limiter != null) {
+                metrics.gauge("rate_limit_users", "Users with a rate limit bucket in memory", limiter::users,
+                        "name", limiter.name());
+                metrics.counter("rate_limit_rejected_total", "Requests rejected with 429", limiter::rejected,
+                        "name", limiter.name());
+            }
+        }
+        // failures are always logged, successes only sampled, so the access log stays cheap under load
+        String sampleRate = System.getenv(ACCESS_LOG_SAMPLE_RATE);
+        AccessLogHandler accessLog = new AccessLogHandler(
+                sampleRate != null ? Double.parseDouble(sampleRate) : DEFAULT_ACCESS_LOG_SAMPLE_RATE);
+        Router router = router(taskService, summaryService, authMiddleware, dataBulkhead, metrics,
+                accessLog, apiLimiter, new RateLimitHandler(readLimiter, writeLimiter));
+
+        // Signing keys are preloaded before serving; if Cognito is unreachable now, the first
+        // token with an unknown kid retries the fetch
+        Future<Void> keysLoaded = isDev ? Future.succeededFuture() : authService.start()
+                .recover(err -> {
+                    logger.warn("Failed to preload JWKS keys: {}", err.getMessage());
+                    return Future.succeededFuture();
+                });
+        keysLoaded.compose(v -> vertx.createHttpServer()
+                .requestHandler(router)
+                .listen(Integer.parseInt(port), host))
+                .onSuccess(http -> {
+                    startPromise.complete();
+                    logger.info(HTTP_SERVER_STARTED_ON_PORT + "{}", port);
+                })
+                .onFailure(cause -> {
+                    logger.error(HTTP_SERVER_FAILED_TO_START, cause);
+                    startPromise.fail(cause);
+                });
+    }
+
+    /**
+     * All routes of the service. Separate from {@link #start} so benchmarks can serve them with
+     * stub dependencies; {@code apiLimiter} and {@code rateLimit} may be null.
+     */
+    Router router(TaskService taskService, SummaryService summaryService, AuthMiddleware authMiddleware,
+            Bulkhead dataBulkhead, Metrics metrics, AccessLogHandler accessLog,
+            ConcurrencyLimiter apiLimiter, RateLimitHandler rateLimit) {
+        Router router = Router.router(vertx);
+        // Every request gets its correlation id before anything else can fail it
+        router.route().handler(accessLog);
+        // Charged once the user is known and before a DynamoDB slot is taken
+        Handler<RoutingContext> userQuota = (rateLimit != null) ? rateLimit : RoutingContext::next;
+        Handler<RoutingContext> dataAccess = ctx -> dataBulkhead.execute(() -> {
+            Promise<Void> done = Promise.promise();
+            ctx.addEndHandler(ar -> done.tryComplete());
+            ctx.next();
+            return done.future();
+        }).onFailure(err -> {
+            if (err instanceof BulkheadRejectedException rejected) {
+                serviceUnavailable(ctx, rejected);
+            }
+        });
+
         // Create API router with /api prefix
         Router apiRouter = Router.router(vertx);
 
+        // Timed first, so the latency covers authentication and body parsing too
+        apiRouter.route().handler(new RequestMetricsHandler(metrics, "/api"));
+
+        // Shed load before authentication and body parsing, so rejecting costs next to nothing
+        if (apiLimiter != null) {
+            apiRouter.route().handler(ctx -> {
+                if (UNLIMITED_PATHS.contains(ctx.normalizedPath())) {
+                    ctx.next();
+                } else if (apiLimiter.tryAcquire()) {
+                    long start = System.nanoTime();
+                    ctx.addEndHandler(ar -> apiLimiter.release(System.nanoTime() - start,
+                            ctx.response().getStatusCode() >= 500));
+                    ctx.next();
+                } else {
+                    serviceUnavailable(ctx, new BulkheadRejectedException(API, Bulkhead.RETRY_AFTER_SECONDS));
+                }
+            });
+        }
+
         // Add BodyHandler to parse request bodies
         apiRouter.route().handler(BodyHandler.create());
 
         // Mount API router under /api
         router.route("/api/*").subRouter(apiRouter);
 
+        // Prometheus scrape endpoint, outside /api and without authentication
+        router.get("/metrics").handler(ctx -> ctx.response()
+                .putHeader("content-type", "text/plain; version=0.0.4; charset=utf-8")
+                .end(metrics.scrape()));
+
         // Protected routes - require authentication in prod
-        apiRouter.get("/tasks").handler(authMiddleware.authenticate()).handler(ctx -> {
-            List<Task> tasks = taskService.listTasks(getUserNameFromCtx(ctx));
-            ctx.response().putHeader("content-type", "application/json").end(Json.encode(tasks));
+        // TaskService returns futures, handlers never wait on DynamoDB from the event loop
+        apiRouter.get("/tasks").handler(authMiddleware.authenticate()).handler(userQuota).handler(dataAccess).handler(ctx -> {
+            String limitParam = ctx.request().getParam(LIMIT);
+            String cursor = ctx.request().getParam(CURSOR);
+            TaskFilter filter;
+            try {
+                filter = TaskFilter.of(ctx.request().getParam(FROM), ctx.request().getParam(TO),
+                        ctx.request().getParam(PROJECT));
+            } catch (IllegalArgumentException e) {
+                badRequest(ctx, e.getMessage());
+                return;
+            }
+            int limit;
+            try {
+                limit = limitParam != null ? Integer.parseInt(limitParam) : DEFAULT_PAGE_SIZE;
+            } catch (NumberFormatException e) {
+                limit = -1;
+            }
+            if (limit < 1 || limit > MAX_PAGE_SIZE) {
+                badRequest(ctx, "limit must be between 1 and " + MAX_PAGE_SIZE);
+                return;
+            }
+            int pageSize = limit;
+            // Taken before reading, so a write racing the read only makes the tag stale, never the data
+            taskService.lastChange(getUserNameFromCtx(ctx))
+                    .onSuccess(seq -> {
+                        String etag = listEtag(seq);
+                        if (!notModified(ctx, etag)) {
+                            sendTasks(ctx, taskService, filter, limitParam == null && cursor == null ? 0 : pageSize,
+                                    cursor, etag);
+                        }
+                    })
+                    .onFailure(ctx::fail);
         });
-        apiRouter.get("/tasks/:id").handler(authMiddleware.authenticate()).handler(ctx -> {
-            long id = Long.parseLong(ctx.pathParam("id"));
-            Task task = taskService.getTask(id);
-            if (task == null) {
-                ctx.response().setStatusCode(404).end();
-            } else {
-                ctx.response().putHeader("content-type", "application/json").end(Json.encode(task));
+        // Bulk import / delete in one request, registered before /tasks/:id so "batch" is not taken for an id
+        apiRouter.post("/tasks/batch").handler(authMiddleware.authenticate()).handler(userQuota).handler(dataAccess).handler(ctx -> {
+            List<Task> tasks = new ArrayList<>();
+            try {
+                JsonArray body = batchBody(ctx);
+                for (int i = 0; i < body.size(); i++) {
+                    Task task = body.getJsonObject(i).mapTo(Task.class);
+                    task.setUsername(getUserNameFromCtx(ctx));
+                    tasks.add(task);
+                }
+            } catch (IllegalArgumentException e) {
+                badRequest(ctx, e.getMessage());
+                return;
+            } catch (RuntimeException e) {
+                badRequest(ctx, MALFORMED_BATCH);
+                return;
             }
+            taskService.createTasks(tasks)
+                    .onSuccess(results -> ctx.response().putHeader("content-type", "application/json").end(Json.encode(results)))
+                    .onFailure(err -> batchFailed(ctx, err));
         });
-        apiRouter.post("/tasks").handler(authMiddleware.authenticate()).handler(ctx -> {
+        apiRouter.delete("/tasks/batch").handler(authMiddleware.authenticate()).handler(userQuota).handler(dataAccess).handler(ctx -> {
+            List<Long> ids = new ArrayList<>();
+            try {
+                JsonArray body = batchBody(ctx);
+                for (int i = 0; i < body.size(); i++) {
+                    ids.add(Objects.requireNonNull(body.getLong(i)));
+                }
+            } catch (IllegalArgumentException e) {
+                badRequest(ctx, e.getMessage());
+                return;
+            } catch (RuntimeException e) {
+                badRequest(ctx, MALFORMED_BATCH);
+                return;
+            }
+            taskService.deleteTasks(getUserNameFromCtx(ctx), ids)
+                    .onSuccess(results -> ctx.response().putHeader("content-type", "application/json").end(Json.encode(results)))
+                    .onFailure(err -> batchFailed(ctx, err));
+        });
+        // Changes pushed as Server-Sent Events while the client is open; charged to the read
+        // budget per connect and holding no DynamoDB slot, as an open stream reads nothing
+        apiRouter.get("/tasks/events").handler(authMiddleware.authenticate()).handler(userQuota)
+                .handler(new TaskEventStreams(vertx, metrics));
+        // Delta sync: only what changed since the client's cursor, so a sync costs as much as the churn
+        apiRouter.get("/tasks/changes").handler(authMiddleware.authenticate()).handler(userQuota).handler(dataAccess).handler(ctx -> {
+            taskService.changes(getUserNameFromCtx(ctx), ctx.request().getParam(SINCE))
+                    .onSuccess(changes -> ctx.response().putHeader("content-type", "application/json").end(TaskCodec.encode(changes)))
+                    .onFailure(err -> {
+                        if (err instanceof IllegalArgumentException) {
+                            badRequest(ctx, err.getMessage());
+                        } else {
+                            ctx.fail(err);
+                        }
+                    });
+        });
+        apiRouter.get("/tasks/:id").handler(authMiddleware.authenticate()).handler(userQuota).handler(dataAccess).handler(ctx -> {
+            long id = Long.parseLong(ctx.pathParam("id"));
+            taskService.getTask(id, getUserNameFromCtx(ctx))
+                    .onSuccess(task -> {
+                        if (task == null) {
+                            ctx.response().setStatusCode(404).end();
+                            return;
+                        }
+                        // every write bumps the stored version, so it tags the task whoever wrote it
+                        String etag = "\"" + task.getVersion() + "\"";
+                        if (!notModified(ctx, etag)) {
+                            cacheable(ctx, etag).putHeader("content-type", "application/json").end(TaskCodec.encode(task));
+                        }
+                    })
+                    .onFailure(ctx::fail);
+        });
+        apiRouter.post("/tasks").handler(authMiddleware.authenticate()).handler(userQuota).handler(dataAccess).handler(ctx -> {
             Task task = ctx.body().asPojo(Task.class);
             task.setUsername(getUserNameFromCtx(ctx));
-            taskService.createTask(task);
-            ctx.response().setStatusCode(201).end();
+            // the id is assigned by the server, any id in the body is ignored
+            taskService.createTask(task)
+                    .onSuccess(v -> ctx.response()
+                            .setStatusCode(201)
+                            .putHeader(HttpHeaders.LOCATION, "/api/tasks/" + task.getId())
+                            .putHeader("content-type", "application/json")
+                            .end(TaskCodec.encode(task)))
+                    .onFailure(err -> writeFailed(ctx, err));
         });
-        apiRouter.put("/tasks/:id").handler(authMiddleware.authenticate()).handler(ctx -> {
+        // Full replace; a version in the body makes it conditional like PATCH
+        apiRouter.put("/tasks/:id").handler(authMiddleware.authenticate()).handler(userQuota).handler(dataAccess).handler(ctx -> {
             long id = Long.parseLong(ctx.pathParam("id"));
             Task task = ctx.body().asPojo(Task.class);
             task.setId(id);
             task.setUsername(getUserNameFromCtx(ctx));
-            taskService.updateTask(task);
-            ctx.response().setStatusCode(204).end();
+            taskService.updateTask(task)
+                    .onSuccess(updated -> ctx.response().setStatusCode(updated == null ? 404 : 204).end())
+                    .onFailure(err -> writeFailed(ctx, err));
         });
-        apiRouter.delete("/tasks/:id").handler(authMiddleware.authenticate()).handler(ctx -> {
+        // Partial update: only the attributes in the body are written, 409 if "version" is stale
+        apiRouter.patch("/tasks/:id").handler(authMiddleware.authenticate()).handler(userQuota).handler(dataAccess).handler(ctx -> {
             long id = Long.parseLong(ctx.pathParam("id"));
-            taskService.deleteTask(id);
-            ctx.response().setStatusCode(204).end();
+            TaskPatch patch = ctx.body().asPojo(TaskPatch.class);
+            if (patch == null || patch.isEmpty()) {
+                badRequest(ctx, "Nothing to update");
+                return;
+            }
+            taskService.patchTask(id, getUserNameFromCtx(ctx), patch)
+                    .onSuccess(updated -> {
+                        if (updated == null) {
+                            ctx.response().setStatusCode(404).end();
+                        } else {
+                            ctx.response().putHeader("content-type", "application/json").end(TaskCodec.encode(updated));
+                        }
+                    })
+                    .onFailure(err -> writeFailed(ctx, err));
+        });
+        apiRouter.delete("/tasks/:id").handler(authMiddleware.authenticate()).handler(userQuota).handler(dataAccess).handler(ctx -> {
+            long id = Long.parseLong(ctx.pathParam("id"));
+            taskService.deleteTask(id, getUserNameFromCtx(ctx))
+                    .onSuccess(deleted -> ctx.response().setStatusCode(deleted == null ? 404 : 204).end())
+                    .onFailure(ctx::fail);
+        });
+        // Monthly totals served from pre-aggregated counters, O(projects) per request; the first
+        // request for a month builds its counters from the tasks stored before they existed
+        apiRouter.get("/summary").handler(authMiddleware.authenticate()).handler(userQuota).handler(dataAccess).handler(ctx -> {
+            String month = ctx.request().getParam(MONTH, YearMonth.now().toString());
+            String username = getUserNameFromCtx(ctx);
+            TaskFilter filter;
+            try {
+                filter = TaskFilter.forMonth(month);
+            } catch (IllegalArgumentException e) {
+                badRequest(ctx, e.getMessage());
+                return;
+            }
+            summaryService.getSummary(username, month, () -> taskService.listStoredTasks(username, filter))
+                    .onSuccess(summary -> ctx.response().putHeader("content-type", "application/json").end(Json.encode(summary)))
+                    .onFailure(ctx::fail);
+        });
+        // Recomputes the month's counters from raw tasks, repairs what /summary/check reports
+        apiRouter.post("/summary/rebuild").handler(authMiddleware.authenticate()).handler(userQuota).handler(dataAccess).handler(ctx -> {
+            String month = ctx.request().getParam(MONTH, YearMonth.now().toString());
+            String username = getUserNameFromCtx(ctx);
+            TaskFilter filter;
+            try {
+                filter = TaskFilter.forMonth(month);
+            } catch (IllegalArgumentException e) {
+                badRequest(ctx, e.getMessage());
+                return;
+            }
+            taskService.listStoredTasks(username, filter)
+                    .compose(tasks -> summaryService.rebuild(username, month, tasks))
+                    .onSuccess(summary -> ctx.response().putHeader("content-type", "application/json").end(Json.encode(summary)))
+                    .onFailure(ctx::fail);
+        });
+        // Recomputes the month from raw tasks and reports counters that drifted
+        apiRouter.get("/summary/check").handler(authMiddleware.authenticate()).handler(userQuota).handler(dataAccess).handler(ctx -> {
+            String month = ctx.request().getParam(MONTH, YearMonth.now().toString());
+            String username = getUserNameFromCtx(ctx);
+            TaskFilter filter;
+            try {
+                filter = TaskFilter.forMonth(month);
+            } catch (IllegalArgumentException e) {
+                badRequest(ctx, e.getMessage());
+                return;
+            }
+            // from the table, a stale cached list would hide drift or make some up
+            taskService.listStoredTasks(username, filter)
+                    .compose(tasks -> summaryService.checkConsistency(username, month, tasks))
+                    .onSuccess(report -> ctx.response().putHeader("content-type", "application/json").end(report.encode()))
+                    .onFailure(ctx::fail);
         });
         apiRouter.get("/authtest").handler(authMiddleware.authenticate()).handler(ctx -> {
             ctx.response().end("User authenticated - " + getUserNameFromCtx(ctx));
@@ -136,20 +513,250 @@ public class MainVerticle extends AbstractVerticle {
         apiRouter.get("/test").handler(ctx -> {
             ctx.response().end("Ok");
         });
+        return router;
+    }
 
-        vertx.createHttpServer()
-                .requestHandler(router)
-                .listen(Integer.parseInt(port), host)
-                .onSuccess(http -> {
-                    startPromise.complete();
-                    logger.info(HTTP_SERVER_STARTED_ON_PORT + "{}", port);
-                })
-                .onFailure(cause -> {
-                    logger.error(HTTP_SERVER_FAILED_TO_START, cause);
-                    startPromise.fail(cause);
+    /**
+     * One id generator for all verticle instances of this process. Every process writing to the
+     * same table needs its own NODE_ID, so it is required outside dev mode; a guess such as a
+     * host name hash would let two pods hand out the same ids.
+     */
+    private TaskIdGenerator sharedIdGenerator() {
+        String nodeId = System.getenv(NODE_ID);
+        if (nodeId == null && !isDev) {
+            logger.warn(PLEASE_SET_NODE_ID);
+            System.exit(-1);
+        }
+        int node = (nodeId != null) ? Integer.parseInt(nodeId) : 0;
+        LocalMap<String, TaskIdGenerator> generators = vertx.sharedData().getLocalMap(TaskIdGenerator.class.getName());
+        return generators.computeIfAbsent(NODE_ID, k -> {
+            logger.info("Task ids generated with node id {}", node);
+            return new TaskIdGenerator(node);
+        });
+    }
+
+    /**
+     * One task read cache for all verticle instances of this Vert.x, or null when TASK_CACHE_SIZE=0.
+     */
+    private TaskCache sharedTaskCache() {
+        long size = intEnv(TASK_CACHE_SIZE, DEFAULT_TASK_CACHE_SIZE);
+        if (size <= 0) {
+            return null;
+        }
+        long ttlMillis = TimeUnit.SECONDS.toMillis(intEnv(TASK_CACHE_TTL_SECONDS, DEFAULT_TASK_CACHE_TTL_SECONDS));
+        LocalMap<String, TaskCache> caches = vertx.sharedData().getLocalMap(TaskCache.class.getName());
+        return caches.computeIfAbsent(TASK_CACHE_SIZE, k -> new TaskCache(size, ttlMillis));
+    }
+
+    /**
+     * One token cache for all verticle instances of this Vert.x, or null when AUTH_CACHE_SIZE=0.
+     */
+    private TokenCache sharedTokenCache() {
+        String cacheSize = System.getenv(AUTH_CACHE_SIZE);
+        long size = (cacheSize != null) ? Long.parseLong(cacheSize) : DEFAULT_AUTH_CACHE_SIZE;
+        if (size <= 0) {
+            return null;
+        }
+        LocalMap<String, TokenCache> caches = vertx.sharedData().getLocalMap(TokenCache.class.getName());
+        return caches.computeIfAbsent(AUTH_CACHE_SIZE, k -> new TokenCache(size));
+    }
+
+    /**
+     * One metrics registry for all verticle instances of this Vert.x.
+     */
+    private Metrics sharedMetrics() {
+        LocalMap<String, Metrics> registries = vertx.sharedData().getLocalMap(Metrics.class.getName());
+        return registries.computeIfAbsent(Metrics.class.getName(), k -> new Metrics());
+    }
+
+    private static void registerBulkhead(Metrics metrics, Bulkhead bulkhead) {
+        metrics.gauge("bulkhead_active", "Operations running in the bulkhead", bulkhead::active, "name", bulkhead.name());
+        metrics.gauge("bulkhead_queued", "Operations waiting for a bulkhead slot", bulkhead::queued, "name", bulkhead.name());
+    }
+
+    /**
+     * Measures how late a timer fires on this verticle's thread, which is how long other work
+     * held it. Rescheduled after each run; the timer goes away with the verticle.
+     */
+    private void probeEventLoopLag(Metrics.Timer lag) {
+        long due = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(LAG_PROBE_INTERVAL_MILLIS);
+        vertx.setTimer(LAG_PROBE_INTERVAL_MILLIS, id -> {
+            lag.recordSince(due);
+            probeEventLoopLag(lag);
+        });
+    }
+
+    private ConcurrencyLimiter sharedConcurrencyLimiter(int minLimit, int maxLimit) {
+        LocalMap<String, ConcurrencyLimiter> limiters = vertx.sharedData().getLocalMap(ConcurrencyLimiter.class.getName());
+        return limiters.computeIfAbsent(API, k -> new ConcurrencyLimiter(API, minLimit, maxLimit));
+    }
+
+    /**
+     * One limiter per budget for all verticle instances of this Vert.x, or null when its rate is 0.
+     */
+    private RateLimiter sharedRateLimiter(String name, String rateEnv, int defaultRate, String burstEnv,
+            int defaultBurst) {
+        int rate = intEnv(rateEnv, defaultRate);
+        if (rate <= 0) {
+            return null;
+        }
+        int burst = intEnv(burstEnv, defaultBurst);
+        int maxUsers = intEnv(RATE_LIMIT_MAX_USERS, DEFAULT_RATE_LIMIT_MAX_USERS);
+        LocalMap<String, RateLimiter> limiters = vertx.sharedData().getLocalMap(RateLimiter.class.getName());
+        return limiters.computeIfAbsent(name, k -> new RateLimiter(name, rate, burst, maxUsers));
+    }
+
+    private Bulkhead sharedBulkhead(String name, int maxConcurrent, int maxQueued) {
+        LocalMap<String, Bulkhead> bulkheads = vertx.sharedData().getLocalMap(Bulkhead.class.getName());
+        return bulkheads.computeIfAbsent(name, k -> new Bulkhead(name, maxConcurrent, maxQueued));
+    }
+
+    /**
+     * Parses THREADING_MODEL, e.g. {@code virtual-thread} or {@code EVENT_LOOP}. Handlers are
+     * future based and run unchanged in either model; on virtual threads they may also block
+     * with {@link Future#await()}.
+     */
+    static ThreadingModel threadingModel(String value) {
+        if (value == null || value.isBlank()) {
+            return ThreadingModel.EVENT_LOOP;
+        }
+        return ThreadingModel.valueOf(value.trim().toUpperCase(Locale.ROOT).replace('-', '_'));
+    }
+
+    private static int intEnv(String name, int defaultValue) {
+        String value = System.getenv(name);
+        return (value != null) ? Integer.parseInt(value) : defaultValue;
+    }
+
+    private void serviceUnavailable(RoutingContext ctx, BulkheadRejectedException rejected) {
+        ctx.response()
+                .setStatusCode(503)
+                .putHeader("content-type", "application/json")
+                .putHeader("Retry-After", String.valueOf(rejected.getRetryAfterSeconds()))
+                .end(new JsonObject().put("error", rejected.getMessage()).encode());
+    }
+
+    /**
+     * Sends the user's tasks: the whole (filtered) history as a plain array when
+     * {@code pageSize} is 0, otherwise one page.
+     */
+    private void sendTasks(RoutingContext ctx, TaskService taskService, TaskFilter filter, int pageSize,
+            String cursor, String etag) {
+        if (pageSize == 0) {
+            // Unpaged: whole (filtered) history as a plain array, kept for existing clients.
+            // Streamed page by page, so large histories are never held in memory as one string
+            HttpServerResponse response = cacheable(ctx, etag).putHeader("content-type", "application/json");
+            AtomicBoolean first = new AtomicBoolean(true);
+            taskService.streamTasks(getUserNameFromCtx(ctx), filter, page -> {
+                Buffer chunk = Buffer.buffer(1 + page.size() * TaskCodec.ESTIMATED_TASK_SIZE);
+                if (!response.headWritten()) {
+                    response.setChunked(true);
+                    chunk.appendByte((byte) '[');
+                }
+                TaskCodec.writeElements(chunk, page, first.get());
+                first.compareAndSet(true, page.isEmpty());
+                return response.write(chunk);
+            })
+                    .onSuccess(v -> response.end(response.headWritten() ? "]" : "[]"))
+                    .onFailure(err -> {
+                        if (response.headWritten()) {
+                            // status already sent, cut the connection so the client sees a broken body
+                            response.reset();
+                        } else {
+                            ctx.fail(err);
+                        }
+                    });
+            return;
+        }
+        taskService.listTasks(getUserNameFromCtx(ctx), filter, pageSize, cursor)
+                .onSuccess(page -> cacheable(ctx, etag).putHeader("content-type", "application/json").end(TaskCodec.encode(page)))
+                .onFailure(err -> {
+                    if (err instanceof IllegalArgumentException) {
+                        badRequest(ctx, err.getMessage());
+                    } else {
+                        ctx.fail(err);
+                    }
                 });
     }
 
+    /**
+     * Weak tag of a user's task list, the seq of their latest write. None while that write is
+     * recent enough that the date index may not show it yet, or the tag would vouch for a list
+     * missing it.
+     */
+    static String listEtag(long seq) {
+        if (TaskIdGenerator.timestampOf(seq) > System.currentTimeMillis() - TaskService.CHANGE_SETTLE_MILLIS) {
+            return null;
+        }
+        return "W/\"" + Long.toString(seq, 36) + "\"";
+    }
+
+    /**
+     * Answers 304 when the client's If-None-Match holds {@code etag}; nothing is read or encoded.
+     */
+    private static boolean notModified(RoutingContext ctx, String etag) {
+        String ifNoneMatch = ctx.request().getHeader(HttpHeaders.IF_NONE_MATCH);
+        if (etag == null || ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            // weak comparison, as required for If-None-Match
+            if (tag.equals("*") || tag.replaceFirst("^W/", "").equals(etag.replaceFirst("^W/", ""))) {
+                cacheable(ctx, etag).setStatusCode(304).end();
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // private: responses carry user data; no-cache: always revalidate, which costs a 304 at most
+    private static HttpServerResponse cacheable(RoutingContext ctx, String etag) {
+        HttpServerResponse response = ctx.response();
+        if (etag != null) {
+            response.putHeader(HttpHeaders.ETAG, etag)
+                    .putHeader(HttpHeaders.CACHE_CONTROL, "private, no-cache");
+        }
+        return response;
+    }
+
+    private static JsonArray batchBody(RoutingContext ctx) {
+        JsonArray body = ctx.body().asJsonArray();
+        if (body == null || body.isEmpty()) {
+            throw new IllegalArgumentException("Request body must be a non-empty JSON array");
+        }
+        if (body.size() > MAX_BATCH_ITEMS) {
+            throw new IllegalArgumentException("At most " + MAX_BATCH_ITEMS + " items per batch");
+        }
+        return body;
+    }
+
+    private void batchFailed(RoutingContext ctx, Throwable err) {
+        if (err instanceof IllegalArgumentException) {
+            badRequest(ctx, err.getMessage());
+        } else {
+            ctx.fail(err);
+        }
+    }
+
+    // IllegalStateException is a conflicting write: an id that exists or a stale version
+    private void writeFailed(RoutingContext ctx, Throwable err) {
+        if (err instanceof IllegalStateException) {
+            ctx.response().setStatusCode(409)
+                    .putHeader("content-type", "application/json")
+                    .end(new JsonObject().put("error", err.getMessage()).encode());
+        } else {
+            ctx.fail(err);
+        }
+    }
+
+    private void badRequest(RoutingContext ctx, String message) {
+        ctx.response()
+                .setStatusCode(400)
+                .putHeader("content-type", "application/json")
+                .end(new JsonObject().put("error", message).encode());
+    }
+
     private String getUserNameFromCtx(RoutingContext ctx) {
         // Set username from authenticated user
         String username = null;
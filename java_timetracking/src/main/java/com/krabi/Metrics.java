@@ -0,0 +1,233 @@
+package com.krabi;
+
+import java.math.BigDecimal;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.DoubleSupplier;
+import java.util.function.LongSupplier;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import io.vertx.core.shareddata.Shareable;
+
+/**
+ * Registry of the service's metrics, written in the Prometheus text format by
+ * {@link #scrape}. Latencies go into HDR histograms through a {@link Recorder}, counts into
+ * {@link LongAdder}s: recording either is wait free and allocates nothing, so it is cheap
+ * enough for every request. Merging and formatting is left to the scrape.
+ *
+ * <p>Look up a {@link Timer} or {@link Counter} once and keep it; registering the same name
+ * and labels again returns the existing one. Implements {@link Shareable} so all verticle
+ * instances record into one registry.
+ */
+public class Metrics implements Shareable {
+
+    // upper bounds in seconds of the exported latency buckets
+    static final double[] BUCKETS = {0.0005, 0.001, 0.0025, 0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10};
+    private static final String[] BUCKET_LABELS = new String[BUCKETS.length];
+    static {
+        for (int i = 0; i < BUCKETS.length; i++) {
+            BUCKET_LABELS[i] = "le=\"" + BigDecimal.valueOf(BUCKETS[i]).stripTrailingZeros().toPlainString() + "\"";
+        }
+    }
+    // latencies are kept in microseconds; anything slower than this is counted as this
+    private static final long HIGHEST_MICROS = TimeUnit.MINUTES.toMicros(1);
+    private static final int SIGNIFICANT_DIGITS = 2;
+
+    private final Map<String, Family> families = new ConcurrentSkipListMap<>();
+
+    /**
+     * @param labels label names and values, alternating
+     */
+    public Timer timer(String name, String help, String... labels) {
+        return (Timer) family(name, help, "histogram").series.computeIfAbsent(labels(labels), k -> new Timer());
+    }
+
+    public Counter counter(String name, String help, String... labels) {
+        return (Counter) family(name, help, "counter").series.computeIfAbsent(labels(labels), k -> new Counter());
+    }
+
+    /**
+     * Registers a count kept elsewhere, read at scrape time. One already registered under these
+     * labels is kept.
+     */
+    public void counter(String name, String help, LongSupplier value, String... labels) {
+        family(name, help, "counter").series.putIfAbsent(labels(labels), new Gauge(value::getAsLong));
+    }
+
+    /**
+     * Registers a value read at scrape time. A gauge already registered under these labels is kept.
+     */
+    public void gauge(String name, String help, DoubleSupplier value, String... labels) {
+        family(name, help, "gauge").series.putIfAbsent(labels(labels), new Gauge(value));
+    }
+
+    public String scrape() {
+        StringBuilder out = new StringBuilder(4096);
+        for (Family family : families.values()) {
+            out.append("# HELP ").append(family.name).append(' ').append(family.help).append('\n');
+            out.append("# TYPE ").append(family.name).append(' ').append(family.type).append('\n');
+            for (Map.Entry<String, Series> series : family.series.entrySet()) {
+                series.getValue().write(out, family.name, series.getKey());
+            }
+        }
+        return out.toString();
+    }
+
+    private Family family(String name, String help, String type) {
+        Family family = families.computeIfAbsent(name, k -> new Family(name, help, type));
+        if (!family.type.equals(type)) {
+            throw new IllegalArgumentException(name + " is already registered as a " + family.type);
+        }
+        return family;
+    }
+
+    // the inside of {...}: name="value" pairs, values escaped
+    private static String labels(String[] labels) {
+        if (labels.length % 2 != 0) {
+            throw new IllegalArgumentException("labels must be name and value pairs");
+        }
+        StringBuilder out = new StringBuilder();
+        for (int i = 0; i < labels.length; i += 2) {
+            if (i > 0) {
+                out.append(',');
+            }
+            out.append(labels[i]).append("=\"");
+            String value = labels[i + 1];
+            for (int j = 0; j < value.length(); j++) {
+                char c = value.charAt(j);
+                switch (c) {
+                    case '\\' -> out.append("\\\\");
+                    case '"' -> out.append("\\\"");
+                    case '\n' -> out.append("\\n");
+                    default -> out.append(c);
+                }
+            }
+            out.append('"');
+        }
+        return out.toString();
+    }
+
+    private static void sample(StringBuilder out, String name, String labels, String extraLabel, double value) {
+        out.append(name);
+        if (!labels.isEmpty() || extraLabel != null) {
+            out.append('{').append(labels);
+            if (extraLabel != null) {
+                out.append(labels.isEmpty() ? "" : ",").append(extraLabel);
+            }
+            out.append('}');
+        }
+        out.append(' ');
+        if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+            out.append((long) value);
+        } else {
+            out.append(value);
+        }
+        out.append('\n');
+    }
+
+    private static final class Family {
+        final String name;
+        final String help;
+        final String type;
+        final Map<String, Series> series = new ConcurrentHashMap<>();
+
+        Family(String name, String help, String type) {
+            this.name = name;
+            this.help = help;
+            this.type = type;
+        }
+    }
+
+    private abstract static class Series {
+        abstract void write(StringBuilder out, String name, String labels);
+    }
+
+    /**
+     * Latency histogram, exported as cumulative Prometheus buckets with sum and count.
+     */
+    public static final class Timer extends Series {
+        private final Recorder recorder = new Recorder(HIGHEST_MICROS, SIGNIFICANT_DIGITS);
+        // everything recorded so far; only touched under the lock, by scrapes
+        private final Histogram total = new Histogram(HIGHEST_MICROS, SIGNIFICANT_DIGITS);
+        private final LongAdder sumNanos = new LongAdder();
+        private Histogram interval;
+
+        public void record(long nanos) {
+            long value = Math.max(0, nanos);
+            recorder.recordValue(Math.min(TimeUnit.NANOSECONDS.toMicros(value), HIGHEST_MICROS));
+            sumNanos.add(value);
+        }
+
+        public void recordSince(long startNanos) {
+            record(System.nanoTime() - startNanos);
+        }
+
+        synchronized long count() {
+            return merge().getTotalCount();
+        }
+
+        /**
+         * Value at {@code percentile} (0-100) of everything recorded, in seconds.
+         */
+        synchronized double percentile(double percentile) {
+            return merge().getValueAtPercentile(percentile) / 1e6;
+        }
+
+        @Override
+        synchronized void write(StringBuilder out, String name, String labels) {
+            Histogram histogram = merge();
+            for (int i = 0; i < BUCKETS.length; i++) {
+                long count = histogram.getCountBetweenValues(0, (long) (BUCKETS[i] * 1e6));
+                sample(out, name + "_bucket", labels, BUCKET_LABELS[i], count);
+            }
+            sample(out, name + "_bucket", labels, "le=\"+Inf\"", histogram.getTotalCount());
+            sample(out, name + "_sum", labels, null, sumNanos.sum() / 1e9);
+            sample(out, name + "_count", labels, null, histogram.getTotalCount());
+        }
+
+        private Histogram merge() {
+            interval = recorder.getIntervalHistogram(interval);
+            total.add(interval);
+            return total;
+        }
+    }
+
+    public static final class Counter extends Series {
+        private final LongAdder count = new LongAdder();
+
+        public void increment() {
+            count.increment();
+        }
+
+        public void add(long delta) {
+            count.add(delta);
+        }
+
+        long count() {
+            return count.sum();
+        }
+
+        @Override
+        void write(StringBuilder out, String name, String labels) {
+            sample(out, name, labels, null, count.sum());
+        }
+    }
+
+    private static final class Gauge extends Series {
+        private final DoubleSupplier value;
+
+        Gauge(DoubleSupplier value) {
+            this.value = value;
+        }
+
+        @Override
+        void write(StringBuilder out, String name, String labels) {
+            sample(out, name, labels, null, value.getAsDouble());
+        }
+    }
+}
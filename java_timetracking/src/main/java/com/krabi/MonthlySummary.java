@@ -0,0 +1,23 @@
+package com.krabi;
+
+import java.util.Map;
+
+public class MonthlySummary {
+    private final String month;
+    private final int totalHours;
+    private final int taskCount;
+    private final Map<String, Integer> projects;
+
+    public MonthlySummary(String month, int totalHours, int taskCount, Map<String, Integer> projects) {
+        this.month = month;
+        this.totalHours = totalHours;
+        this.taskCount = taskCount;
+        this.projects = projects;
+    }
+
+    public String getMonth() { return month; }
+    public int getTotalHours() { return totalHours; }
+    public int getTaskCount() { return taskCount; }
+    // hours per project
+    public Map<String, Integer> getProjects() { return projects; }
+}
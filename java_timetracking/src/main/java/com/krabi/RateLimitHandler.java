@@ -0,0 +1,56 @@
+package com.krabi;
+
+import io.vertx.core.Handler;
+import io.vertx.core.http.HttpMethod;
+import io.vertx.core.http.HttpServerResponse;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.web.RoutingContext;
+
+/**
+ * Charges each authenticated request to its user's read or write budget and answers 429 with
+ * {@code Retry-After} once the budget is spent, so one client cannot use up the table's
+ * capacity for everyone else. Goes after authentication; requests without a user pass.
+ *
+ * <p>Every answer carries the {@value #LIMIT_HEADER}, {@value #REMAINING_HEADER} and
+ * {@value #RESET_HEADER} headers of the IETF RateLimit header fields draft. Either limiter may
+ * be null to leave that kind of request unlimited.
+ */
+class RateLimitHandler implements Handler<RoutingContext> {
+
+    static final String LIMIT_HEADER = "RateLimit-Limit";
+    static final String REMAINING_HEADER = "RateLimit-Remaining";
+    static final String RESET_HEADER = "RateLimit-Reset";
+
+    private final RateLimiter reads;
+    private final RateLimiter writes;
+
+    RateLimitHandler(RateLimiter reads, RateLimiter writes) {
+        this.reads = reads;
+        this.writes = writes;
+    }
+
+    @Override
+    public void handle(RoutingContext ctx) {
+        HttpMethod method = ctx.request().method();
+        RateLimiter limiter = (method == HttpMethod.GET || method == HttpMethod.HEAD) ? reads : writes;
+        JsonObject user = ctx.get(MainVerticle.USER);
+        String username = (user != null) ? user.getString(AuthMiddleware.USERNAME) : null;
+        if (limiter == null || username == null) {
+            ctx.next();
+            return;
+        }
+        RateLimiter.Decision decision = limiter.tryAcquire(username);
+        HttpServerResponse response = ctx.response()
+                .putHeader(LIMIT_HEADER, String.valueOf(decision.limit()))
+                .putHeader(REMAINING_HEADER, String.valueOf(decision.remaining()))
+                .putHeader(RESET_HEADER, String.valueOf(decision.resetSeconds()));
+        if (decision.allowed()) {
+            ctx.next();
+            return;
+        }
+        response.setStatusCode(429)
+                .putHeader("content-type", "application/json")
+                .putHeader("Retry-After", String.valueOf(decision.retryAfterSeconds()))
+                .end(new JsonObject().put("error", "Too many " + limiter.name() + " requests").encode());
+    }
+}
@@ -0,0 +1,115 @@
+package com.krabi;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.google.common.base.Ticker;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+import io.vertx.core.shareddata.Shareable;
+
+/**
+ * Per-user token buckets: each user may send {@code burst} requests at once and then
+ * {@code ratePerSecond} on average. A bucket is a single {@link AtomicLong} holding the time at
+ * which it will be full again (the generic cell rate algorithm), so taking a token is one
+ * compare-and-set and callers never block each other.
+ *
+ * <p>A bucket that has been idle long enough to refill is no different from a new one, so
+ * buckets expire after that long without use and at most {@code maxUsers} are kept. Implements
+ * {@link Shareable} so all verticle instances count against the same buckets.
+ */
+public class RateLimiter implements Shareable {
+
+    private final String name;
+    private final int burst;
+    // time one token takes to refill
+    private final long intervalNanos;
+    // a bucket may run this far behind before it is empty
+    private final long capacityNanos;
+    private final Cache<String, AtomicLong> buckets;
+    private final Ticker ticker;
+    private final LongAdder rejected = new LongAdder();
+
+    public RateLimiter(String name, double ratePerSecond, int burst, long maxUsers) {
+        this(name, ratePerSecond, burst, maxUsers, Ticker.systemTicker());
+    }
+
+    RateLimiter(String name, double ratePerSecond, int burst, long maxUsers, Ticker ticker) {
+        if (ratePerSecond <= 0 || burst < 1 || maxUsers < 1) {
+            throw new IllegalArgumentException("Rate, burst and user count must be positive");
+        }
+        this.name = name;
+        this.burst = burst;
+        this.intervalNanos = Math.max(1, (long) (TimeUnit.SECONDS.toNanos(1) / ratePerSecond));
+        this.capacityNanos = intervalNanos * burst;
+        this.buckets = CacheBuilder.newBuilder()
+                .maximumSize(maxUsers)
+                .expireAfterAccess(capacityNanos, TimeUnit.NANOSECONDS)
+                .ticker(ticker)
+                .build();
+        this.ticker = ticker;
+    }
+
+    /**
+     * Takes one token from the user's bucket if it has any left.
+     */
+    public Decision tryAcquire(String user) {
+        AtomicLong bucket;
+        try {
+            bucket = buckets.get(user, () -> new AtomicLong(Long.MIN_VALUE));
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e);
+        }
+        while (true) {
+            long now = ticker.read();
+            long fullAt = bucket.get();
+            long next = Math.max(fullAt, now) + intervalNanos;
+            long debt = next - now;
+            if (debt > capacityNanos) {
+                rejected.increment();
+                // the next token is there once the debt is back down to capacity
+                return new Decision(false, burst, 0, seconds(debt), seconds(debt - capacityNanos));
+            }
+            if (bucket.compareAndSet(fullAt, next)) {
+                int remaining = (int) ((capacityNanos - debt) / intervalNanos);
+                return new Decision(true, burst, remaining, seconds(debt), 0);
+            }
+        }
+    }
+
+    public String name() {
+        return name;
+    }
+
+    public int burst() {
+        return burst;
+    }
+
+    public long users() {
+        // drop expired buckets first, the cache only does that as a side effect of writes
+        buckets.cleanUp();
+        return buckets.size();
+    }
+
+    public long rejected() {
+        return rejected.sum();
+    }
+
+    private static long seconds(long nanos) {
+        return Math.max(1, (nanos + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1));
+    }
+
+    /**
+     * Outcome of one {@link #tryAcquire}.
+     *
+     * @param limit             tokens a full bucket holds
+     * @param remaining         tokens left after this request
+     * @param resetSeconds      seconds until the bucket is full again
+     * @param retryAfterSeconds seconds until the next token, 0 when the request was allowed
+     */
+    public record Decision(boolean allowed, int limit, int remaining, long resetSeconds, long retryAfterSeconds) {
+    }
+}
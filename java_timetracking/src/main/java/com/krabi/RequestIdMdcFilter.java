@@ -0,0 +1,48 @@
+package com.krabi;
+
+import org.slf4j.MDC;
+import org.slf4j.Marker;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.turbo.TurboFilter;
+import ch.qos.logback.core.spi.FilterReply;
+
+import io.vertx.core.spi.context.storage.ContextLocal;
+
+/**
+ * Puts the id of the request being handled into the MDC under {@value AccessLogHandler#REQUEST_ID},
+ * so a line logged on its behalf, a DynamoDB error or a failed token check, can be matched to
+ * its access log entry. A request's callbacks take turns with other requests' on the same
+ * threads, so the MDC cannot be set once per request; logback calls this filter on the
+ * logging thread just before it creates an event, and the MDC is set from the current Vert.x
+ * context there. The async appenders copy it when they queue the event.
+ *
+ * <p>Registered in logback.xml. Never filters anything out.
+ */
+public class RequestIdMdcFilter extends TurboFilter {
+
+    /**
+     * The id of the request a Vert.x context handles, set by {@link AccessLogHandler}. A Vertx
+     * instance only makes room for the locals registered before it was created. Logback creates
+     * this filter when the first logger is obtained, and both {@link MainVerticle} and Vert.x
+     * itself obtain one before any Vertx instance exists.
+     */
+    static final ContextLocal<String> REQUEST_ID_LOCAL = ContextLocal.registerLocal(String.class);
+
+    @Override
+    public FilterReply decide(Marker marker, Logger logger, Level level, String format, Object[] params, Throwable t) {
+        // isDebugEnabled() and friends come through here too, skip what is not logged anyway
+        if (level != null && level.isGreaterOrEqual(logger.getEffectiveLevel())) {
+            String requestId = AccessLogHandler.currentRequestId();
+            if (requestId == null) {
+                if (MDC.get(AccessLogHandler.REQUEST_ID) != null) {
+                    MDC.remove(AccessLogHandler.REQUEST_ID);
+                }
+            } else if (!requestId.equals(MDC.get(AccessLogHandler.REQUEST_ID))) {
+                MDC.put(AccessLogHandler.REQUEST_ID, requestId);
+            }
+        }
+        return FilterReply.NEUTRAL;
+    }
+}
@@ -0,0 +1,66 @@
+package com.krabi;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import io.vertx.core.Handler;
+import io.vertx.core.http.HttpMethod;
+import io.vertx.ext.web.Route;
+import io.vertx.ext.web.RoutingContext;
+
+/**
+ * Times every request from arrival until its response is sent, by method, route and status.
+ * The route label is the template ({@code /api/tasks/:id}), not the path, so ids never turn
+ * into series; requests no route answered are labelled {@value #UNMATCHED}.
+ *
+ * <p>Install it first on the router whose routes should be told apart. Timers are looked up
+ * by route, method and status without building a key, so a request allocates nothing here
+ * beyond its end handler.
+ */
+class RequestMetricsHandler implements Handler<RoutingContext> {
+
+    static final String NAME = "http_server_requests_seconds";
+    static final String UNMATCHED = "unmatched";
+    private static final String HELP = "Time from request to response, by method, route and status";
+    private static final int MAX_STATUS = 600;
+
+    private final Metrics metrics;
+    private final String mountPoint;
+    private final Map<Route, Map<HttpMethod, Metrics.Timer[]>> timers = new ConcurrentHashMap<>();
+    private final Map<HttpMethod, Metrics.Timer[]> unmatched = new ConcurrentHashMap<>();
+
+    /**
+     * @param mountPoint prefix the router is mounted under, prepended to route paths
+     */
+    RequestMetricsHandler(Metrics metrics, String mountPoint) {
+        this.metrics = metrics;
+        this.mountPoint = mountPoint;
+    }
+
+    @Override
+    public void handle(RoutingContext ctx) {
+        long start = System.nanoTime();
+        ctx.addEndHandler(ar -> timer(ctx.currentRoute(), ctx.request().method(), ctx.response().getStatusCode())
+                .recordSince(start));
+        ctx.next();
+    }
+
+    Metrics.Timer timer(Route route, HttpMethod method, int status) {
+        // routes without a path are handlers for everything, such as this one or the body handler
+        String path = route != null ? route.getPath() : null;
+        Map<HttpMethod, Metrics.Timer[]> byMethod = path != null
+                ? timers.computeIfAbsent(route, k -> new ConcurrentHashMap<>())
+                : unmatched;
+        Metrics.Timer[] byStatus = byMethod.computeIfAbsent(method, k -> new Metrics.Timer[MAX_STATUS]);
+        int index = status > 0 && status < MAX_STATUS ? status : 0;
+        Metrics.Timer timer = byStatus[index];
+        if (timer == null) {
+            // a racing request may do the same, the registry hands both the same timer
+            timer = metrics.timer(NAME, HELP, "method", method.name(),
+                    "route", path != null ? mountPoint + path : UNMATCHED,
+                    "status", index > 0 ? Integer.toString(status) : "other");
+            byStatus[index] = timer;
+        }
+        return timer;
+    }
+}
@@ -0,0 +1,58 @@
+package com.krabi;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import org.slf4j.Logger;
+
+import io.vertx.core.Context;
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import software.amazon.awssdk.services.dynamodb.model.DynamoDbException;
+
+/**
+ * Bridges AWS SDK async results into Vert.x futures.
+ */
+final class SdkFutures {
+
+    private SdkFutures() {
+    }
+
+    /**
+     * When called from a Vert.x context the completion is dispatched back onto that context,
+     * so route handlers keep running on their own event loop rather than on the SDK's Netty
+     * threads.
+     */
+    static <T> Future<T> toFuture(CompletableFuture<T> completableFuture) {
+        Context context = Vertx.currentContext();
+        return context != null
+                ? Future.fromCompletionStage(completableFuture, context)
+                : Future.fromCompletionStage(completableFuture);
+    }
+
+    static Throwable unwrap(Throwable failure) {
+        return failure instanceof CompletionException && failure.getCause() != null
+                ? failure.getCause()
+                : failure;
+    }
+
+    /**
+     * Logs the details of a DynamoDB error and fails with its message, to be used in
+     * {@code recover}. Other failures are passed on unwrapped.
+     */
+    static <T> Future<T> logDynamoDbError(Logger logger, Throwable failure) {
+        Throwable cause = unwrap(failure);
+        if (!(cause instanceof DynamoDbException e)) {
+            return Future.failedFuture(cause);
+        }
+        // THIS IS THE CRUCIAL PART FOR DEBUGGING
+        logger.error("----------- DYNAMODB ERROR -----------");
+        logger.error("Error Message: {}", e.awsErrorDetails().errorMessage());
+        logger.error("AWS Error Code: {}", e.awsErrorDetails().errorCode());
+        logger.error("SDK Error Message: {}", e.getMessage());
+        logger.error("Request ID: {}", e.requestId());
+        logger.error("Status Code: {}", e.statusCode());
+        logger.error("------------------------------------");
+        return Future.failedFuture(new RuntimeException(e.awsErrorDetails().errorMessage()));
+    }
+}
@@ -0,0 +1,260 @@
+package com.krabi;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import io.vertx.core.Future;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import software.amazon.awssdk.services.dynamodb.DynamoDbAsyncClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.QueryRequest;
+import software.amazon.awssdk.services.dynamodb.model.UpdateItemRequest;
+
+/**
+ * Maintains per-user, per-month, per-project hour counters in the TaskSummaries table so a
+ * monthly summary costs one Query over the month's projects instead of reading every task.
+ * Counters are adjusted with atomic ADD updates whenever a task is written or deleted.
+ *
+ * <p>Tasks written before the counters existed were never added, so a month's counters are
+ * only trusted once they have been rebuilt from its tasks; a marker row under
+ * {@link #REBUILT} records that. The first summary of a month without one rebuilds it.
+ */
+public class SummaryService {
+
+    private static final Logger logger = LoggerFactory.getLogger(SummaryService.class);
+    // sort key of the marker row, no project can be named like this
+    static final String REBUILT = "\u0000rebuilt";
+    private final DynamoDbAsyncClient dynamoDbClient;
+    private final String tableName = "TaskSummaries";
+
+    public SummaryService(DynamoDbAsyncClient dynamoDbClient) {
+        this.dynamoDbClient = dynamoDbClient;
+    }
+
+    /**
+     * Applies the difference between the previous and the new state of one task. Either side
+     * may be null for a create or a delete.
+     */
+    public Future<Void> recordChange(Task oldTask, Task newTask) {
+        if (oldTask != null && newTask != null && sameCounter(oldTask, newTask)) {
+            int delta = newTask.getHours() - oldTask.getHours();
+            return delta == 0 ? Future.succeededFuture() : add(newTask, delta, 0);
+        }
+        List<Future<Void>> updates = new ArrayList<>();
+        if (oldTask != null) {
+            updates.add(add(oldTask, -oldTask.getHours(), -1));
+        }
+        if (newTask != null) {
+            updates.add(add(newTask, newTask.getHours(), 1));
+        }
+        return Future.all(updates).mapEmpty();
+    }
+
+    /**
+     * Returns the month's summary from its counters as they are, rebuilt or not.
+     */
+    public Future<MonthlySummary> getSummary(String username, String month) {
+        return queryCounters(username, month, null, new ArrayList<>()).map(items -> toSummary(month, items));
+    }
+
+    /**
+     * Returns the month's summary from its counters, first rebuilding them from
+     * {@code storedTasks} when that has never been done for the month.
+     */
+    public Future<MonthlySummary> getSummary(String username, String month, Supplier<Future<List<Task>>> storedTasks) {
+        return queryCounters(username, month, null, new ArrayList<>()).compose(items -> {
+            if (items.stream().anyMatch(SummaryService::isMarker)) {
+                return Future.succeededFuture(toSummary(month, items));
+            }
+            return storedTasks.get().compose(tasks -> rebuild(username, month, items, tasks));
+        });
+    }
+
+    /**
+     * Overwrites the month's counters with the totals of {@code tasks}, all of the user's tasks
+     * in the month as stored, and returns the resulting summary. A task write racing with the
+     * rebuild may be counted twice or not at all; rebuilding again repairs that.
+     */
+    public Future<MonthlySummary> rebuild(String username, String month, List<Task> tasks) {
+        return queryCounters(username, month, null, new ArrayList<>())
+                .compose(items -> rebuild(username, month, items, tasks));
+    }
+
+    private Future<MonthlySummary> rebuild(String username, String month, List<Map<String, AttributeValue>> items,
+            List<Task> tasks) {
+        MonthlySummary summary = summarize(month, tasks);
+        Map<String, Integer> counts = new HashMap<>();
+        for (Task task : tasks) {
+            counts.merge(task.getProject(), 1, Integer::sum);
+        }
+        List<Future<Void>> writes = new ArrayList<>();
+        summary.getProjects().forEach((project, hours) ->
+                writes.add(set(username, month, project, hours, counts.get(project))));
+        for (Map<String, AttributeValue> item : items) {
+            String project = item.get("project").s();
+            if (!isMarker(item) && !summary.getProjects().containsKey(project)) {
+                writes.add(set(username, month, project, 0, 0));
+            }
+        }
+        // the marker goes last, a rebuild that failed halfway is done again next time
+        return Future.all(writes)
+                .compose(v -> set(username, month, REBUILT, 0, 0))
+                .onSuccess(v -> logger.info("Rebuilt summary counters of {} for {}", username, month))
+                .map(summary);
+    }
+
+    private static MonthlySummary toSummary(String month, List<Map<String, AttributeValue>> items) {
+        Map<String, Integer> projects = new TreeMap<>();
+        int totalHours = 0;
+        int taskCount = 0;
+        for (Map<String, AttributeValue> item : items) {
+            if (isMarker(item)) {
+                continue;
+            }
+            int count = Integer.parseInt(item.get("taskCount").n());
+            int hours = Integer.parseInt(item.get("hours").n());
+            if (count == 0 && hours == 0) {
+                continue; // every task of this project was deleted or moved
+            }
+            // anything else is shown as stored, drift included, so checkConsistency sees it
+            projects.put(item.get("project").s(), hours);
+            totalHours += hours;
+            taskCount += count;
+        }
+        return new MonthlySummary(month, totalHours, taskCount, projects);
+    }
+
+    private static boolean isMarker(Map<String, AttributeValue> item) {
+        return REBUILT.equals(item.get("project").s());
+    }
+
+    private Future<List<Map<String, AttributeValue>>> queryCounters(String username, String month,
+            Map<String, AttributeValue> startKey, List<Map<String, AttributeValue>> items) {
+        Map<String, AttributeValue> expressionAttributeValues = new HashMap<>();
+        expressionAttributeValues.put(":userMonth", AttributeValue.builder().s(counterKey(username, month)).build());
+        QueryRequest request = QueryRequest.builder()
+                .tableName(tableName)
+                .keyConditionExpression("userMonth = :userMonth")
+                .expressionAttributeValues(expressionAttributeValues)
+                .exclusiveStartKey(startKey)
+                .build();
+        return SdkFutures.toFuture(dynamoDbClient.query(request))
+                .recover(err -> SdkFutures.logDynamoDbError(logger, err))
+                .compose(response -> {
+                    items.addAll(response.items());
+                    if (response.hasLastEvaluatedKey() && !response.lastEvaluatedKey().isEmpty()) {
+                        return queryCounters(username, month, response.lastEvaluatedKey(), items);
+                    }
+                    return Future.succeededFuture(items);
+                });
+    }
+
+    /**
+     * Recomputes the month from raw {@code tasks} and compares it with the stored counters.
+     * The result lists every project whose counters drifted; an empty drift array means the
+     * aggregates are consistent.
+     */
+    public Future<JsonObject> checkConsistency(String username, String month, List<Task> tasks) {
+        MonthlySummary expected = summarize(month, tasks);
+        return getSummary(username, month).map(actual -> {
+            JsonArray drift = new JsonArray();
+            Set<String> projects = new TreeSet<>(expected.getProjects().keySet());
+            projects.addAll(actual.getProjects().keySet());
+            for (String project : projects) {
+                int expectedHours = expected.getProjects().getOrDefault(project, 0);
+                int actualHours = actual.getProjects().getOrDefault(project, 0);
+                if (expectedHours != actualHours) {
+                    drift.add(new JsonObject()
+                            .put("project", project)
+                            .put("expectedHours", expectedHours)
+                            .put("storedHours", actualHours));
+                }
+            }
+            if (expected.getTaskCount() != actual.getTaskCount() && drift.isEmpty()) {
+                drift.add(new JsonObject()
+                        .put("expectedTaskCount", expected.getTaskCount())
+                        .put("storedTaskCount", actual.getTaskCount()));
+            }
+            if (!drift.isEmpty()) {
+                logger.warn("Summary drift for {} in {}: {}", username, month, drift.encode());
+            }
+            return new JsonObject()
+                    .put("month", month)
+                    .put("consistent", drift.isEmpty())
+                    .put("drift", drift);
+        });
+    }
+
+    static MonthlySummary summarize(String month, List<Task> tasks) {
+        Map<String, Integer> projects = new TreeMap<>();
+        int totalHours = 0;
+        for (Task task : tasks) {
+            projects.merge(task.getProject(), task.getHours(), Integer::sum);
+            totalHours += task.getHours();
+        }
+        return new MonthlySummary(month, totalHours, tasks.size(), projects);
+    }
+
+    private Future<Void> add(Task task, int hours, int count) {
+        String month = month(task);
+        if (task.getUsername() == null || month == null || task.getProject() == null) {
+            return Future.succeededFuture();
+        }
+        Map<String, AttributeValue> key = new HashMap<>();
+        key.put("userMonth", AttributeValue.builder().s(counterKey(task.getUsername(), month)).build());
+        key.put("project", AttributeValue.builder().s(task.getProject()).build());
+        Map<String, AttributeValue> expressionAttributeValues = new HashMap<>();
+        expressionAttributeValues.put(":hours", AttributeValue.builder().n(Integer.toString(hours)).build());
+        expressionAttributeValues.put(":count", AttributeValue.builder().n(Integer.toString(count)).build());
+        UpdateItemRequest request = UpdateItemRequest.builder()
+                .tableName(tableName)
+                .key(key)
+                .updateExpression("ADD hours :hours, taskCount :count")
+                .expressionAttributeValues(expressionAttributeValues)
+                .build();
+        return SdkFutures.toFuture(dynamoDbClient.updateItem(request)).mapEmpty();
+    }
+
+    private Future<Void> set(String username, String month, String project, int hours, int count) {
+        Map<String, AttributeValue> key = new HashMap<>();
+        key.put("userMonth", AttributeValue.builder().s(counterKey(username, month)).build());
+        key.put("project", AttributeValue.builder().s(project).build());
+        Map<String, AttributeValue> expressionAttributeValues = new HashMap<>();
+        expressionAttributeValues.put(":hours", AttributeValue.builder().n(Integer.toString(hours)).build());
+        expressionAttributeValues.put(":count", AttributeValue.builder().n(Integer.toString(count)).build());
+        UpdateItemRequest request = UpdateItemRequest.builder()
+                .tableName(tableName)
+                .key(key)
+                .updateExpression("SET hours = :hours, taskCount = :count")
+                .expressionAttributeValues(expressionAttributeValues)
+                .build();
+        return SdkFutures.toFuture(dynamoDbClient.updateItem(request))
+                .recover(err -> SdkFutures.logDynamoDbError(logger, err))
+                .mapEmpty();
+    }
+
+    private static boolean sameCounter(Task a, Task b) {
+        return Objects.equals(a.getUsername(), b.getUsername())
+                && Objects.equals(month(a), month(b))
+                && Objects.equals(a.getProject(), b.getProject());
+    }
+
+    private static String month(Task task) {
+        return task.getDate() != null && task.getDate().length() >= 7 ? task.getDate().substring(0, 7) : null;
+    }
+
+    private static String counterKey(String username, String month) {
+        return username + "#" + month;
+    }
+}
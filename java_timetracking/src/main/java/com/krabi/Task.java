@@ -7,6 +7,8 @@ public class Task {
     private int hours;
     private String task;
     private String username;
+    // bumped by every update, clients send it back for optimistic concurrency
+    private long version;
 
     public Task() {}
     public Task(String date, String project, int hours, String task, String username) {
@@ -39,4 +41,6 @@ public class Task {
     public void setTask(String task) { this.task = task; }
     public String getUsername() { return username; }
     public void setUsername(String username) { this.username = username; }
+    public long getVersion() { return version; }
+    public void setVersion(long version) { this.version = version; }
 } 
\ No newline at end of file
@@ -0,0 +1,229 @@
+package com.krabi;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.google.common.base.Ticker;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+import io.vertx.core.shareddata.Shareable;
+
+/**
+ * Size- and TTL-capped cache of task reads: each user's task lists, keyed by the filter they
+ * were read with, and single tasks by id. Writes go through {@link #written} and
+ * {@link #deleted}, which replace or drop the affected entries on every verticle instance at
+ * once. Implements {@link Shareable} so one cache serves them all.
+ *
+ * <p>A read that misses takes a {@link #readStamp} before querying DynamoDB and hands it back
+ * when storing the result; if a write to the same user or task happened in between the result
+ * is discarded instead of caching data the write already replaced.
+ *
+ * <p>The seq of each user's latest write is kept for {@value #SEQ_TTL_MILLIS} ms, so list
+ * ETags are not read from DynamoDB on every request. Writes through this process drop it
+ * at once, so only writes made by other processes can go unseen for that long.
+ */
+public class TaskCache implements Shareable {
+
+    // distinct filters kept per user before that user's lists are dropped
+    private static final int MAX_FILTERS_PER_USER = 16;
+    static final long SEQ_TTL_MILLIS = 1000;
+
+    private final Cache<String, Map<TaskFilter, List<Task>>> lists;
+    private final Cache<Long, Task> tasks;
+    // last write per user name or task id; a missing stamp is recreated larger than any before
+    private final Cache<Object, Long> stamps;
+    // latest DynamoDB seq seen per user, see seenSeq
+    private final Cache<String, Long> seqs;
+    // the same, only while recent enough to stand in for reading it again
+    private final Cache<String, Long> freshSeqs;
+    private final AtomicLong clock = new AtomicLong();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public TaskCache(long maximumSize, long ttlMillis) {
+        this(maximumSize, ttlMillis, Ticker.systemTicker());
+    }
+
+    TaskCache(long maximumSize, long ttlMillis, Ticker ticker) {
+        this.lists = CacheBuilder.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(ttlMillis, TimeUnit.MILLISECONDS)
+                .ticker(ticker)
+                .<String, Map<TaskFilter, List<Task>>>removalListener(n -> countEviction(n.wasEvicted()))
+                .build();
+        this.tasks = CacheBuilder.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(ttlMillis, TimeUnit.MILLISECONDS)
+                .ticker(ticker)
+                .<Long, Task>removalListener(n -> countEviction(n.wasEvicted()))
+                .build();
+        this.stamps = CacheBuilder.newBuilder()
+                .maximumSize(maximumSize * 2)
+                .expireAfterWrite(ttlMillis, TimeUnit.MILLISECONDS)
+                .ticker(ticker)
+                .build();
+        this.seqs = CacheBuilder.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(ttlMillis, TimeUnit.MILLISECONDS)
+                .ticker(ticker)
+                .build();
+        this.freshSeqs = CacheBuilder.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(Math.min(ttlMillis, SEQ_TTL_MILLIS), TimeUnit.MILLISECONDS)
+                .ticker(ticker)
+                .build();
+    }
+
+    /**
+     * Returns the user's tasks matching {@code filter}, or null on a miss. A cached full list
+     * answers any filter. The list is shared and must not be modified.
+     */
+    public List<Task> getTasks(String username, TaskFilter filter) {
+        Map<TaskFilter, List<Task>> byFilter = lists.getIfPresent(username);
+        List<Task> cached = null;
+        if (byFilter != null) {
+            cached = byFilter.get(filter);
+            if (cached == null && byFilter.containsKey(TaskFilter.NONE)) {
+                cached = byFilter.get(TaskFilter.NONE).stream().filter(filter::matches).toList();
+            }
+        }
+        record(cached != null);
+        return cached;
+    }
+
+    public synchronized void putTasks(String username, TaskFilter filter, long readStamp, List<Task> userTasks) {
+        if (readStamp != stamp(username)) {
+            return;
+        }
+        Map<TaskFilter, List<Task>> byFilter = lists.asMap().computeIfAbsent(username, k -> new ConcurrentHashMap<>());
+        if (byFilter.size() >= MAX_FILTERS_PER_USER) {
+            byFilter.clear();
+        }
+        byFilter.put(filter, List.copyOf(userTasks));
+    }
+
+    /**
+     * Returns the task with {@code id}, or null on a miss.
+     */
+    public Task getTask(long id) {
+        Task cached = tasks.getIfPresent(id);
+        record(cached != null);
+        return cached;
+    }
+
+    public synchronized void putTask(long id, long readStamp, Task task) {
+        if (readStamp == stamp(id)) {
+            tasks.put(id, task);
+        }
+    }
+
+    /**
+     * Takes the stamp a later {@link #putTasks} or {@link #putTask} for the same user name or
+     * task id is checked against.
+     */
+    public synchronized long readStamp(Object key) {
+        return stamp(key);
+    }
+
+    /**
+     * The user's latest write in DynamoDB has {@code seq}. A seq newer than the last one seen,
+     * or the first one seen, may come from another process's write, so the user's lists are
+     * dropped.
+     */
+    public synchronized void seenSeq(String username, long seq) {
+        Long known = seqs.getIfPresent(username);
+        if (known == null || seq > known) {
+            invalidateUser(username);
+            seqs.put(username, seq);
+        }
+        freshSeqs.put(username, Math.max(seq, known != null ? known : 0));
+    }
+
+    /**
+     * Returns the user's latest seq if it was seen within {@value #SEQ_TTL_MILLIS} ms and the
+     * user has not written through this process since, otherwise null.
+     */
+    public Long freshSeq(String username) {
+        return freshSeqs.getIfPresent(username);
+    }
+
+    /**
+     * A task was stored, replacing {@code oldTask} if there was one.
+     */
+    public synchronized void written(Task oldTask, Task task) {
+        if (oldTask != null) {
+            invalidateUser(oldTask.getUsername());
+        }
+        invalidateUser(task.getUsername());
+        stamps.put(task.getId(), clock.incrementAndGet());
+        tasks.put(task.getId(), task);
+    }
+
+    /**
+     * Drops the task and its user's lists, for deletes and for writes whose outcome is unknown.
+     * {@code username} may be null when the owner is not known.
+     */
+    public synchronized void deleted(long id, String username) {
+        invalidateUser(username);
+        stamps.put(id, clock.incrementAndGet());
+        tasks.invalidate(id);
+    }
+
+    public long hits() {
+        return hits.sum();
+    }
+
+    public long misses() {
+        return misses.sum();
+    }
+
+    public long evictions() {
+        // Guava drops expired entries lazily, settle them before reporting
+        lists.cleanUp();
+        tasks.cleanUp();
+        return evictions.sum();
+    }
+
+    public double hitRatio() {
+        long h = hits.sum();
+        long total = h + misses.sum();
+        return total == 0 ? 0.0 : (double) h / total;
+    }
+
+    public long size() {
+        return lists.size() + tasks.size();
+    }
+
+    private void invalidateUser(String username) {
+        if (username == null) {
+            return;
+        }
+        stamps.put(username, clock.incrementAndGet());
+        lists.invalidate(username);
+        freshSeqs.invalidate(username);
+    }
+
+    private long stamp(Object key) {
+        return stamps.asMap().computeIfAbsent(key, k -> clock.incrementAndGet());
+    }
+
+    private void record(boolean hit) {
+        if (hit) {
+            hits.increment();
+        } else {
+            misses.increment();
+        }
+    }
+
+    private void countEviction(boolean evicted) {
+        if (evicted) {
+            evictions.increment();
+        }
+    }
+}
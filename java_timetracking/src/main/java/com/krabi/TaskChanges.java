@@ -0,0 +1,30 @@
+package com.krabi;
+
+import java.util.List;
+
+public class TaskChanges {
+    private final List<Task> changed;
+    private final List<Long> deleted;
+    private final String cursor;
+    private final boolean hasMore;
+    private final boolean reset;
+
+    public TaskChanges(List<Task> changed, List<Long> deleted, String cursor, boolean hasMore, boolean reset) {
+        this.changed = changed;
+        this.deleted = deleted;
+        this.cursor = cursor;
+        this.hasMore = hasMore;
+        this.reset = reset;
+    }
+
+    // tasks created or updated, in the order they were written
+    public List<Task> getChanged() { return changed; }
+    // ids of deleted tasks
+    public List<Long> getDeleted() { return deleted; }
+    // pass as since= on the next call
+    public String getCursor() { return cursor; }
+    // more changes are waiting, call again right away with the cursor
+    public boolean isHasMore() { return hasMore; }
+    // changed holds every task of the user; drop what the client had before applying it
+    public boolean isReset() { return reset; }
+}
@@ -0,0 +1,266 @@
+package com.krabi;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import io.vertx.core.buffer.Buffer;
+
+/**
+ * Writes tasks as JSON straight into a {@link Buffer}, without Jackson's reflection or an
+ * intermediate String. Output is byte for byte what {@code Json.encode} produces for
+ * {@link Task} and {@link TaskPage}, so clients see no difference; {@link TaskChanges} is
+ * written in the same style.
+ */
+final class TaskCodec {
+
+    // field names and punctuation, encoded once
+    private static final byte[] ID = ascii("{\"id\":");
+    private static final byte[] DATE = ascii(",\"date\":");
+    private static final byte[] PROJECT = ascii(",\"project\":");
+    private static final byte[] HOURS = ascii(",\"hours\":");
+    private static final byte[] TASK = ascii(",\"task\":");
+    private static final byte[] USERNAME = ascii(",\"username\":");
+    private static final byte[] VERSION = ascii(",\"version\":");
+    private static final byte[] PAGE_START = ascii("{\"tasks\":[");
+    private static final byte[] PAGE_CURSOR = ascii("],\"nextCursor\":");
+    private static final byte[] CHANGES_START = ascii("{\"changed\":[");
+    private static final byte[] CHANGES_DELETED = ascii("],\"deleted\":[");
+    private static final byte[] CHANGES_CURSOR = ascii("],\"cursor\":");
+    private static final byte[] CHANGES_HAS_MORE = ascii(",\"hasMore\":");
+    private static final byte[] CHANGES_RESET = ascii(",\"reset\":");
+    private static final byte[] NULL = ascii("null");
+    private static final byte[] TRUE = ascii("true");
+    private static final byte[] FALSE = ascii("false");
+    private static final byte[] HEX = ascii("0123456789abcdef");
+    // bytes per task for a typical entry, used to presize buffers
+    static final int ESTIMATED_TASK_SIZE = 128;
+
+    private TaskCodec() {
+    }
+
+    static Buffer encode(Task task) {
+        Buffer buffer = Buffer.buffer(ESTIMATED_TASK_SIZE);
+        Sink sink = new Sink(buffer);
+        sink.task(task);
+        sink.flush();
+        return buffer;
+    }
+
+    static Buffer encode(List<Task> tasks) {
+        Buffer buffer = Buffer.buffer(2 + tasks.size() * ESTIMATED_TASK_SIZE);
+        Sink sink = new Sink(buffer);
+        sink.raw((byte) '[');
+        sink.elements(tasks, true);
+        sink.raw((byte) ']');
+        sink.flush();
+        return buffer;
+    }
+
+    static Buffer encode(TaskPage page) {
+        Buffer buffer = Buffer.buffer(32 + page.getTasks().size() * ESTIMATED_TASK_SIZE);
+        Sink sink = new Sink(buffer);
+        sink.raw(PAGE_START);
+        sink.elements(page.getTasks(), true);
+        sink.raw(PAGE_CURSOR);
+        sink.string(page.getNextCursor());
+        sink.raw((byte) '}');
+        sink.flush();
+        return buffer;
+    }
+
+    static Buffer encode(TaskChanges changes) {
+        Buffer buffer = Buffer.buffer(96 + changes.getChanged().size() * ESTIMATED_TASK_SIZE
+                + changes.getDeleted().size() * 20);
+        Sink sink = new Sink(buffer);
+        sink.raw(CHANGES_START);
+        sink.elements(changes.getChanged(), true);
+        sink.raw(CHANGES_DELETED);
+        boolean first = true;
+        for (long id : changes.getDeleted()) {
+            if (!first) {
+                sink.raw((byte) ',');
+            }
+            sink.number(id);
+            first = false;
+        }
+        sink.raw(CHANGES_CURSOR);
+        sink.string(changes.getCursor());
+        sink.raw(CHANGES_HAS_MORE);
+        sink.raw(changes.isHasMore() ? TRUE : FALSE);
+        sink.raw(CHANGES_RESET);
+        sink.raw(changes.isReset() ? TRUE : FALSE);
+        sink.raw((byte) '}');
+        sink.flush();
+        return buffer;
+    }
+
+    /**
+     * Appends the tasks comma separated, without the enclosing brackets, so consecutive chunks
+     * of one array can be written as they arrive. {@code first} says whether these are the
+     * array's first elements.
+     */
+    static Buffer writeElements(Buffer buffer, List<Task> tasks, boolean first) {
+        Sink sink = new Sink(buffer);
+        sink.elements(tasks, first);
+        sink.flush();
+        return buffer;
+    }
+
+    private static byte[] ascii(String value) {
+        return value.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * Encodes into a small byte array and copies it to the target buffer whenever it fills up,
+     * one bulk append instead of a bounds-checked append per byte.
+     */
+    private static final class Sink {
+
+        private static final int CHUNK_SIZE = 8192;
+        // longest encoding of one char: a surrogate pair as 4 bytes, or an escape as 6
+        private static final int MAX_CHAR_BYTES = 6;
+
+        private final Buffer target;
+        private final byte[] chunk = new byte[CHUNK_SIZE];
+        private int pos;
+
+        Sink(Buffer target) {
+            this.target = target;
+        }
+
+        void elements(List<Task> tasks, boolean first) {
+            for (Task task : tasks) {
+                if (!first) {
+                    raw((byte) ',');
+                }
+                task(task);
+                first = false;
+            }
+        }
+
+        void task(Task task) {
+            raw(ID);
+            number(task.getId());
+            raw(DATE);
+            string(task.getDate());
+            raw(PROJECT);
+            string(task.getProject());
+            raw(HOURS);
+            number(task.getHours());
+            raw(TASK);
+            string(task.getTask());
+            raw(USERNAME);
+            string(task.getUsername());
+            raw(VERSION);
+            number(task.getVersion());
+            raw((byte) '}');
+        }
+
+        void raw(byte b) {
+            ensure(1);
+            chunk[pos++] = b;
+        }
+
+        void raw(byte[] bytes) {
+            ensure(bytes.length);
+            System.arraycopy(bytes, 0, chunk, pos, bytes.length);
+            pos += bytes.length;
+        }
+
+        void number(long value) {
+            if (value == Long.MIN_VALUE) {
+                raw(ascii(Long.toString(value)));
+                return;
+            }
+            ensure(20);
+            if (value < 0) {
+                chunk[pos++] = '-';
+                value = -value;
+            }
+            int end = pos + digits(value);
+            int i = end;
+            do {
+                chunk[--i] = (byte) ('0' + value % 10);
+                value /= 10;
+            } while (value != 0);
+            pos = end;
+        }
+
+        // JSON string with the escapes Jackson uses, non-ASCII written as UTF-8
+        void string(String value) {
+            if (value == null) {
+                raw(NULL);
+                return;
+            }
+            raw((byte) '"');
+            for (int i = 0; i < value.length(); i++) {
+                ensure(MAX_CHAR_BYTES);
+                char c = value.charAt(i);
+                if (c >= 0x20 && c < 0x80 && c != '"' && c != '\\') {
+                    chunk[pos++] = (byte) c;
+                } else if (c == '"' || c == '\\') {
+                    chunk[pos++] = '\\';
+                    chunk[pos++] = (byte) c;
+                } else if (c < 0x20) {
+                    control(c);
+                } else if (c < 0x800) {
+                    chunk[pos++] = (byte) (0xc0 | c >> 6);
+                    chunk[pos++] = (byte) (0x80 | c & 0x3f);
+                } else if (Character.isHighSurrogate(c) && i + 1 < value.length()
+                        && Character.isLowSurrogate(value.charAt(i + 1))) {
+                    int cp = Character.toCodePoint(c, value.charAt(++i));
+                    chunk[pos++] = (byte) (0xf0 | cp >> 18);
+                    chunk[pos++] = (byte) (0x80 | cp >> 12 & 0x3f);
+                    chunk[pos++] = (byte) (0x80 | cp >> 6 & 0x3f);
+                    chunk[pos++] = (byte) (0x80 | cp & 0x3f);
+                } else if (Character.isSurrogate(c)) {
+                    // lone surrogate, not encodable as UTF-8
+                    chunk[pos++] = '?';
+                } else {
+                    chunk[pos++] = (byte) (0xe0 | c >> 12);
+                    chunk[pos++] = (byte) (0x80 | c >> 6 & 0x3f);
+                    chunk[pos++] = (byte) (0x80 | c & 0x3f);
+                }
+            }
+            raw((byte) '"');
+        }
+
+        void flush() {
+            target.appendBytes(chunk, 0, pos);
+            pos = 0;
+        }
+
+        private void control(char c) {
+            chunk[pos++] = '\\';
+            switch (c) {
+                case '\n' -> chunk[pos++] = 'n';
+                case '\r' -> chunk[pos++] = 'r';
+                case '\t' -> chunk[pos++] = 't';
+                case '\b' -> chunk[pos++] = 'b';
+                case '\f' -> chunk[pos++] = 'f';
+                default -> {
+                    chunk[pos++] = 'u';
+                    chunk[pos++] = '0';
+                    chunk[pos++] = '0';
+                    chunk[pos++] = HEX[c >> 4];
+                    chunk[pos++] = HEX[c & 0xf];
+                }
+            }
+        }
+
+        private void ensure(int bytes) {
+            if (pos + bytes > CHUNK_SIZE) {
+                flush();
+            }
+        }
+
+        private static int digits(long value) {
+            int digits = 1;
+            while (value >= 10) {
+                value /= 10;
+                digits++;
+            }
+            return digits;
+        }
+    }
+}
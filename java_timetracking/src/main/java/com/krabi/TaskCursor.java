@@ -0,0 +1,57 @@
+package com.krabi;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
+
+import io.vertx.core.json.DecodeException;
+import io.vertx.core.json.JsonObject;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
+/**
+ * Opaque pagination token for {@code GET /api/tasks?cursor=}. Wraps the DynamoDB
+ * LastEvaluatedKey of a username-date-index query as URL safe base64 JSON.
+ */
+public final class TaskCursor {
+
+    private TaskCursor() {
+    }
+
+    public static String encode(Map<String, AttributeValue> lastEvaluatedKey) {
+        if (lastEvaluatedKey == null || lastEvaluatedKey.isEmpty()) {
+            return null;
+        }
+        JsonObject json = new JsonObject()
+                .put("id", lastEvaluatedKey.get("id").n())
+                .put("username", lastEvaluatedKey.get("username").s())
+                .put("date", lastEvaluatedKey.get("date").s());
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(json.encode().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decodes a cursor issued to {@code username}. Cursors belonging to another user or
+     * that were tampered with are rejected with {@link IllegalArgumentException}.
+     */
+    public static Map<String, AttributeValue> decode(String cursor, String username) {
+        String id;
+        String date;
+        try {
+            JsonObject json = new JsonObject(new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8));
+            id = json.getString("id");
+            date = json.getString("date");
+            if (id == null || date == null || !username.equals(json.getString("username"))) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+            Long.parseLong(id);
+        } catch (IllegalArgumentException | DecodeException | ClassCastException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+        Map<String, AttributeValue> key = new HashMap<>();
+        key.put("id", AttributeValue.builder().n(id).build());
+        key.put("username", AttributeValue.builder().s(username).build());
+        key.put("date", AttributeValue.builder().s(date).build());
+        return key;
+    }
+}
@@ -0,0 +1,178 @@
+package com.krabi;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.eventbus.MessageConsumer;
+import io.vertx.core.http.HttpServerResponse;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.web.RoutingContext;
+
+/**
+ * Keeps Server-Sent Events streams open and pushes the user's task changes down them as they
+ * are written. {@link TaskService} publishes every change on the event bus at
+ * {@link #address} of the task's owner; each verticle instance listens there only while the
+ * user has a stream open on it, so a change reaches all of the user's devices whichever
+ * instance wrote it.
+ *
+ * <p>Each event is {@value #EVENT} with the same JSON as GET /api/tasks/changes, without a
+ * cursor. A stream that connects or reconnects catches up through that endpoint; pushed
+ * changes may repeat ones it already has. An idle stream costs its connection and nothing
+ * else: one timer per instance sends the heartbeat comment that keeps proxies from closing
+ * it, and a client too slow to keep up is disconnected rather than buffered for.
+ *
+ * <p>One instance per verticle, only used from its context.
+ */
+class TaskEventStreams implements Handler<RoutingContext> {
+
+    static final String ADDRESS_PREFIX = "tasks.changes.";
+    static final String EVENT = "tasks";
+    static final int MAX_STREAMS_PER_USER = 16;
+    static final long HEARTBEAT_MILLIS = TimeUnit.SECONDS.toMillis(30);
+    // how long EventSource clients wait before reconnecting
+    private static final long RETRY_MILLIS = TimeUnit.SECONDS.toMillis(5);
+    private static final byte[] EVENT_START = ("event: " + EVENT + "\ndata: ").getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] EVENT_END = "\n\n".getBytes(StandardCharsets.US_ASCII);
+
+    private final Vertx vertx;
+    private final long heartbeatMillis;
+    // written to every stream, Vert.x writes buffers without consuming them
+    private final Buffer open = Buffer.buffer("retry: " + RETRY_MILLIS + "\n\n");
+    private final Buffer heartbeat = Buffer.buffer(":\n\n");
+    private final Map<String, UserStreams> users = new HashMap<>();
+    private final Metrics.Counter opened;
+    private final Metrics.Counter closed;
+    private final Metrics.Counter dropped;
+    private int streams;
+    private long heartbeatTimer = -1;
+
+    TaskEventStreams(Vertx vertx, Metrics metrics) {
+        this(vertx, metrics, HEARTBEAT_MILLIS);
+    }
+
+    TaskEventStreams(Vertx vertx, Metrics metrics, long heartbeatMillis) {
+        this.vertx = vertx;
+        this.heartbeatMillis = heartbeatMillis;
+        this.opened = metrics.counter("event_streams_opened_total", "Task event streams opened");
+        this.closed = metrics.counter("event_streams_closed_total", "Task event streams closed, by either side");
+        this.dropped = metrics.counter("event_streams_dropped_total",
+                "Task event streams cut because the client did not keep up");
+    }
+
+    /**
+     * Event bus address the changes of {@code username}'s tasks are published to.
+     */
+    static String address(String username) {
+        return ADDRESS_PREFIX + username;
+    }
+
+    @Override
+    public void handle(RoutingContext ctx) {
+        JsonObject user = ctx.get(MainVerticle.USER);
+        String username = (user != null) ? user.getString(AuthMiddleware.USERNAME) : null;
+        if (username == null) {
+            ctx.fail(401);
+            return;
+        }
+        UserStreams userStreams = users.get(username);
+        if (userStreams != null && userStreams.responses.size() >= MAX_STREAMS_PER_USER) {
+            ctx.response().setStatusCode(429)
+                    .putHeader("content-type", "application/json")
+                    .end(new JsonObject().put("error", "Too many event streams").encode());
+            return;
+        }
+        if (ctx.response().closed()) {
+            // gone while being authenticated, its close handler would never run
+            return;
+        }
+        HttpServerResponse response = ctx.response()
+                .setChunked(true)
+                .putHeader("content-type", "text/event-stream")
+                .putHeader("Cache-Control", "no-cache")
+                // nginx would otherwise hold events back to fill its buffer
+                .putHeader("X-Accel-Buffering", "no");
+        response.write(open);
+        if (userStreams == null) {
+            userStreams = new UserStreams(vertx.eventBus().<String>consumer(address(username),
+                    message -> deliver(username, message.body())));
+            users.put(username, userStreams);
+        }
+        userStreams.responses.add(response);
+        response.closeHandler(v -> remove(username, response));
+        opened.increment();
+        if (streams++ == 0) {
+            heartbeatTimer = vertx.setPeriodic(heartbeatMillis, id -> heartbeat());
+        }
+    }
+
+    int streams() {
+        return streams;
+    }
+
+    private void deliver(String username, String changes) {
+        UserStreams userStreams = users.get(username);
+        if (userStreams == null) {
+            return;
+        }
+        Buffer event = Buffer.buffer(EVENT_START.length + changes.length() + EVENT_END.length)
+                .appendBytes(EVENT_START)
+                .appendString(changes)
+                .appendBytes(EVENT_END);
+        for (HttpServerResponse response : new ArrayList<>(userStreams.responses)) {
+            send(response, event);
+        }
+    }
+
+    private void heartbeat() {
+        List<HttpServerResponse> all = new ArrayList<>(streams);
+        for (UserStreams userStreams : users.values()) {
+            all.addAll(userStreams.responses);
+        }
+        for (HttpServerResponse response : all) {
+            send(response, heartbeat);
+        }
+    }
+
+    private void send(HttpServerResponse response, Buffer buffer) {
+        if (response.writeQueueFull()) {
+            // the client reconnects and catches up, a backlog here would grow without bound
+            dropped.increment();
+            response.reset();
+            return;
+        }
+        response.write(buffer);
+    }
+
+    private void remove(String username, HttpServerResponse response) {
+        UserStreams userStreams = users.get(username);
+        if (userStreams == null || !userStreams.responses.remove(response)) {
+            return;
+        }
+        closed.increment();
+        if (userStreams.responses.isEmpty()) {
+            users.remove(username);
+            userStreams.consumer.unregister();
+        }
+        if (--streams == 0) {
+            vertx.cancelTimer(heartbeatTimer);
+            heartbeatTimer = -1;
+        }
+    }
+
+    private static final class UserStreams {
+        final MessageConsumer<String> consumer;
+        // a user rarely has more than a few devices, a list beats a set here
+        final List<HttpServerResponse> responses = new ArrayList<>(2);
+
+        UserStreams(MessageConsumer<String> consumer) {
+            this.consumer = consumer;
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.krabi;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.format.DateTimeParseException;
+import java.util.Objects;
+
+/**
+ * Optional restrictions for listing a user's tasks. The date bounds are inclusive and
+ * become part of the username-date-index key condition, project is applied as a filter.
+ */
+public class TaskFilter {
+
+    public static final TaskFilter NONE = new TaskFilter(null, null, null);
+
+    private final String from;
+    private final String to;
+    private final String project;
+
+    private TaskFilter(String from, String to, String project) {
+        this.from = from;
+        this.to = to;
+        this.project = project;
+    }
+
+    /**
+     * Builds a filter from request parameters, any of which may be null.
+     *
+     * @throws IllegalArgumentException when a date is not YYYY-MM-DD or from is after to
+     */
+    public static TaskFilter of(String from, String to, String project) {
+        LocalDate fromDate = parseDate("from", from);
+        LocalDate toDate = parseDate("to", to);
+        if (fromDate != null && toDate != null && fromDate.isAfter(toDate)) {
+            throw new IllegalArgumentException("from must not be after to");
+        }
+        if (project != null && project.isEmpty()) {
+            project = null;
+        }
+        return new TaskFilter(from, to, project);
+    }
+
+    /**
+     * Filter covering every day of {@code month} (YYYY-MM).
+     *
+     * @throws IllegalArgumentException when month is not YYYY-MM
+     */
+    public static TaskFilter forMonth(String month) {
+        YearMonth yearMonth;
+        try {
+            yearMonth = YearMonth.parse(month != null ? month : "");
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("month must be in YYYY-MM format");
+        }
+        return new TaskFilter(yearMonth.atDay(1).toString(), yearMonth.atEndOfMonth().toString(), null);
+    }
+
+    private static LocalDate parseDate(String name, String value) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            return LocalDate.parse(value);
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException(name + " must be a date in YYYY-MM-DD format");
+        }
+    }
+
+    /**
+     * Same test DynamoDB applies, for filtering tasks already in memory.
+     */
+    public boolean matches(Task task) {
+        String date = task.getDate();
+        return (from == null || (date != null && date.compareTo(from) >= 0))
+                && (to == null || (date != null && date.compareTo(to) <= 0))
+                && (project == null || project.equals(task.getProject()));
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof TaskFilter other
+                && Objects.equals(from, other.from)
+                && Objects.equals(to, other.to)
+                && Objects.equals(project, other.project);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(from, to, project);
+    }
+
+    public String getFrom() { return from; }
+    public String getTo() { return to; }
+    public String getProject() { return project; }
+}
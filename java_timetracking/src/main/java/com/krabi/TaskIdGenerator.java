@@ -0,0 +1,77 @@
+package com.krabi;
+
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+import io.vertx.core.shareddata.Shareable;
+
+/**
+ * Snowflake-style task ids: milliseconds since {@link #EPOCH}, then the node id, then a
+ * per-millisecond sequence. Ids are unique as long as every running instance has its own
+ * node id, and they sort by creation time.
+ *
+ * <p>The layout is 40 + 5 + 8 bits, so an id stays below 2^53 and survives the round trip
+ * through a JavaScript number in the browser. That allows 32 nodes and 256 ids per
+ * millisecond per node. When a millisecond's sequence is used up, the generator moves on to
+ * the next millisecond instead of waiting, and it never goes back when the wall clock does.
+ *
+ * <p>Lock free: all verticle instances can share one generator, and its single
+ * {@link AtomicLong} is only ever updated with compare-and-set.
+ */
+public class TaskIdGenerator implements Shareable {
+
+    static final long EPOCH = Instant.parse("2025-01-01T00:00:00Z").toEpochMilli();
+    static final int NODE_BITS = 5;
+    static final int SEQUENCE_BITS = 8;
+    static final int MAX_NODE_ID = (1 << NODE_BITS) - 1;
+    private static final long MAX_SEQUENCE = (1L << SEQUENCE_BITS) - 1;
+    private static final int TIMESTAMP_SHIFT = NODE_BITS + SEQUENCE_BITS;
+
+    private final long nodeBits;
+    private final LongSupplier clock;
+    // (milliseconds since EPOCH << SEQUENCE_BITS) | sequence of the last id handed out
+    private final AtomicLong last = new AtomicLong();
+
+    public TaskIdGenerator(int nodeId) {
+        this(nodeId, System::currentTimeMillis);
+    }
+
+    TaskIdGenerator(int nodeId, LongSupplier clock) {
+        if (nodeId < 0 || nodeId > MAX_NODE_ID) {
+            throw new IllegalArgumentException("node id must be between 0 and " + MAX_NODE_ID);
+        }
+        this.nodeBits = (long) nodeId << SEQUENCE_BITS;
+        this.clock = clock;
+    }
+
+    public long nextId() {
+        long now = (clock.getAsLong() - EPOCH) << SEQUENCE_BITS;
+        long previous;
+        long next;
+        do {
+            previous = last.get();
+            // a new millisecond starts at sequence 0; otherwise count on, which carries into
+            // the next millisecond once the sequence is exhausted
+            next = now > previous ? now : previous + 1;
+        } while (!last.compareAndSet(previous, next));
+        long timestamp = next >>> SEQUENCE_BITS;
+        return timestamp << TIMESTAMP_SHIFT | nodeBits | (next & MAX_SEQUENCE);
+    }
+
+    /**
+     * Returns the smallest id any node can generate at {@code millis}, so ids below it were
+     * generated earlier.
+     */
+    static long firstIdAt(long millis) {
+        return Math.max(0, millis - EPOCH) << TIMESTAMP_SHIFT;
+    }
+
+    static long timestampOf(long id) {
+        return (id >>> TIMESTAMP_SHIFT) + EPOCH;
+    }
+
+    static int nodeOf(long id) {
+        return (int) (id >>> SEQUENCE_BITS & MAX_NODE_ID);
+    }
+}
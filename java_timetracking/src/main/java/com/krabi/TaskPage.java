@@ -0,0 +1,17 @@
+package com.krabi;
+
+import java.util.List;
+
+public class TaskPage {
+    private final List<Task> tasks;
+    private final String nextCursor;
+
+    public TaskPage(List<Task> tasks, String nextCursor) {
+        this.tasks = tasks;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<Task> getTasks() { return tasks; }
+    // null when this is the last page
+    public String getNextCursor() { return nextCursor; }
+}
@@ -0,0 +1,54 @@
+package com.krabi;
+
+/**
+ * Body of PATCH /api/tasks/:id. Attributes left null are not touched.
+ */
+public class TaskPatch {
+    private String date;
+    private String project;
+    private Integer hours;
+    private String task;
+    // version the client last read; null skips the concurrency check
+    private Long version;
+
+    public TaskPatch() {}
+
+    static TaskPatch of(Task task) {
+        TaskPatch patch = new TaskPatch();
+        patch.setDate(task.getDate());
+        patch.setProject(task.getProject());
+        patch.setHours(task.getHours());
+        patch.setTask(task.getTask());
+        patch.setVersion(task.getVersion() > 0 ? task.getVersion() : null);
+        return patch;
+    }
+
+    boolean isEmpty() {
+        return date == null && project == null && hours == null && task == null;
+    }
+
+    /**
+     * {@code current} with this patch applied and its version bumped, as UpdateItem leaves it.
+     */
+    Task applyTo(Task current) {
+        Task updated = new Task(current.getId(),
+                date != null ? date : current.getDate(),
+                project != null ? project : current.getProject(),
+                hours != null ? hours : current.getHours(),
+                task != null ? task : current.getTask(),
+                current.getUsername());
+        updated.setVersion(current.getVersion() + 1);
+        return updated;
+    }
+
+    public String getDate() { return date; }
+    public void setDate(String date) { this.date = date; }
+    public String getProject() { return project; }
+    public void setProject(String project) { this.project = project; }
+    public Integer getHours() { return hours; }
+    public void setHours(Integer hours) { this.hours = hours; }
+    public String getTask() { return task; }
+    public void setTask(String task) { this.task = task; }
+    public Long getVersion() { return version; }
+    public void setVersion(Long version) { this.version = version; }
+}
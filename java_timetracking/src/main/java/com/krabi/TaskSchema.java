@@ -0,0 +1,113 @@
+package com.krabi;
+
+import java.util.Map;
+
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
+/**
+ * The Tasks table's item layout, mapped by hand in both directions. Attribute names are
+ * constants, small numbers share immutable {@link AttributeValue}s and items are built as
+ * fixed-size immutable maps, so mapping a task allocates little beyond its own strings.
+ *
+ * <p>Every write stamps the item with a {@value #SEQ} from the {@link TaskIdGenerator}, unique
+ * and ordered by time, which the username-seq-index serves change feeds from. A deleted task
+ * stays behind as a tombstone: id, username, version and seq, marked {@value #DELETED} and
+ * expiring through DynamoDB TTL on {@value #EXPIRES_AT}. Having no date, tombstones are not
+ * in the username-date-index.
+ */
+final class TaskSchema {
+
+    static final String ID = "id";
+    static final String DATE = "date";
+    static final String PROJECT = "project";
+    static final String HOURS = "hours";
+    static final String TASK = "task";
+    static final String USERNAME = "username";
+    static final String VERSION = "version";
+    static final String SEQ = "seq";
+    static final String DELETED = "deleted";
+    static final String EXPIRES_AT = "expiresAt";
+
+    // covers the hours of a day and the versions of all but heavily edited tasks
+    private static final AttributeValue[] SMALL_NUMBERS = new AttributeValue[128];
+    private static final AttributeValue TRUE = AttributeValue.fromBool(true);
+
+    static {
+        for (int i = 0; i < SMALL_NUMBERS.length; i++) {
+            SMALL_NUMBERS[i] = AttributeValue.fromN(Integer.toString(i));
+        }
+    }
+
+    private TaskSchema() {
+    }
+
+    static AttributeValue number(long value) {
+        return value >= 0 && value < SMALL_NUMBERS.length
+                ? SMALL_NUMBERS[(int) value]
+                : AttributeValue.fromN(Long.toString(value));
+    }
+
+    static AttributeValue string(String value) {
+        return AttributeValue.fromS(value);
+    }
+
+    static Map<String, AttributeValue> key(long id) {
+        return Map.of(ID, number(id));
+    }
+
+    /**
+     * Returns the item of {@code task} as written with change sequence {@code seq}. The map is
+     * immutable; the SDK copies it into the request anyway.
+     */
+    static Map<String, AttributeValue> toItem(Task task, long seq) {
+        AttributeValue id = number(task.getId());
+        AttributeValue date = string(task.getDate());
+        AttributeValue project = string(task.getProject());
+        AttributeValue hours = number(task.getHours());
+        AttributeValue text = string(task.getTask());
+        AttributeValue version = number(task.getVersion());
+        if (task.getUsername() == null) {
+            return Map.of(ID, id, DATE, date, PROJECT, project, HOURS, hours, TASK, text, VERSION, version,
+                    SEQ, number(seq));
+        }
+        return Map.of(ID, id, DATE, date, PROJECT, project, HOURS, hours, TASK, text,
+                USERNAME, string(task.getUsername()), VERSION, version, SEQ, number(seq));
+    }
+
+    /**
+     * Returns the tombstone that replaces a deleted task.
+     *
+     * @param expiresAtSeconds epoch seconds after which DynamoDB TTL may remove it
+     */
+    static Map<String, AttributeValue> tombstone(long id, String username, long version, long seq,
+            long expiresAtSeconds) {
+        return Map.of(ID, number(id), USERNAME, string(username), VERSION, number(version), SEQ, number(seq),
+                DELETED, TRUE, EXPIRES_AT, number(expiresAtSeconds));
+    }
+
+    static boolean isTombstone(Map<String, AttributeValue> item) {
+        return item.containsKey(DELETED);
+    }
+
+    static AttributeValue deleted() {
+        return TRUE;
+    }
+
+    /**
+     * Returns the item's change sequence; items written before change tracking have none.
+     */
+    static long seqOf(Map<String, AttributeValue> item) {
+        AttributeValue seq = item.get(SEQ);
+        return seq != null ? Long.parseLong(seq.n()) : 0;
+    }
+
+    static Task fromItem(Map<String, AttributeValue> item) {
+        AttributeValue username = item.get(USERNAME);
+        AttributeValue version = item.get(VERSION);
+        Task task = new Task(Long.parseLong(item.get(ID).n()), item.get(DATE).s(), item.get(PROJECT).s(),
+                Integer.parseInt(item.get(HOURS).n()), item.get(TASK).s(), username != null ? username.s() : null);
+        // items written before versioning have none
+        task.setVersion(version != null ? Long.parseLong(version.n()) : 0);
+        return task;
+    }
+}
@@ -2,116 +2,812 @@ package com.krabi;
 
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import io.vertx.core.Context;
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.core.eventbus.EventBus;
+import software.amazon.awssdk.services.dynamodb.DynamoDbAsyncClient;
 import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
-import software.amazon.awssdk.services.dynamodb.model.DeleteItemRequest;
-import software.amazon.awssdk.services.dynamodb.model.DynamoDbException;
+import software.amazon.awssdk.services.dynamodb.model.BatchGetItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.BatchWriteItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.ConditionalCheckFailedException;
 import software.amazon.awssdk.services.dynamodb.model.GetItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.KeysAndAttributes;
 import software.amazon.awssdk.services.dynamodb.model.PutItemRequest;
-import software.amazon.awssdk.services.dynamodb.model.ScanRequest;
+import software.amazon.awssdk.services.dynamodb.model.PutRequest;
+import software.amazon.awssdk.services.dynamodb.model.QueryRequest;
+import software.amazon.awssdk.services.dynamodb.model.ReturnValue;
+import software.amazon.awssdk.services.dynamodb.model.ReturnValuesOnConditionCheckFailure;
+import software.amazon.awssdk.services.dynamodb.model.UpdateItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.UpdateItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.WriteRequest;
 
 public class TaskService {
 
-    private final DynamoDbClient dynamoDbClient;
+    private final DynamoDbAsyncClient dynamoDbClient;
     private final String tableName = "Tasks";
+    // GSI: partition key username, sort key date
+    static final String USER_DATE_INDEX = "username-date-index";
+    // GSI: partition key username, sort key seq; live tasks and tombstones in write order
+    static final String USER_SEQ_INDEX = "username-seq-index";
     private static final Logger logger = LoggerFactory.getLogger(TaskService.class);
 
-    public TaskService(DynamoDbClient dynamoDbClient) {
+    // DynamoDB limits per BatchWriteItem / BatchGetItem call
+    static final int BATCH_WRITE_SIZE = 25;
+    static final int BATCH_GET_SIZE = 100;
+    static final int MAX_BATCH_ATTEMPTS = 5;
+    static final long BATCH_BACKOFF_MILLIS = 50;
+
+    static final int MAX_CHANGES = 1000;
+    // a write may show up in the seq index this much later than its seq says: clock skew
+    // between instances, the write's own latency and the index's replication lag
+    static final long CHANGE_SETTLE_MILLIS = TimeUnit.SECONDS.toMillis(5);
+    // DynamoDB TTL removes tombstones after this; older cursors get a full resync
+    static final long TOMBSTONE_TTL_MILLIS = TimeUnit.DAYS.toMillis(30);
+
+    private final SummaryService summaryService;
+    private final TaskCache taskCache;
+    private final TaskIdGenerator idGenerator;
+    private final EventBus eventBus;
+
+    public TaskService(DynamoDbAsyncClient dynamoDbClient) {
+        this(dynamoDbClient, new SummaryService(dynamoDbClient));
+    }
+
+    public TaskService(DynamoDbAsyncClient dynamoDbClient, SummaryService summaryService) {
+        this(dynamoDbClient, summaryService, null);
+    }
+
+    /**
+     * @param taskCache shared read cache kept current by this service's writes, or null
+     */
+    public TaskService(DynamoDbAsyncClient dynamoDbClient, SummaryService summaryService, TaskCache taskCache) {
+        this(dynamoDbClient, summaryService, taskCache, new TaskIdGenerator(0));
+    }
+
+    /**
+     * @param idGenerator source of ids for new tasks, shared by all instances of this process
+     */
+    public TaskService(DynamoDbAsyncClient dynamoDbClient, SummaryService summaryService, TaskCache taskCache,
+            TaskIdGenerator idGenerator) {
+        this(dynamoDbClient, summaryService, taskCache, idGenerator, null);
+    }
+
+    /**
+     * @param eventBus where every stored change is published for {@link TaskEventStreams}, or null
+     */
+    public TaskService(DynamoDbAsyncClient dynamoDbClient, SummaryService summaryService, TaskCache taskCache,
+            TaskIdGenerator idGenerator, EventBus eventBus) {
         this.dynamoDbClient = dynamoDbClient;
+        this.summaryService = summaryService;
+        this.taskCache = taskCache;
+        this.idGenerator = idGenerator;
+        this.eventBus = eventBus;
+    }
+
+    /**
+     * Stores a new task under a freshly generated id, which is set on {@code task}. The put is
+     * conditional, so an existing task is never overwritten: should the id be taken already,
+     * which only happens when two instances share a node id, the put is retried once with a
+     * fresh id before the returned future fails with {@link IllegalStateException}.
+     */
+    public Future<Void> createTask(Task task) {
+        return putNewTask(task, true)
+                .onFailure(err -> {
+                    if (!(err instanceof IllegalStateException)) {
+                        evict(task.getId(), task.getUsername());
+                    }
+                })
+                .compose(v -> {
+                    if (taskCache != null) {
+                        taskCache.written(null, task);
+                    }
+                    publish(task.getUsername(), List.of(task), List.of());
+                    return updateSummary(null, task);
+                });
+    }
+
+    private Future<Void> putNewTask(Task task, boolean retry) {
+        task.setId(idGenerator.nextId());
+        task.setVersion(1);
+        PutItemRequest request = PutItemRequest.builder().tableName(tableName)
+                .item(TaskSchema.toItem(task, idGenerator.nextId()))
+                .conditionExpression("attribute_not_exists(id)")
+                .build();
+        return SdkFutures.toFuture(dynamoDbClient.putItem(request))
+                .<Void>mapEmpty()
+                .recover(err -> {
+                    if (!(SdkFutures.unwrap(err) instanceof ConditionalCheckFailedException)) {
+                        return logDynamoDbError(err);
+                    }
+                    logger.warn("Generated task id {} is taken already, is NODE_ID shared?", task.getId());
+                    return retry
+                            ? putNewTask(task, false)
+                            : Future.failedFuture(new IllegalStateException("Task " + task.getId() + " already exists"));
+                });
+    }
+
+    /**
+     * Returns the user's task {@code id}, or null when it is missing, deleted or another
+     * user's. Ids are time ordered and easy to guess, so the owner is always checked.
+     */
+    public Future<Task> getTask(long id, String username) {
+        // the cache is keyed by id alone, so cached tasks are checked too
+        return getTask(id).map(task -> task != null && username.equals(task.getUsername()) ? task : null);
+    }
+
+    private Future<Task> getTask(long id) {
+        Task cached = taskCache != null ? taskCache.getTask(id) : null;
+        if (cached != null) {
+            return Future.succeededFuture(cached);
+        }
+        long readStamp = taskCache != null ? taskCache.readStamp(id) : 0;
+        GetItemRequest request = GetItemRequest.builder().tableName(tableName).key(TaskSchema.key(id)).build();
+        return SdkFutures.toFuture(dynamoDbClient.getItem(request))
+                .map(response -> {
+                    Map<String, AttributeValue> item = response.item();
+                    if (item == null || item.isEmpty() || TaskSchema.isTombstone(item)) {
+                        return null;
+                    }
+                    Task task = TaskSchema.fromItem(item);
+                    if (taskCache != null) {
+                        taskCache.putTask(id, readStamp, task);
+                    }
+                    return task;
+                })
+                .recover(this::logDynamoDbError);
+    }
+
+    /**
+     * Returns every task of the user, following DynamoDB pages until the index is exhausted.
+     */
+    public Future<List<Task>> listTasks(String userNameFromCtx) {
+        return listTasks(userNameFromCtx, TaskFilter.NONE);
     }
 
-    public void createTask(Task task) {
-        Map<String, AttributeValue> item = new HashMap<>();
-        item.put("id", AttributeValue.builder().n(Long.toString(task.getId())).build());
-        item.put("date", AttributeValue.builder().s(task.getDate()).build());
-        item.put("project", AttributeValue.builder().s(task.getProject()).build());
-        item.put("hours", AttributeValue.builder().n(Integer.toString(task.getHours())).build());
-        item.put("task", AttributeValue.builder().s(task.getTask()).build());
-        if (task.getUsername() != null) {
-            item.put("username", AttributeValue.builder().s(task.getUsername()).build());
+    /**
+     * Returns every task of the user matching {@code filter}. Only the requested date range
+     * of the index is read.
+     */
+    public Future<List<Task>> listTasks(String userNameFromCtx, TaskFilter filter) {
+        if (taskCache == null) {
+            return queryAllPages(userNameFromCtx, filter, null, new ArrayList<>());
+        }
+        List<Task> cached = taskCache.getTasks(userNameFromCtx, filter);
+        if (cached != null) {
+            return Future.succeededFuture(cached);
+        }
+        long readStamp = taskCache.readStamp(userNameFromCtx);
+        return queryAllPages(userNameFromCtx, filter, null, new ArrayList<>())
+                .onSuccess(tasks -> taskCache.putTasks(userNameFromCtx, filter, readStamp, tasks));
+    }
+
+    /**
+     * Same as {@link #listTasks(String, TaskFilter)}, but always reads DynamoDB and leaves the
+     * cache alone, for callers that check other data against the table itself.
+     */
+    public Future<List<Task>> listStoredTasks(String username, TaskFilter filter) {
+        return queryAllPages(username, filter, null, new ArrayList<>());
+    }
+
+    /**
+     * Like {@link #listTasks(String, TaskFilter)}, but hands every DynamoDB page to
+     * {@code onPage} as it arrives instead of collecting the whole history first. The next
+     * page is only requested once the future returned by {@code onPage} completes, so a slow
+     * client holds back the reads. A cached list arrives as a single page.
+     */
+    public Future<Void> streamTasks(String userNameFromCtx, TaskFilter filter,
+            Function<List<Task>, Future<Void>> onPage) {
+        if (taskCache == null) {
+            return queryPages(userNameFromCtx, filter, null, onPage);
+        }
+        List<Task> cached = taskCache.getTasks(userNameFromCtx, filter);
+        if (cached != null) {
+            return onPage.apply(cached);
         }
-        logger.info("Creating task: {}", item);
-        PutItemRequest request = PutItemRequest.builder().tableName(tableName).item(item).build();
-        logger.info("Request: {}", request);
+        long readStamp = taskCache.readStamp(userNameFromCtx);
+        List<Task> tasks = new ArrayList<>();
+        return queryPages(userNameFromCtx, filter, null, page -> {
+            tasks.addAll(page);
+            return onPage.apply(page);
+        }).onSuccess(v -> taskCache.putTasks(userNameFromCtx, filter, readStamp, tasks));
+    }
+
+    /**
+     * Returns one page of at most {@code limit} tasks ordered by date. Pass the previous
+     * page's {@link TaskPage#getNextCursor()} to continue.
+     */
+    public Future<TaskPage> listTasks(String userNameFromCtx, TaskFilter filter, int limit, String cursor) {
+        Map<String, AttributeValue> startKey;
         try {
-            dynamoDbClient.putItem(request);
-        } catch (DynamoDbException e) {
-            logDynamoDbError(e);
+            startKey = cursor != null ? TaskCursor.decode(cursor, userNameFromCtx) : null;
+        } catch (IllegalArgumentException e) {
+            return Future.failedFuture(e);
         }
+        return SdkFutures.toFuture(dynamoDbClient.query(queryByUser(userNameFromCtx, filter, limit, startKey)))
+                .map(response -> new TaskPage(fromItems(response.items(), new ArrayList<>()),
+                        TaskCursor.encode(response.lastEvaluatedKey())))
+                .recover(this::logDynamoDbError);
     }
 
-    public Task getTask(long id) {
-        Map<String, AttributeValue> key = new HashMap<>();
-        key.put("id", AttributeValue.builder().n(Long.toString(id)).build());
-        GetItemRequest request = GetItemRequest.builder().tableName(tableName).key(key).build();
-        Map<String, AttributeValue> item = dynamoDbClient.getItem(request).item();
-        if (item == null || item.isEmpty()) {
-            return null;
+    /**
+     * Returns the seq of the user's latest write, deletes included, or 0 for a user who never
+     * wrote: one item read from the end of the username-seq-index. Every write moves it on,
+     * whichever process made it, so it versions the user's task list. A seq newer than this
+     * process has seen drops the user's cached lists. With the cache enabled a seq read
+     * moments ago is answered without reading it again, see {@link TaskCache#freshSeq}.
+     */
+    public Future<Long> lastChange(String username) {
+        Long fresh = taskCache != null ? taskCache.freshSeq(username) : null;
+        if (fresh != null) {
+            return Future.succeededFuture(fresh);
         }
-        return fromItem(item);
+        QueryRequest request = QueryRequest.builder()
+                .tableName(tableName)
+                .indexName(USER_SEQ_INDEX)
+                .keyConditionExpression("username = :username")
+                .expressionAttributeValues(Map.of(":username", TaskSchema.string(username)))
+                .scanIndexForward(false)
+                .limit(1)
+                .build();
+        return SdkFutures.toFuture(dynamoDbClient.query(request))
+                .map(response -> {
+                    long seq = response.items().isEmpty() ? 0 : TaskSchema.seqOf(response.items().get(0));
+                    if (taskCache != null) {
+                        taskCache.seenSeq(username, seq);
+                    }
+                    return seq;
+                })
+                .recover(this::logDynamoDbError);
+    }
+
+    /**
+     * Returns what changed in the user's tasks after {@code since}, the cursor of an earlier
+     * call, at most {@value #MAX_CHANGES} changes per call in write order. This reads the
+     * username-seq-index from the cursor on, so a sync costs in proportion to the changes
+     * rather than to the history.
+     *
+     * <p>Without a cursor, or with one older than tombstones are kept, every task of the user
+     * is returned with {@link TaskChanges#isReset()} set. The returned cursor stays
+     * {@value #CHANGE_SETTLE_MILLIS} ms behind the present, so a write that reaches the index
+     * late is still picked up; changes in that window may arrive twice and apply the same way
+     * both times.
+     */
+    public Future<TaskChanges> changes(String username, String since) {
+        long now = System.currentTimeMillis();
+        long horizon = TaskIdGenerator.firstIdAt(now - CHANGE_SETTLE_MILLIS);
+        long sinceSeq;
+        try {
+            sinceSeq = since != null ? Long.parseLong(since) : -1;
+        } catch (NumberFormatException e) {
+            sinceSeq = -1;
+        }
+        if (since != null && sinceSeq < 0) {
+            return Future.failedFuture(new IllegalArgumentException("Invalid cursor"));
+        }
+        if (since == null || TaskIdGenerator.timestampOf(sinceSeq) < now - TOMBSTONE_TTL_MILLIS) {
+            // straight from DynamoDB: a cached list may miss other instances' writes before the horizon
+            return queryAllPages(username, TaskFilter.NONE, null, new ArrayList<>())
+                    .map(tasks -> new TaskChanges(tasks, List.of(), Long.toString(horizon), false, true));
+        }
+        QueryRequest request = QueryRequest.builder()
+                .tableName(tableName)
+                .indexName(USER_SEQ_INDEX)
+                .keyConditionExpression("username = :username AND #seq > :since")
+                .expressionAttributeNames(Map.of("#seq", TaskSchema.SEQ))
+                .expressionAttributeValues(Map.of(":username", TaskSchema.string(username),
+                        ":since", TaskSchema.number(sinceSeq)))
+                .limit(MAX_CHANGES)
+                .build();
+        long from = sinceSeq;
+        return SdkFutures.toFuture(dynamoDbClient.query(request))
+                .map(response -> {
+                    List<Task> changed = new ArrayList<>();
+                    List<Long> deleted = new ArrayList<>();
+                    long last = from;
+                    for (Map<String, AttributeValue> item : response.items()) {
+                        last = TaskSchema.seqOf(item);
+                        if (TaskSchema.isTombstone(item)) {
+                            deleted.add(Long.parseLong(item.get(TaskSchema.ID).n()));
+                        } else {
+                            changed.add(TaskSchema.fromItem(item));
+                        }
+                    }
+                    boolean hasMore = response.hasLastEvaluatedKey() && !response.lastEvaluatedKey().isEmpty();
+                    // a full page moves on past its last change even inside the settle window,
+                    // otherwise a burst of writes could keep the client on the same page
+                    long cursor = hasMore ? last : Math.max(from, horizon);
+                    return new TaskChanges(changed, deleted, Long.toString(cursor), hasMore, false);
+                })
+                .recover(this::logDynamoDbError);
+    }
+
+    private Future<List<Task>> queryAllPages(String username, TaskFilter filter, Map<String, AttributeValue> startKey,
+            List<Task> tasks) {
+        return queryPages(username, filter, startKey, page -> {
+            tasks.addAll(page);
+            return Future.succeededFuture();
+        }).map(tasks);
     }
 
-    public List<Task> listTasks(String userNameFromCtx) {
-        // in real production app use always Query instead Scan!!!
+    private Future<Void> queryPages(String username, TaskFilter filter, Map<String, AttributeValue> startKey,
+            Function<List<Task>, Future<Void>> onPage) {
+        return SdkFutures.toFuture(dynamoDbClient.query(queryByUser(username, filter, null, startKey)))
+                .recover(this::logDynamoDbError)
+                .compose(response -> onPage.apply(fromItems(response.items(), new ArrayList<>()))
+                        .compose(v -> {
+                            if (response.hasLastEvaluatedKey() && !response.lastEvaluatedKey().isEmpty()) {
+                                return queryPages(username, filter, response.lastEvaluatedKey(), onPage);
+                            }
+                            return Future.succeededFuture();
+                        }));
+    }
+
+    private QueryRequest queryByUser(String username, TaskFilter filter, Integer limit,
+            Map<String, AttributeValue> startKey) {
         Map<String, AttributeValue> expressionAttributeValues = new HashMap<>();
-        expressionAttributeValues.put(":username", AttributeValue.builder().s(userNameFromCtx).build());
-        ScanRequest request = ScanRequest.builder()
+        expressionAttributeValues.put(":username", TaskSchema.string(username));
+        String keyCondition = "username = :username";
+        if (filter.getFrom() != null && filter.getTo() != null) {
+            keyCondition += " AND #date BETWEEN :from AND :to";
+        } else if (filter.getFrom() != null) {
+            keyCondition += " AND #date >= :from";
+        } else if (filter.getTo() != null) {
+            keyCondition += " AND #date <= :to";
+        }
+        if (filter.getFrom() != null) {
+            expressionAttributeValues.put(":from", TaskSchema.string(filter.getFrom()));
+        }
+        if (filter.getTo() != null) {
+            expressionAttributeValues.put(":to", TaskSchema.string(filter.getTo()));
+        }
+        if (filter.getProject() != null) {
+            expressionAttributeValues.put(":project", TaskSchema.string(filter.getProject()));
+        }
+        QueryRequest.Builder builder = QueryRequest.builder()
+                .tableName(tableName)
+                .indexName(USER_DATE_INDEX)
+                .keyConditionExpression(keyCondition)
+                .expressionAttributeValues(expressionAttributeValues);
+        // date and project are DynamoDB reserved words, both go through name placeholders
+        Map<String, String> names = new HashMap<>();
+        if (filter.getFrom() != null || filter.getTo() != null) {
+            names.put("#date", TaskSchema.DATE);
+        }
+        if (filter.getProject() != null) {
+            names.put("#project", TaskSchema.PROJECT);
+            builder.filterExpression("#project = :project");
+        }
+        if (!names.isEmpty()) {
+            builder.expressionAttributeNames(names);
+        }
+        if (limit != null) {
+            builder.limit(limit);
+        }
+        if (startKey != null) {
+            builder.exclusiveStartKey(startKey);
+        }
+        return builder.build();
+    }
+
+    /**
+     * Replaces the editable attributes of the user's task. Same as {@link #patchTask} with
+     * every attribute set; a version on {@code task} is checked like a patch's.
+     */
+    public Future<Task> updateTask(Task task) {
+        return patchTask(task.getId(), task.getUsername(), TaskPatch.of(task));
+    }
+
+    /**
+     * Writes only the attributes set in {@code patch} with UpdateItem and bumps the task's
+     * version. The update is conditional on the task existing and belonging to
+     * {@code username}, and on the patch's version when it has one.
+     *
+     * @return the updated task, or null when the user has no task with this id; fails with
+     *         {@link IllegalStateException} when the task changed since the given version
+     */
+    public Future<Task> patchTask(long id, String username, TaskPatch patch) {
+        Map<String, String> names = new HashMap<>();
+        Map<String, AttributeValue> values = new HashMap<>();
+        List<String> sets = new ArrayList<>();
+        if (patch.getDate() != null) {
+            setAttribute(sets, names, values, TaskSchema.DATE, TaskSchema.string(patch.getDate()));
+        }
+        if (patch.getProject() != null) {
+            setAttribute(sets, names, values, TaskSchema.PROJECT, TaskSchema.string(patch.getProject()));
+        }
+        if (patch.getHours() != null) {
+            setAttribute(sets, names, values, TaskSchema.HOURS, TaskSchema.number(patch.getHours()));
+        }
+        if (patch.getTask() != null) {
+            setAttribute(sets, names, values, TaskSchema.TASK, TaskSchema.string(patch.getTask()));
+        }
+        setAttribute(sets, names, values, TaskSchema.SEQ, TaskSchema.number(idGenerator.nextId()));
+        names.put("#version", TaskSchema.VERSION);
+        names.put("#username", TaskSchema.USERNAME);
+        names.put("#deleted", TaskSchema.DELETED);
+        values.put(":one", TaskSchema.number(1));
+        values.put(":username", TaskSchema.string(username));
+        String condition = "attribute_exists(id) AND attribute_not_exists(#deleted) AND #username = :username";
+        if (patch.getVersion() != null && patch.getVersion() == 0) {
+            // items written before versioning have no version attribute, they count as 0
+            condition += " AND attribute_not_exists(#version)";
+        } else if (patch.getVersion() != null) {
+            // DynamoDB rejects values the expressions do not use, so only add it here
+            values.put(":version", TaskSchema.number(patch.getVersion()));
+            condition += " AND #version = :version";
+        }
+        String update = "SET " + String.join(", ", sets) + " ADD #version :one";
+        UpdateItemRequest request = UpdateItemRequest.builder()
                 .tableName(tableName)
-                .filterExpression("username = :username")
-                .expressionAttributeValues(expressionAttributeValues)
+                .key(TaskSchema.key(id))
+                .updateExpression(update)
+                .conditionExpression(condition)
+                .expressionAttributeNames(names)
+                .expressionAttributeValues(values)
+                // the previous item moves the summary counters, the new one is derived from it
+                .returnValues(ReturnValue.ALL_OLD)
+                .returnValuesOnConditionCheckFailure(ReturnValuesOnConditionCheckFailure.ALL_OLD)
                 .build();
-        List<Task> tasks = new ArrayList<>();
-        try {
-            List<Map<String, AttributeValue>> items = dynamoDbClient.scan(request).items();
-            for (Map<String, AttributeValue> item : items) {
-                tasks.add(fromItem(item));
+        return SdkFutures.toFuture(dynamoDbClient.updateItem(request))
+                .<Task>transform(ar -> {
+                    if (ar.succeeded()) {
+                        Task old = TaskSchema.fromItem(ar.result().attributes());
+                        Task updated = patch.applyTo(old);
+                        if (taskCache != null) {
+                            taskCache.written(old, updated);
+                        }
+                        publish(username, List.of(updated), List.of());
+                        return updateSummary(old, updated).map(updated);
+                    }
+                    Throwable cause = SdkFutures.unwrap(ar.cause());
+                    if (!(cause instanceof ConditionalCheckFailedException rejected)) {
+                        evict(id, username);
+                        return logDynamoDbError(cause);
+                    }
+                    Task current = rejected.hasItem() && !TaskSchema.isTombstone(rejected.item())
+                            ? TaskSchema.fromItem(rejected.item())
+                            : null;
+                    if (current == null || !username.equals(current.getUsername())) {
+                        return Future.succeededFuture(null);
+                    }
+                    return Future.failedFuture(new IllegalStateException(
+                            "Task " + id + " was modified, current version is " + current.getVersion()));
+                });
+    }
+
+    private static void setAttribute(List<String> sets, Map<String, String> names, Map<String, AttributeValue> values,
+            String attribute, AttributeValue value) {
+        sets.add("#" + attribute + " = :" + attribute);
+        names.put("#" + attribute, attribute);
+        values.put(":" + attribute, value);
+    }
+
+    /**
+     * Turns the user's task into a tombstone: its content is removed, owner and version stay
+     * and the seq moves on, so change feeds report the delete. Returns the deleted task, or
+     * null when the user has no task {@code id}: it is missing, deleted already or another
+     * user's, and is left alone.
+     */
+    public Future<Task> deleteTask(long id, String username) {
+        Map<String, String> names = Map.of("#date", TaskSchema.DATE, "#project", TaskSchema.PROJECT,
+                "#hours", TaskSchema.HOURS, "#task", TaskSchema.TASK, "#version", TaskSchema.VERSION,
+                "#seq", TaskSchema.SEQ, "#deleted", TaskSchema.DELETED, "#expiresAt", TaskSchema.EXPIRES_AT,
+                "#username", TaskSchema.USERNAME);
+        Map<String, AttributeValue> values = Map.of(":deleted", TaskSchema.deleted(),
+                ":seq", TaskSchema.number(idGenerator.nextId()), ":expiresAt", TaskSchema.number(tombstoneExpiry()),
+                ":one", TaskSchema.number(1), ":username", TaskSchema.string(username));
+        UpdateItemRequest request = UpdateItemRequest.builder()
+                .tableName(tableName)
+                .key(TaskSchema.key(id))
+                .updateExpression("SET #deleted = :deleted, #seq = :seq, #expiresAt = :expiresAt "
+                        + "REMOVE #date, #project, #hours, #task ADD #version :one")
+                .conditionExpression("attribute_exists(id) AND attribute_not_exists(#deleted) AND #username = :username")
+                .expressionAttributeNames(names)
+                .expressionAttributeValues(values)
+                .returnValues(ReturnValue.ALL_OLD)
+                .build();
+        return SdkFutures.toFuture(dynamoDbClient.updateItem(request))
+                .map(UpdateItemResponse::attributes)
+                .recover(err -> SdkFutures.unwrap(err) instanceof ConditionalCheckFailedException
+                        ? Future.succeededFuture(null)
+                        : logDynamoDbError(err))
+                .onFailure(err -> evict(id, username))
+                .compose(attributes -> {
+                    Task oldTask = oldTask(attributes);
+                    evict(id, username);
+                    if (oldTask != null) {
+                        publish(username, List.of(), List.of(id));
+                    }
+                    return updateSummary(oldTask, null).map(oldTask);
+                });
+    }
+
+    /**
+     * Stores {@code tasks} with BatchWriteItem, overwriting tasks with the same id; tasks
+     * without an id get a generated one. BatchWriteItem takes no conditions, so unlike
+     * {@link #createTask} this is an upsert. Ids stored for another user, deleted ones
+     * included, are reported as not found and left untouched. Writes go out
+     * {@value #BATCH_WRITE_SIZE} items per call and the outcome of every item is reported.
+     * Items DynamoDB leaves unprocessed are retried with exponential backoff before they are
+     * reported as failed.
+     */
+    public Future<List<BatchItemResult>> createTasks(List<Task> tasks) {
+        List<Long> ids = new ArrayList<>();
+        for (Task task : tasks) {
+            if (task.getId() == 0) {
+                task.setId(idGenerator.nextId());
             }
-        } catch (DynamoDbException e) {
-            logDynamoDbError(e);
+            ids.add(task.getId());
         }
-        return tasks;
+        if (new HashSet<>(ids).size() != ids.size()) {
+            return Future.failedFuture(new IllegalArgumentException("Duplicate task ids in batch"));
+        }
+        // BatchWriteItem does not return overwritten items, the summary needs them up front
+        Map<Long, String> owners = new HashMap<>();
+        return getTasks(ids, owners).compose(existing -> {
+            List<WriteRequest> writes = new ArrayList<>();
+            for (Task task : tasks) {
+                if (!ownedBy(owners, task)) {
+                    continue;
+                }
+                Task old = existing.get(task.getId());
+                task.setVersion(old != null ? old.getVersion() + 1 : 1);
+                Map<String, AttributeValue> item = TaskSchema.toItem(task, idGenerator.nextId());
+                writes.add(WriteRequest.builder().putRequest(PutRequest.builder().item(item).build()).build());
+            }
+            return batchWrite(writes).compose(failures -> {
+                List<BatchItemResult> results = new ArrayList<>();
+                List<Future<Void>> summaryUpdates = new ArrayList<>();
+                Map<String, List<Task>> written = new HashMap<>();
+                for (Task task : tasks) {
+                    String error = failures.get(task.getId());
+                    if (!ownedBy(owners, task)) {
+                        results.add(new BatchItemResult(task.getId(), BatchItemResult.NOT_FOUND, null));
+                    } else if (error != null) {
+                        evict(task.getId(), task.getUsername());
+                        results.add(BatchItemResult.failed(task.getId(), error));
+                    } else {
+                        if (taskCache != null) {
+                            taskCache.written(existing.get(task.getId()), task);
+                        }
+                        results.add(new BatchItemResult(task.getId(), BatchItemResult.CREATED, null));
+                        summaryUpdates.add(updateSummary(existing.get(task.getId()), task));
+                        written.computeIfAbsent(task.getUsername(), k -> new ArrayList<>()).add(task);
+                    }
+                }
+                // one event per user for the whole batch
+                written.forEach((username, changed) -> publish(username, changed, List.of()));
+                return Future.join(summaryUpdates).map(results);
+            });
+        });
     }
 
-    public void updateTask(Task task) {
-        createTask(task); // Overwrites existing item
+    /**
+     * True when {@code task} may be written: its id is not stored yet or is stored for the
+     * task's user. An item without a username belongs to nobody who could write it.
+     */
+    private static boolean ownedBy(Map<Long, String> owners, Task task) {
+        if (!owners.containsKey(task.getId())) {
+            return true;
+        }
+        String owner = owners.get(task.getId());
+        return owner != null && owner.equals(task.getUsername());
     }
 
-    public void deleteTask(long id) {
-        Map<String, AttributeValue> key = new HashMap<>();
-        key.put("id", AttributeValue.builder().n(Long.toString(id)).build());
-        DeleteItemRequest request = DeleteItemRequest.builder().tableName(tableName).key(key).build();
-        try {
-            dynamoDbClient.deleteItem(request);
-        } catch (DynamoDbException e) {
-            logDynamoDbError(e);
-        }
-    }
-
-    private Task fromItem(Map<String, AttributeValue> item) {
-        long id = Long.parseLong(item.get("id").n());
-        String date = item.get("date").s();
-        String project = item.get("project").s();
-        int hours = Integer.parseInt(item.get("hours").n());
-        String task = item.get("task").s();
-        String username = item.containsKey("username") ? item.get("username").s() : null;
-        return new Task(id, date, project, hours, task, username);
-    }
-
-    private void logDynamoDbError(DynamoDbException e) {
-        // THIS IS THE CRUCIAL PART FOR DEBUGGING
-        logger.error("----------- DYNAMODB ERROR -----------");
-        logger.error("Error Message: {}", e.awsErrorDetails().errorMessage());
-        logger.error("AWS Error Code: {}", e.awsErrorDetails().errorCode());
-        logger.error("SDK Error Message: {}", e.getMessage());
-        logger.error("Request ID: {}", e.requestId());
-        logger.error("Status Code: {}", e.statusCode());
-        logger.error("------------------------------------");
-        throw new RuntimeException(e.awsErrorDetails().errorMessage());
+    /**
+     * Replaces the user's tasks with tombstones, as {@link #deleteTask} does, through
+     * BatchWriteItem. Ids that do not exist or belong to someone else are reported as not
+     * found and left untouched.
+     */
+    public Future<List<BatchItemResult>> deleteTasks(String username, List<Long> ids) {
+        if (new HashSet<>(ids).size() != ids.size()) {
+            return Future.failedFuture(new IllegalArgumentException("Duplicate task ids in batch"));
+        }
+        long expiresAt = tombstoneExpiry();
+        return getTasks(ids).compose(existing -> {
+            List<WriteRequest> deletes = new ArrayList<>();
+            for (Long id : ids) {
+                Task old = existing.get(id);
+                if (old != null && Objects.equals(username, old.getUsername())) {
+                    Map<String, AttributeValue> tombstone = TaskSchema.tombstone(id, username, old.getVersion() + 1,
+                            idGenerator.nextId(), expiresAt);
+                    deletes.add(WriteRequest.builder().putRequest(PutRequest.builder().item(tombstone).build()).build());
+                }
+            }
+            return batchWrite(deletes).compose(failures -> {
+                List<BatchItemResult> results = new ArrayList<>();
+                List<Future<Void>> summaryUpdates = new ArrayList<>();
+                List<Long> deleted = new ArrayList<>();
+                for (Long id : ids) {
+                    Task old = existing.get(id);
+                    if (old == null || !Objects.equals(username, old.getUsername())) {
+                        results.add(new BatchItemResult(id, BatchItemResult.NOT_FOUND, null));
+                    } else if (failures.containsKey(id)) {
+                        evict(id, username);
+                        results.add(BatchItemResult.failed(id, failures.get(id)));
+                    } else {
+                        evict(id, username);
+                        results.add(new BatchItemResult(id, BatchItemResult.DELETED, null));
+                        summaryUpdates.add(updateSummary(old, null));
+                        deleted.add(id);
+                    }
+                }
+                if (!deleted.isEmpty()) {
+                    publish(username, List.of(), deleted);
+                }
+                return Future.join(summaryUpdates).map(results);
+            });
+        });
+    }
+
+    /**
+     * Loads the given tasks with BatchGetItem, keyed by id. Missing and deleted ids are absent
+     * from the map.
+     */
+    private Future<Map<Long, Task>> getTasks(List<Long> ids) {
+        return getTasks(ids, new HashMap<>());
+    }
+
+    /**
+     * Same as {@link #getTasks(List)}, and fills {@code owners} with the username of every id
+     * that is stored, deleted ones included; null for an item stored without one.
+     */
+    private Future<Map<Long, Task>> getTasks(List<Long> ids, Map<Long, String> owners) {
+        Map<Long, Task> tasks = new HashMap<>();
+        Future<Void> chain = Future.succeededFuture();
+        for (int i = 0; i < ids.size(); i += BATCH_GET_SIZE) {
+            List<Map<String, AttributeValue>> keys = new ArrayList<>();
+            for (Long id : ids.subList(i, Math.min(i + BATCH_GET_SIZE, ids.size()))) {
+                keys.add(TaskSchema.key(id));
+            }
+            chain = chain.compose(v -> batchGet(Map.of(tableName, KeysAndAttributes.builder().keys(keys).build()), 0, tasks, owners));
+        }
+        return chain.map(tasks);
+    }
+
+    private Future<Void> batchGet(Map<String, KeysAndAttributes> requestItems, int attempt, Map<Long, Task> tasks,
+            Map<Long, String> owners) {
+        BatchGetItemRequest request = BatchGetItemRequest.builder().requestItems(requestItems).build();
+        return SdkFutures.toFuture(dynamoDbClient.batchGetItem(request))
+                .recover(this::logDynamoDbError)
+                .compose(response -> {
+                    for (Map<String, AttributeValue> item : response.responses().getOrDefault(tableName, List.of())) {
+                        AttributeValue owner = item.get(TaskSchema.USERNAME);
+                        owners.put(Long.parseLong(item.get(TaskSchema.ID).n()), owner != null ? owner.s() : null);
+                        if (!TaskSchema.isTombstone(item)) {
+                            Task task = TaskSchema.fromItem(item);
+                            tasks.put(task.getId(), task);
+                        }
+                    }
+                    Map<String, KeysAndAttributes> unprocessed = response.unprocessedKeys();
+                    if (unprocessed == null || unprocessed.isEmpty()) {
+                        return Future.succeededFuture();
+                    }
+                    if (attempt + 1 >= MAX_BATCH_ATTEMPTS) {
+                        return Future.failedFuture(new RuntimeException("Tasks could not be read, retry later"));
+                    }
+                    return backoff(attempt).compose(v -> batchGet(unprocessed, attempt + 1, tasks, owners));
+                });
+    }
+
+    /**
+     * Runs the writes in chunks of {@value #BATCH_WRITE_SIZE}, one chunk after the other so a
+     * large import does not burst past the table's capacity. Completes with the error of every
+     * item that was not written, keyed by task id.
+     */
+    private Future<Map<Long, String>> batchWrite(List<WriteRequest> writes) {
+        Map<Long, String> failures = new HashMap<>();
+        Future<Void> chain = Future.succeededFuture();
+        for (int i = 0; i < writes.size(); i += BATCH_WRITE_SIZE) {
+            List<WriteRequest> chunk = writes.subList(i, Math.min(i + BATCH_WRITE_SIZE, writes.size()));
+            chain = chain.compose(v -> writeChunk(chunk, 0, failures));
+        }
+        return chain.map(failures);
+    }
+
+    private Future<Void> writeChunk(List<WriteRequest> chunk, int attempt, Map<Long, String> failures) {
+        BatchWriteItemRequest request = BatchWriteItemRequest.builder()
+                .requestItems(Map.of(tableName, chunk))
+                .build();
+        return SdkFutures.toFuture(dynamoDbClient.batchWriteItem(request))
+                .recover(this::logDynamoDbError)
+                .compose(response -> {
+                    List<WriteRequest> unprocessed = response.unprocessedItems().getOrDefault(tableName, List.of());
+                    if (unprocessed.isEmpty()) {
+                        return Future.succeededFuture();
+                    }
+                    if (attempt + 1 >= MAX_BATCH_ATTEMPTS) {
+                        for (WriteRequest write : unprocessed) {
+                            failures.put(writeId(write), "Not processed, retry later");
+                        }
+                        return Future.succeededFuture();
+                    }
+                    return backoff(attempt).compose(v -> writeChunk(unprocessed, attempt + 1, failures));
+                }, err -> {
+                    for (WriteRequest write : chunk) {
+                        failures.put(writeId(write), err.getMessage());
+                    }
+                    return Future.succeededFuture();
+                });
+    }
+
+    /**
+     * Waits before retry {@code attempt + 1}. On a Vert.x context this is a timer of that
+     * context, so the retry and everything after it run where the caller does.
+     */
+    private static Future<Void> backoff(int attempt) {
+        long delay = BATCH_BACKOFF_MILLIS << attempt;
+        Context context = Vertx.currentContext();
+        if (context == null) {
+            // called outside Vert.x, as in unit tests, there is no context to stay on
+            return Future.fromCompletionStage(CompletableFuture.runAsync(() -> { },
+                    CompletableFuture.delayedExecutor(delay, TimeUnit.MILLISECONDS)));
+        }
+        return context.owner().timer(delay, TimeUnit.MILLISECONDS).mapEmpty();
+    }
+
+    private static long tombstoneExpiry() {
+        return TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis() + TOMBSTONE_TTL_MILLIS);
+    }
+
+    private static long writeId(WriteRequest write) {
+        Map<String, AttributeValue> key = write.putRequest() != null ? write.putRequest().item() : write.deleteRequest().key();
+        return Long.parseLong(key.get(TaskSchema.ID).n());
+    }
+
+    /**
+     * Keeps the monthly counters in step with a task write. The task itself is already stored,
+     * so a failed counter update is only logged; the summary consistency check reports it.
+     */
+    private Future<Void> updateSummary(Task oldTask, Task newTask) {
+        return summaryService.recordChange(oldTask, newTask)
+                .recover(err -> {
+                    logger.warn("Failed to update task summary: {}", SdkFutures.unwrap(err).getMessage());
+                    return Future.succeededFuture();
+                });
+    }
+
+    /**
+     * Tells the user's open event streams about a stored change. Encoded here, once, however
+     * many streams receive it; nobody listening costs only the encoding.
+     */
+    private void publish(String username, List<Task> changed, List<Long> deleted) {
+        if (eventBus != null && username != null) {
+            eventBus.publish(TaskEventStreams.address(username),
+                    TaskCodec.encode(new TaskChanges(changed, deleted, null, false, false)).toString());
+        }
+    }
+
+    private void evict(long id, String username) {
+        if (taskCache != null) {
+            taskCache.deleted(id, username);
+        }
+    }
+
+    private Task oldTask(Map<String, AttributeValue> attributes) {
+        return attributes == null || attributes.isEmpty() ? null : TaskSchema.fromItem(attributes);
+    }
+
+    private List<Task> fromItems(List<Map<String, AttributeValue>> items, List<Task> tasks) {
+        for (Map<String, AttributeValue> item : items) {
+            tasks.add(TaskSchema.fromItem(item));
+        }
+        return tasks;
+    }
+
+    private <T> Future<T> logDynamoDbError(Throwable failure) {
+        return SdkFutures.logDynamoDbError(logger, failure);
     }
 }
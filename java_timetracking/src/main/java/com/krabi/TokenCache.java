@@ -0,0 +1,92 @@
+package com.krabi;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hashing;
+
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.shareddata.Shareable;
+
+/**
+ * Size-capped cache of verified ID tokens. Entries are keyed by the SHA-256 of the token, so
+ * raw tokens are never retained, and stop being served at the token's own {@code exp}.
+ * Implements {@link Shareable} so all verticle instances can use one cache through
+ * {@code vertx.sharedData().getLocalMap(...)}.
+ */
+public class TokenCache implements Shareable {
+
+    // upper bound for entries whose token carries no usable exp
+    private static final long MAX_TTL_MILLIS = TimeUnit.HOURS.toMillis(1);
+
+    private final Cache<HashCode, Entry> cache;
+    private final LongSupplier clock;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public TokenCache(long maximumSize) {
+        this(maximumSize, System::currentTimeMillis);
+    }
+
+    TokenCache(long maximumSize, LongSupplier clock) {
+        this.cache = CacheBuilder.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(MAX_TTL_MILLIS, TimeUnit.MILLISECONDS)
+                .build();
+        this.clock = clock;
+    }
+
+    /**
+     * Returns a copy of the cached user info, or null when the token is unknown or expired.
+     */
+    public JsonObject get(String token) {
+        HashCode key = key(token);
+        Entry entry = cache.getIfPresent(key);
+        if (entry == null) {
+            misses.increment();
+            return null;
+        }
+        if (clock.getAsLong() >= entry.expiresAtMillis) {
+            cache.invalidate(key);
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return entry.userInfo.copy();
+    }
+
+    public void put(String token, JsonObject userInfo, long expiresAtMillis) {
+        long expiresAt = Math.min(expiresAtMillis, clock.getAsLong() + MAX_TTL_MILLIS);
+        cache.put(key(token), new Entry(userInfo.copy(), expiresAt));
+    }
+
+    public long hits() {
+        return hits.sum();
+    }
+
+    public long misses() {
+        return misses.sum();
+    }
+
+    public double hitRatio() {
+        long h = hits.sum();
+        long total = h + misses.sum();
+        return total == 0 ? 0.0 : (double) h / total;
+    }
+
+    public long size() {
+        return cache.size();
+    }
+
+    private static HashCode key(String token) {
+        return Hashing.sha256().hashString(token, StandardCharsets.UTF_8);
+    }
+
+    private record Entry(JsonObject userInfo, long expiresAtMillis) {
+    }
+}
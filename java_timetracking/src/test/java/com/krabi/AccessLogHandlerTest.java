@@ -0,0 +1,157 @@
+package com.krabi;
+
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.core.http.HttpClient;
+import io.vertx.core.http.HttpClientResponse;
+import io.vertx.core.http.HttpMethod;
+import io.vertx.core.http.HttpServer;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.web.Router;
+import io.vertx.junit5.VertxExtension;
+import io.vertx.junit5.VertxTestContext;
+
+@ExtendWith(VertxExtension.class)
+class AccessLogHandlerTest {
+
+    @Test
+    void handle_ShouldTagRequestsAndLogOnlyFailures_WhenSamplingIsOff(Vertx vertx, VertxTestContext testContext) {
+        Logger logger = mock(Logger.class);
+        when(logger.isInfoEnabled()).thenReturn(true);
+        HttpClient client = vertx.createHttpClient();
+
+        start(vertx, new AccessLogHandler(0, logger))
+                .compose(port -> get(client, port, "/ok", null)
+                        .compose(ok -> get(client, port, "/missing", null).map(missing -> {
+                            testContext.verify(() -> {
+                                assertEquals(16, ok.getHeader(AccessLogHandler.REQUEST_ID_HEADER).length());
+                                assertEquals(404, missing.statusCode());
+                                assertNotEquals(ok.getHeader(AccessLogHandler.REQUEST_ID_HEADER),
+                                        missing.getHeader(AccessLogHandler.REQUEST_ID_HEADER));
+                            });
+                            return missing.getHeader(AccessLogHandler.REQUEST_ID_HEADER);
+                        })))
+                .onComplete(testContext.succeeding(requestId -> testContext.verify(() -> {
+                    ArgumentCaptor<String> line = ArgumentCaptor.forClass(String.class);
+                    verify(logger, timeout(1000)).info(line.capture());
+                    JsonObject entry = new JsonObject(line.getValue());
+                    assertEquals(requestId, entry.getString("requestId"));
+                    assertEquals("GET", entry.getString("method"));
+                    assertEquals("/missing", entry.getString("path"));
+                    assertEquals(404, entry.getInteger("status"));
+                    testContext.completeNow();
+                })));
+    }
+
+    @Test
+    void handle_ShouldKeepCallersRequestId_AndLogSuccesses_WhenSamplingEverything(Vertx vertx,
+            VertxTestContext testContext) {
+        Logger logger = mock(Logger.class);
+        when(logger.isInfoEnabled()).thenReturn(true);
+        HttpClient client = vertx.createHttpClient();
+
+        start(vertx, new AccessLogHandler(1, logger))
+                .compose(port -> get(client, port, "/ok", "trace-42"))
+                .onComplete(testContext.succeeding(response -> testContext.verify(() -> {
+                    assertEquals("trace-42", response.getHeader(AccessLogHandler.REQUEST_ID_HEADER));
+                    ArgumentCaptor<String> line = ArgumentCaptor.forClass(String.class);
+                    verify(logger, timeout(1000)).info(line.capture());
+                    JsonObject entry = new JsonObject(line.getValue());
+                    assertEquals("trace-42", entry.getString("requestId"));
+                    assertEquals(200, entry.getInteger("status"));
+                    assertEquals("devuser", entry.getString("user"));
+                    testContext.completeNow();
+                })));
+    }
+
+    @Test
+    void handle_ShouldNotLog_WhenLoggerIsOff(Vertx vertx, VertxTestContext testContext) {
+        Logger logger = mock(Logger.class);
+        HttpClient client = vertx.createHttpClient();
+
+        start(vertx, new AccessLogHandler(1, logger))
+                .compose(port -> get(client, port, "/missing", null))
+                .onComplete(testContext.succeeding(response -> testContext.verify(() -> {
+                    verify(logger, never()).info(anyString());
+                    testContext.completeNow();
+                })));
+    }
+
+    @Test
+    void handle_ShouldPutRequestIdIntoMdc_OfLinesLoggedWhileHandlingIt(Vertx vertx, VertxTestContext testContext) {
+        ch.qos.logback.classic.Logger logger = (ch.qos.logback.classic.Logger) LoggerFactory.getLogger(AccessLogHandlerTest.class);
+        ListAppender<ILoggingEvent> events = new ListAppender<>();
+        events.start();
+        logger.addAppender(events);
+        Router router = Router.router(vertx);
+        router.route().handler(new AccessLogHandler(0, mock(Logger.class)));
+        // logs from a later callback, the way a DynamoDB error is logged
+        router.get("/later").handler(ctx -> vertx.setTimer(1, id -> {
+            logger.info("answering");
+            ctx.response().end();
+        }));
+        HttpClient client = vertx.createHttpClient();
+
+        vertx.createHttpServer().requestHandler(router).listen(0, "localhost").map(HttpServer::actualPort)
+                .compose(port -> Future.all(get(client, port, "/later", "trace-1"), get(client, port, "/later", "trace-2")))
+                .onComplete(testContext.succeeding(all -> testContext.verify(() -> {
+                    logger.info("not for a request");
+                    logger.detachAppender(events);
+                    assertEquals(Set.of("trace-1", "trace-2"), Set.of(
+                            events.list.get(0).getMDCPropertyMap().get(AccessLogHandler.REQUEST_ID),
+                            events.list.get(1).getMDCPropertyMap().get(AccessLogHandler.REQUEST_ID)));
+                    assertNull(events.list.get(2).getMDCPropertyMap().get(AccessLogHandler.REQUEST_ID));
+                    testContext.completeNow();
+                })));
+    }
+
+    @Test
+    void requestId_ShouldReplaceUnusableIds() {
+        assertEquals("abc-123", AccessLogHandler.requestId("abc-123"));
+        assertEquals(16, AccessLogHandler.requestId(null).length());
+        assertEquals(16, AccessLogHandler.requestId("").length());
+        assertEquals(16, AccessLogHandler.requestId("has space").length());
+        assertEquals(16, AccessLogHandler.requestId("quote\"").length());
+        assertEquals(16, AccessLogHandler.requestId("x".repeat(129)).length());
+        assertTrue(AccessLogHandler.requestId(null).matches("[0-9a-f]{16}"));
+    }
+
+    private static Future<Integer> start(Vertx vertx, AccessLogHandler handler) {
+        Router router = Router.router(vertx);
+        router.route().handler(handler);
+        router.get("/ok").handler(new AuthMiddleware().authenticate()).handler(ctx -> ctx.response().end("ok"));
+        return vertx.createHttpServer().requestHandler(router).listen(0, "localhost").map(HttpServer::actualPort);
+    }
+
+    private static Future<HttpClientResponse> get(HttpClient client, int port, String uri, String requestId) {
+        return client.request(HttpMethod.GET, port, "localhost", uri)
+                .compose(request -> {
+                    if (requestId != null) {
+                        request.putHeader(AccessLogHandler.REQUEST_ID_HEADER, requestId);
+                    }
+                    return request.send();
+                })
+                .compose(response -> response.body().map(body -> response));
+    }
+}
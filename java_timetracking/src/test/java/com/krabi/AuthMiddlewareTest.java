@@ -96,6 +96,20 @@ class AuthMiddlewareTest {
         verify(routingContext, never()).next();
     }
 
+    @Test
+    void authenticate_ShouldReturn503_WhenVerifierIsOverloaded() {
+        when(request.getHeader("Authorization")).thenReturn("Bearer valid-token");
+        when(authService.validateToken("valid-token"))
+                .thenReturn(Future.failedFuture(new BulkheadRejectedException("auth-worker", 1)));
+
+        Handler<RoutingContext> handler = authMiddleware.authenticate();
+        handler.handle(routingContext);
+
+        verify(response).setStatusCode(503);
+        verify(response).putHeader("Retry-After", "1");
+        verify(routingContext, never()).next();
+    }
+
     @Test
     void authenticate_ShouldSetDevUser_WhenInDevMode() {
         AuthMiddleware devMiddleware = new AuthMiddleware(); // No authService
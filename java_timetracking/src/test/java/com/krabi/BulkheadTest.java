@@ -0,0 +1,71 @@
+package com.krabi;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+
+class BulkheadTest {
+
+    private Bulkhead bulkhead;
+
+    @BeforeEach
+    public void setUp() {
+        bulkhead = new Bulkhead("test", 1, 1);
+    }
+
+    @Test
+    void execute_ShouldRunImmediately_WhenSlotIsFree() {
+        Future<String> result = bulkhead.execute(() -> Future.succeededFuture("done"));
+
+        assertEquals("done", result.result());
+        assertEquals(0, bulkhead.active());
+    }
+
+    @Test
+    void execute_ShouldQueue_WhenAllSlotsAreBusy() {
+        Promise<String> first = Promise.promise();
+        bulkhead.execute(first::future);
+
+        Future<String> second = bulkhead.execute(() -> Future.succeededFuture("second"));
+
+        assertFalse(second.isComplete());
+        assertEquals(1, bulkhead.active());
+        assertEquals(1, bulkhead.queued());
+
+        first.complete("first");
+
+        assertEquals("second", second.result());
+        assertEquals(0, bulkhead.active());
+        assertEquals(0, bulkhead.queued());
+    }
+
+    @Test
+    void execute_ShouldReject_WhenQueueIsFull() {
+        Promise<String> first = Promise.promise();
+        bulkhead.execute(first::future);
+        bulkhead.execute(() -> Future.succeededFuture("queued"));
+
+        Future<String> rejected = bulkhead.execute(() -> Future.succeededFuture("rejected"));
+
+        assertTrue(rejected.failed());
+        BulkheadRejectedException e = assertInstanceOf(BulkheadRejectedException.class, rejected.cause());
+        assertEquals(Bulkhead.RETRY_AFTER_SECONDS, e.getRetryAfterSeconds());
+    }
+
+    @Test
+    void execute_ShouldReleaseSlot_WhenOperationThrows() {
+        Future<String> failed = bulkhead.execute(() -> {
+            throw new IllegalStateException("boom");
+        });
+
+        assertTrue(failed.failed());
+        assertEquals(0, bulkhead.active());
+        assertEquals("ok", bulkhead.execute(() -> Future.succeededFuture("ok")).result());
+    }
+}
@@ -0,0 +1,212 @@
+package com.krabi;
+
+import java.math.BigInteger;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.interfaces.RSAPrivateKey;
+import java.security.interfaces.RSAPublicKey;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import com.auth0.jwt.JWT;
+import com.auth0.jwt.algorithms.Algorithm;
+
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.core.http.HttpServer;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.junit5.VertxExtension;
+import io.vertx.junit5.VertxTestContext;
+
+@ExtendWith(VertxExtension.class)
+class CognitoAuthServiceTest {
+
+    private static final String REGION = "eu-north-1";
+    private static final String USER_POOL_ID = "eu-north-1_test";
+    private static final String CLIENT_ID = "test-client";
+
+    private static KeyPair key1;
+    private static KeyPair key2;
+
+    // local JWKS stub, serves whatever is in jwks and counts fetches
+    private HttpServer jwksServer;
+    private volatile JsonObject jwks;
+    private final AtomicInteger jwksRequests = new AtomicInteger();
+    private String jwksUrl;
+
+    @BeforeAll
+    static void generateKeys() throws Exception {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+        generator.initialize(2048);
+        key1 = generator.generateKeyPair();
+        key2 = generator.generateKeyPair();
+    }
+
+    @BeforeEach
+    void startJwksServer(Vertx vertx, VertxTestContext testContext) {
+        jwks = jwks(jwk("kid-1", key1));
+        jwksServer = vertx.createHttpServer().requestHandler(req -> {
+            jwksRequests.incrementAndGet();
+            req.response().putHeader("content-type", "application/json").end(jwks.encode());
+        });
+        jwksServer.listen(0, "localhost")
+                .onSuccess(server -> jwksUrl = "http://localhost:" + server.actualPort() + "/.well-known/jwks.json")
+                .onComplete(testContext.succeedingThenComplete());
+    }
+
+    @AfterEach
+    void stopJwksServer() {
+        jwksServer.close();
+    }
+
+    @Test
+    void validateToken_ShouldVerifyWithPreloadedKey(Vertx vertx, VertxTestContext testContext) {
+        CognitoAuthService authService = authService(vertx, new JwksKeyStore(vertx, jwksUrl));
+
+        authService.start()
+                .compose(v -> authService.validateToken(token("kid-1", key1, "user1")))
+                .onComplete(testContext.succeeding(userInfo -> testContext.verify(() -> {
+                    assertEquals("user1", userInfo.getString("username"));
+                    assertEquals(1, jwksRequests.get());
+                    testContext.completeNow();
+                })));
+    }
+
+    @Test
+    void validateToken_ShouldFail_WhenSignatureDoesNotMatchKey(Vertx vertx, VertxTestContext testContext) {
+        CognitoAuthService authService = authService(vertx, new JwksKeyStore(vertx, jwksUrl));
+
+        authService.start()
+                .compose(v -> authService.validateToken(token("kid-1", key2, "user1")))
+                .onComplete(testContext.failingThenComplete());
+    }
+
+    @Test
+    void validateToken_ShouldRecordVerifyTimeAndFailures(Vertx vertx, VertxTestContext testContext) {
+        Metrics metrics = new Metrics();
+        CognitoAuthService authService = new CognitoAuthService(vertx, USER_POOL_ID, CLIENT_ID, REGION, null,
+                new JwksKeyStore(vertx, jwksUrl), null, null, metrics);
+
+        authService.start()
+                .compose(v -> authService.validateToken(token("kid-1", key1, "user1")))
+                .compose(v -> authService.validateToken(token("kid-1", key2, "user1")))
+                .onComplete(testContext.failing(err -> testContext.verify(() -> {
+                    String scrape = metrics.scrape();
+                    assertTrue(scrape.contains("auth_jwt_verify_seconds_count 2\n"), scrape);
+                    assertTrue(scrape.contains("auth_jwt_failures_total 1\n"), scrape);
+                    testContext.completeNow();
+                })));
+    }
+
+    @Test
+    void getKey_ShouldCoalesceRefreshes_WhenKidIsUnknown(Vertx vertx, VertxTestContext testContext) {
+        JwksKeyStore keyStore = new JwksKeyStore(vertx, jwksUrl, JwksKeyStore.DEFAULT_REFRESH_INTERVAL_MILLIS, 0);
+
+        keyStore.start()
+                .compose(v -> {
+                    // key rotation: the pool starts signing with a key this store has not seen
+                    jwks = jwks(jwk("kid-1", key1), jwk("kid-2", key2));
+                    List<Future<RSAPublicKey>> lookups = new ArrayList<>();
+                    for (int i = 0; i < 100; i++) {
+                        lookups.add(keyStore.getKey("kid-2"));
+                    }
+                    return Future.all(lookups);
+                })
+                .onComplete(testContext.succeeding(all -> testContext.verify(() -> {
+                    assertEquals(key2.getPublic(), all.resultAt(0));
+                    assertEquals(2, jwksRequests.get());
+                    testContext.completeNow();
+                })));
+    }
+
+    @Test
+    void getKey_ShouldNotRefetch_WhenRefreshedRecently(Vertx vertx, VertxTestContext testContext) {
+        JwksKeyStore keyStore = new JwksKeyStore(vertx, jwksUrl);
+
+        keyStore.start()
+                .compose(v -> keyStore.getKey("unknown-kid"))
+                .onComplete(testContext.failing(err -> testContext.verify(() -> {
+                    assertTrue(err.getMessage().contains("unknown-kid"));
+                    assertEquals(1, jwksRequests.get());
+                    testContext.completeNow();
+                })));
+    }
+
+    @Test
+    void verifierFor_ShouldReuseVerifier_AndDropRotatedOutKids(Vertx vertx, VertxTestContext testContext) {
+        JwksKeyStore keyStore = new JwksKeyStore(vertx, jwksUrl, JwksKeyStore.DEFAULT_REFRESH_INTERVAL_MILLIS, 0);
+        CognitoAuthService authService = authService(vertx, keyStore);
+
+        authService.start()
+                .compose(v -> authService.validateToken(token("kid-1", key1, "user1")))
+                .compose(v -> authService.validateToken(token("kid-1", key1, "user2")))
+                .compose(v -> {
+                    testContext.verify(() -> assertSame(
+                            authService.verifierFor("kid-1", (RSAPublicKey) key1.getPublic()),
+                            authService.verifierFor("kid-1", (RSAPublicKey) key1.getPublic())));
+                    // the pool rotates kid-1 out and signs with kid-2 only
+                    jwks = jwks(jwk("kid-2", key2));
+                    return authService.validateToken(token("kid-2", key2, "user1"));
+                })
+                .onComplete(testContext.succeeding(userInfo -> testContext.verify(() -> {
+                    assertEquals(1, authService.cachedVerifiers());
+                    testContext.completeNow();
+                })));
+    }
+
+    private static CognitoAuthService authService(Vertx vertx, JwksKeyStore keyStore) {
+        return new CognitoAuthService(vertx, USER_POOL_ID, CLIENT_ID, REGION, null, keyStore);
+    }
+
+    private static String token(String kid, KeyPair keyPair, String username) {
+        return JWT.create()
+                .withKeyId(kid)
+                .withIssuer("https://cognito-idp." + REGION + ".amazonaws.com/" + USER_POOL_ID)
+                .withAudience(CLIENT_ID)
+                .withSubject("sub-" + username)
+                .withClaim("cognito:username", username)
+                .withExpiresAt(new Date(System.currentTimeMillis() + 3_600_000))
+                .sign(Algorithm.RSA256((RSAPublicKey) keyPair.getPublic(), (RSAPrivateKey) keyPair.getPrivate()));
+    }
+
+    private static JsonObject jwks(JsonObject... keys) {
+        JsonArray array = new JsonArray();
+        for (JsonObject key : keys) {
+            array.add(key);
+        }
+        return new JsonObject().put("keys", array);
+    }
+
+    private static JsonObject jwk(String kid, KeyPair keyPair) {
+        RSAPublicKey publicKey = (RSAPublicKey) keyPair.getPublic();
+        return new JsonObject()
+                .put("kty", "RSA")
+                .put("alg", "RS256")
+                .put("use", "sig")
+                .put("kid", kid)
+                .put("n", base64Url(publicKey.getModulus()))
+                .put("e", base64Url(publicKey.getPublicExponent()));
+    }
+
+    private static String base64Url(BigInteger value) {
+        byte[] bytes = value.toByteArray();
+        if (bytes[0] == 0) {
+            bytes = Arrays.copyOfRange(bytes, 1, bytes.length);
+        }
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+}
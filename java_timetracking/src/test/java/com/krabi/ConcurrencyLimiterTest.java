@@ -0,0 +1,92 @@
+package com.krabi;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+class ConcurrencyLimiterTest {
+
+    private static final long MILLIS = 1_000_000;
+
+    @Test
+    void tryAcquire_ShouldReject_WhenLimitIsInFlight() {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter("test", 2, 2);
+
+        assertTrue(limiter.tryAcquire());
+        assertTrue(limiter.tryAcquire());
+        assertFalse(limiter.tryAcquire());
+
+        limiter.release(MILLIS, false);
+
+        assertEquals(1, limiter.inFlight());
+        assertTrue(limiter.tryAcquire());
+    }
+
+    @Test
+    void release_ShouldRaiseLimit_WhileLatencyStaysFlatUnderLoad() {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter("test", 10, 1000);
+
+        runAtLimit(limiter, 200, 10 * MILLIS);
+
+        assertTrue(limiter.limit() > ConcurrencyLimiter.INITIAL_LIMIT, "limit " + limiter.limit());
+    }
+
+    @Test
+    void release_ShouldLowerLimit_WhenLatencyClimbsWellAboveBaseline() {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter("test", 10, 1000);
+        runAtLimit(limiter, 50, 10 * MILLIS);
+        int before = limiter.limit();
+
+        runAtLimit(limiter, 200, 100 * MILLIS);
+
+        assertTrue(limiter.limit() < before / 2, "limit " + limiter.limit() + " was " + before);
+    }
+
+    @Test
+    void release_ShouldNotGrowLimit_WhenLoadIsLight() {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter("test", 10, 1000);
+
+        for (int i = 0; i < 100; i++) {
+            limiter.tryAcquire();
+            limiter.release(MILLIS, false);
+        }
+
+        assertEquals(ConcurrencyLimiter.INITIAL_LIMIT, limiter.limit());
+    }
+
+    @Test
+    void release_ShouldBackOff_OnFailures_ButNotBelowMinimum() {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter("test", 50, 1000);
+
+        limiter.tryAcquire();
+        limiter.release(MILLIS, true);
+
+        assertEquals(90, limiter.limit());
+        for (int i = 0; i < 20; i++) {
+            limiter.tryAcquire();
+            limiter.release(MILLIS, true);
+        }
+        assertEquals(50, limiter.limit());
+    }
+
+    @Test
+    void constructor_ShouldRejectInvalidLimits() {
+        assertThrows(IllegalArgumentException.class, () -> new ConcurrencyLimiter("test", 0, 10));
+        assertThrows(IllegalArgumentException.class, () -> new ConcurrencyLimiter("test", 10, 5));
+    }
+
+    // keeps the limiter full and completes one request per round with the given latency
+    private static void runAtLimit(ConcurrencyLimiter limiter, int rounds, long rttNanos) {
+        for (int i = 0; i < rounds; i++) {
+            while (limiter.tryAcquire()) {
+                // fill every free slot
+            }
+            limiter.release(rttNanos, false);
+        }
+        while (limiter.inFlight() > 0) {
+            limiter.release(rttNanos, false);
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.krabi;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import org.junit.jupiter.api.Test;
+
+import software.amazon.awssdk.services.dynamodb.DynamoDbAsyncClient;
+
+class DynamoDBClientProviderTest {
+
+    @Test
+    void getClient_ShouldBuildOneClient_WhenInstancesStartConcurrently() throws Exception {
+        int instances = 8;
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(instances);
+        try {
+            List<Future<DynamoDbAsyncClient>> clients = new ArrayList<>();
+            for (int i = 0; i < instances; i++) {
+                Callable<DynamoDbAsyncClient> getClient = () -> {
+                    start.await();
+                    return DynamoDBClientProvider.getClient();
+                };
+                clients.add(executor.submit(getClient));
+            }
+            start.countDown();
+
+            DynamoDbAsyncClient first = clients.get(0).get();
+            assertNotNull(first);
+            for (Future<DynamoDbAsyncClient> client : clients) {
+                assertSame(first, client.get());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.krabi;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import software.amazon.awssdk.core.metrics.CoreMetric;
+import software.amazon.awssdk.metrics.MetricCollector;
+
+class MetricsTest {
+
+    private Metrics metrics;
+
+    @BeforeEach
+    public void setUp() {
+        metrics = new Metrics();
+    }
+
+    @Test
+    void timer_ShouldExportCumulativeBuckets() {
+        Metrics.Timer timer = metrics.timer("latency_seconds", "Latency", "route", "/api/tasks");
+        timer.record(TimeUnit.MICROSECONDS.toNanos(300));
+        timer.record(TimeUnit.MILLISECONDS.toNanos(3));
+        timer.record(TimeUnit.SECONDS.toNanos(30));
+
+        String scrape = metrics.scrape();
+
+        assertTrue(scrape.contains("# TYPE latency_seconds histogram\n"));
+        assertTrue(scrape.contains("latency_seconds_bucket{route=\"/api/tasks\",le=\"0.0005\"} 1\n"));
+        assertTrue(scrape.contains("latency_seconds_bucket{route=\"/api/tasks\",le=\"0.005\"} 2\n"));
+        assertTrue(scrape.contains("latency_seconds_bucket{route=\"/api/tasks\",le=\"10\"} 2\n"));
+        assertTrue(scrape.contains("latency_seconds_bucket{route=\"/api/tasks\",le=\"+Inf\"} 3\n"));
+        assertTrue(scrape.contains("latency_seconds_sum{route=\"/api/tasks\"} 30.0033\n"));
+        assertTrue(scrape.contains("latency_seconds_count{route=\"/api/tasks\"} 3\n"));
+    }
+
+    @Test
+    void timer_ShouldKeepCountsAcrossScrapes_AndTrackPercentiles() {
+        Metrics.Timer timer = metrics.timer("latency_seconds", "Latency");
+        for (int i = 1; i <= 100; i++) {
+            timer.record(TimeUnit.MILLISECONDS.toNanos(i));
+        }
+        metrics.scrape();
+        timer.record(TimeUnit.MILLISECONDS.toNanos(1));
+
+        assertEquals(101, timer.count());
+        assertEquals(0.099, timer.percentile(99), 0.001);
+    }
+
+    @Test
+    void register_ShouldReturnSameSeries_ForSameLabels() {
+        Metrics.Counter counter = metrics.counter("requests_total", "Requests", "status", "200");
+        counter.increment();
+
+        assertSame(counter, metrics.counter("requests_total", "Requests", "status", "200"));
+        assertThrows(IllegalArgumentException.class, () -> metrics.timer("requests_total", "Requests"));
+    }
+
+    @Test
+    void scrape_ShouldReadGaugesAndEscapeLabels() {
+        metrics.gauge("queue_depth", "Queued", () -> 7, "name", "say \"hi\"\\");
+        metrics.gauge("hit_ratio", "Ratio", () -> 0.25);
+        metrics.counter("hits_total", "Hits", () -> 42L);
+
+        String scrape = metrics.scrape();
+
+        assertTrue(scrape.contains("queue_depth{name=\"say \\\"hi\\\"\\\\\"} 7\n"));
+        assertTrue(scrape.contains("hit_ratio 0.25\n"));
+        assertTrue(scrape.contains("# TYPE hits_total counter\nhits_total 42\n"));
+    }
+
+    @Test
+    void dynamoDbPublisher_ShouldRecordLatencyRetriesAndErrorType() {
+        DynamoDbMetricsPublisher publisher = new DynamoDbMetricsPublisher(metrics);
+        MetricCollector call = MetricCollector.create("ApiCall");
+        call.reportMetric(CoreMetric.OPERATION_NAME, "PutItem");
+        call.reportMetric(CoreMetric.API_CALL_DURATION, Duration.ofMillis(12));
+        call.reportMetric(CoreMetric.RETRY_COUNT, 2);
+        call.reportMetric(CoreMetric.API_CALL_SUCCESSFUL, false);
+        call.createChild("ApiCallAttempt").reportMetric(CoreMetric.ERROR_TYPE, "Throttling");
+
+        publisher.publish(call.collect());
+
+        String scrape = metrics.scrape();
+        assertTrue(scrape.contains("dynamodb_request_seconds_count{operation=\"PutItem\"} 1\n"));
+        assertTrue(scrape.contains("dynamodb_retries_total{operation=\"PutItem\"} 2\n"));
+        assertTrue(scrape.contains("dynamodb_errors_total{operation=\"PutItem\",error_type=\"Throttling\"} 1\n"));
+    }
+}
@@ -0,0 +1,72 @@
+package com.krabi;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.core.http.HttpClient;
+import io.vertx.core.http.HttpClientResponse;
+import io.vertx.core.http.HttpMethod;
+import io.vertx.core.http.HttpServer;
+import io.vertx.ext.web.Router;
+import io.vertx.junit5.VertxExtension;
+import io.vertx.junit5.VertxTestContext;
+
+@ExtendWith(VertxExtension.class)
+class RateLimitHandlerTest {
+
+    @Test
+    void handle_ShouldAnswer429_OnceReadBudgetIsSpent_WithoutTouchingWrites(Vertx vertx,
+            VertxTestContext testContext) {
+        HttpClient client = vertx.createHttpClient();
+        RateLimitHandler handler = new RateLimitHandler(new RateLimiter("read", 1, 1, 10),
+                new RateLimiter("write", 1, 1, 10));
+
+        start(vertx, handler)
+                .compose(port -> send(client, port, HttpMethod.GET)
+                        .compose(first -> send(client, port, HttpMethod.GET)
+                                .compose(second -> send(client, port, HttpMethod.POST)
+                                        .map(write -> {
+                                            testContext.verify(() -> {
+                                                assertEquals(200, first.statusCode());
+                                                assertEquals("1", first.getHeader(RateLimitHandler.LIMIT_HEADER));
+                                                assertEquals("0", first.getHeader(RateLimitHandler.REMAINING_HEADER));
+                                                assertEquals("1", first.getHeader(RateLimitHandler.RESET_HEADER));
+                                                assertEquals(429, second.statusCode());
+                                                assertEquals("1", second.getHeader("Retry-After"));
+                                                assertEquals(200, write.statusCode());
+                                            });
+                                            return write;
+                                        }))))
+                .onComplete(testContext.succeedingThenComplete());
+    }
+
+    @Test
+    void handle_ShouldPassWithoutHeaders_WhenBudgetIsOff(Vertx vertx, VertxTestContext testContext) {
+        HttpClient client = vertx.createHttpClient();
+
+        start(vertx, new RateLimitHandler(null, new RateLimiter("write", 1, 1, 10)))
+                .compose(port -> send(client, port, HttpMethod.GET))
+                .onComplete(testContext.succeeding(response -> testContext.verify(() -> {
+                    assertEquals(200, response.statusCode());
+                    assertNull(response.getHeader(RateLimitHandler.LIMIT_HEADER));
+                    testContext.completeNow();
+                })));
+    }
+
+    private static Future<Integer> start(Vertx vertx, RateLimitHandler handler) {
+        Router router = Router.router(vertx);
+        router.route("/tasks").handler(new AuthMiddleware().authenticate()).handler(handler)
+                .handler(ctx -> ctx.response().end("ok"));
+        return vertx.createHttpServer().requestHandler(router).listen(0, "localhost").map(HttpServer::actualPort);
+    }
+
+    private static Future<HttpClientResponse> send(HttpClient client, int port, HttpMethod method) {
+        return client.request(method, port, "localhost", "/tasks")
+                .compose(request -> request.send())
+                .compose(response -> response.body().map(body -> response));
+    }
+}
@@ -0,0 +1,101 @@
+package com.krabi;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+import com.google.common.base.Ticker;
+
+class RateLimiterTest {
+
+    // starts far from zero, as System.nanoTime may
+    private final AtomicLong nanos = new AtomicLong(-TimeUnit.DAYS.toNanos(1));
+    private final Ticker ticker = new Ticker() {
+        @Override
+        public long read() {
+            return nanos.get();
+        }
+    };
+
+    @Test
+    void tryAcquire_ShouldAllowBurst_ThenReject() {
+        RateLimiter limiter = new RateLimiter("read", 1, 3, 10, ticker);
+
+        RateLimiter.Decision first = limiter.tryAcquire("user1");
+        limiter.tryAcquire("user1");
+        RateLimiter.Decision third = limiter.tryAcquire("user1");
+        RateLimiter.Decision fourth = limiter.tryAcquire("user1");
+
+        assertTrue(first.allowed());
+        assertEquals(3, first.limit());
+        assertEquals(2, first.remaining());
+        assertEquals(1, first.resetSeconds());
+        assertTrue(third.allowed());
+        assertEquals(0, third.remaining());
+        assertEquals(3, third.resetSeconds());
+        assertFalse(fourth.allowed());
+        assertEquals(1, fourth.retryAfterSeconds());
+        assertEquals(1, limiter.rejected());
+    }
+
+    @Test
+    void tryAcquire_ShouldRefillAtRate() {
+        RateLimiter limiter = new RateLimiter("write", 2, 2, 10, ticker);
+        limiter.tryAcquire("user1");
+        limiter.tryAcquire("user1");
+        assertFalse(limiter.tryAcquire("user1").allowed());
+
+        nanos.addAndGet(TimeUnit.MILLISECONDS.toNanos(500));
+
+        RateLimiter.Decision refilled = limiter.tryAcquire("user1");
+        assertTrue(refilled.allowed());
+        assertEquals(0, refilled.remaining());
+        assertFalse(limiter.tryAcquire("user1").allowed());
+    }
+
+    @Test
+    void tryAcquire_ShouldKeepUsersApart() {
+        RateLimiter limiter = new RateLimiter("read", 1, 1, 10, ticker);
+
+        assertTrue(limiter.tryAcquire("user1").allowed());
+        assertFalse(limiter.tryAcquire("user1").allowed());
+
+        assertTrue(limiter.tryAcquire("user2").allowed());
+    }
+
+    @Test
+    void buckets_ShouldBeDropped_OnceIdleLongEnoughToRefill() {
+        RateLimiter limiter = new RateLimiter("read", 10, 5, 10, ticker);
+        limiter.tryAcquire("user1");
+        assertEquals(1, limiter.users());
+
+        nanos.addAndGet(TimeUnit.MILLISECONDS.toNanos(501));
+        limiter.tryAcquire("user2");
+
+        assertEquals(1, limiter.users());
+        assertEquals(4, limiter.tryAcquire("user1").remaining());
+    }
+
+    @Test
+    void buckets_ShouldStayWithinMaxUsers() {
+        RateLimiter limiter = new RateLimiter("read", 1, 1, 2, ticker);
+
+        for (int i = 0; i < 100; i++) {
+            limiter.tryAcquire("user" + i);
+        }
+
+        assertTrue(limiter.users() <= 2, "users " + limiter.users());
+    }
+
+    @Test
+    void constructor_ShouldRejectInvalidSettings() {
+        assertThrows(IllegalArgumentException.class, () -> new RateLimiter("read", 0, 1, 1));
+        assertThrows(IllegalArgumentException.class, () -> new RateLimiter("read", 1, 0, 1));
+        assertThrows(IllegalArgumentException.class, () -> new RateLimiter("read", 1, 1, 0));
+    }
+}
@@ -0,0 +1,52 @@
+package com.krabi;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.core.http.HttpClient;
+import io.vertx.core.http.HttpMethod;
+import io.vertx.core.http.HttpServer;
+import io.vertx.ext.web.Router;
+import io.vertx.junit5.VertxExtension;
+import io.vertx.junit5.VertxTestContext;
+
+@ExtendWith(VertxExtension.class)
+class RequestMetricsHandlerTest {
+
+    @Test
+    void handle_ShouldTimeRequestsByRouteTemplate(Vertx vertx, VertxTestContext testContext) {
+        Metrics metrics = new Metrics();
+        Router router = Router.router(vertx);
+        Router apiRouter = Router.router(vertx);
+        apiRouter.route().handler(new RequestMetricsHandler(metrics, "/api"));
+        apiRouter.get("/tasks/:id").handler(ctx -> ctx.response().end("task " + ctx.pathParam("id")));
+        router.route("/api/*").subRouter(apiRouter);
+        HttpClient client = vertx.createHttpClient();
+
+        vertx.createHttpServer().requestHandler(router).listen(0, "localhost")
+                .map(HttpServer::actualPort)
+                .compose(port -> get(client, port, "/api/tasks/1")
+                        .compose(v -> get(client, port, "/api/tasks/2"))
+                        .compose(v -> get(client, port, "/api/missing")))
+                .onComplete(testContext.succeeding(v -> testContext.verify(() -> {
+                    String scrape = metrics.scrape();
+                    assertTrue(scrape.contains(
+                            "http_server_requests_seconds_count{method=\"GET\",route=\"/api/tasks/:id\",status=\"200\"} 2\n"),
+                            scrape);
+                    assertTrue(scrape.contains(
+                            "http_server_requests_seconds_count{method=\"GET\",route=\"unmatched\",status=\"404\"} 1\n"),
+                            scrape);
+                    testContext.completeNow();
+                })));
+    }
+
+    private static Future<Void> get(HttpClient client, int port, String uri) {
+        return client.request(HttpMethod.GET, port, "localhost", uri)
+                .compose(request -> request.send())
+                .compose(response -> response.body())
+                .mapEmpty();
+    }
+}
@@ -0,0 +1,201 @@
+package com.krabi;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import static org.mockito.ArgumentMatchers.any;
+import org.mockito.Mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import io.vertx.core.Future;
+import io.vertx.core.json.JsonObject;
+import software.amazon.awssdk.services.dynamodb.DynamoDbAsyncClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.QueryRequest;
+import software.amazon.awssdk.services.dynamodb.model.QueryResponse;
+import software.amazon.awssdk.services.dynamodb.model.UpdateItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.UpdateItemResponse;
+
+@ExtendWith(MockitoExtension.class)
+class SummaryServiceTest {
+
+    @Mock
+    private DynamoDbAsyncClient dynamoDbClient;
+
+    private SummaryService summaryService;
+
+    @BeforeEach
+    public void setUp() {
+        summaryService = new SummaryService(dynamoDbClient);
+    }
+
+    @Test
+    void recordChange_ShouldAddHoursAndCount_WhenTaskIsCreated() {
+        when(dynamoDbClient.updateItem(any(UpdateItemRequest.class)))
+                .thenReturn(CompletableFuture.completedFuture(UpdateItemResponse.builder().build()));
+
+        summaryService.recordChange(null, new Task(1L, "2023-10-27", "Project A", 8, "Coding", "user1"));
+
+        ArgumentCaptor<UpdateItemRequest> captor = ArgumentCaptor.forClass(UpdateItemRequest.class);
+        verify(dynamoDbClient).updateItem(captor.capture());
+        UpdateItemRequest request = captor.getValue();
+        assertEquals("TaskSummaries", request.tableName());
+        assertEquals("user1#2023-10", request.key().get("userMonth").s());
+        assertEquals("Project A", request.key().get("project").s());
+        assertEquals("ADD hours :hours, taskCount :count", request.updateExpression());
+        assertEquals("8", request.expressionAttributeValues().get(":hours").n());
+        assertEquals("1", request.expressionAttributeValues().get(":count").n());
+    }
+
+    @Test
+    void recordChange_ShouldAddOnlyHourDelta_WhenSameProjectAndMonth() {
+        when(dynamoDbClient.updateItem(any(UpdateItemRequest.class)))
+                .thenReturn(CompletableFuture.completedFuture(UpdateItemResponse.builder().build()));
+
+        summaryService.recordChange(new Task(1L, "2023-10-27", "Project A", 8, "Coding", "user1"),
+                new Task(1L, "2023-10-02", "Project A", 5, "Coding", "user1"));
+
+        ArgumentCaptor<UpdateItemRequest> captor = ArgumentCaptor.forClass(UpdateItemRequest.class);
+        verify(dynamoDbClient).updateItem(captor.capture());
+        assertEquals("-3", captor.getValue().expressionAttributeValues().get(":hours").n());
+        assertEquals("0", captor.getValue().expressionAttributeValues().get(":count").n());
+    }
+
+    @Test
+    void recordChange_ShouldMoveCounters_WhenProjectChanges() {
+        when(dynamoDbClient.updateItem(any(UpdateItemRequest.class)))
+                .thenReturn(CompletableFuture.completedFuture(UpdateItemResponse.builder().build()));
+
+        summaryService.recordChange(new Task(1L, "2023-10-27", "Project A", 8, "Coding", "user1"),
+                new Task(1L, "2023-11-01", "Project B", 8, "Coding", "user1"));
+
+        ArgumentCaptor<UpdateItemRequest> captor = ArgumentCaptor.forClass(UpdateItemRequest.class);
+        verify(dynamoDbClient, times(2)).updateItem(captor.capture());
+        assertEquals("user1#2023-10", captor.getAllValues().get(0).key().get("userMonth").s());
+        assertEquals("-1", captor.getAllValues().get(0).expressionAttributeValues().get(":count").n());
+        assertEquals("user1#2023-11", captor.getAllValues().get(1).key().get("userMonth").s());
+        assertEquals("1", captor.getAllValues().get(1).expressionAttributeValues().get(":count").n());
+    }
+
+    @Test
+    void recordChange_ShouldSkipUpdate_WhenNothingChanged() {
+        Task task = new Task(1L, "2023-10-27", "Project A", 8, "Coding", "user1");
+
+        assertTrue(summaryService.recordChange(task, task).succeeded());
+        verify(dynamoDbClient, never()).updateItem(any(UpdateItemRequest.class));
+    }
+
+    @Test
+    void getSummary_ShouldSumCountersAndSkipEmptyProjects() {
+        QueryResponse response = QueryResponse.builder()
+                .items(List.of(counter("Project A", 12, 2), counter("Project B", 4, 1), counter("Project C", 0, 0)))
+                .build();
+        when(dynamoDbClient.query(any(QueryRequest.class))).thenReturn(CompletableFuture.completedFuture(response));
+
+        MonthlySummary summary = summaryService.getSummary("user1", "2023-10").result();
+
+        assertEquals(16, summary.getTotalHours());
+        assertEquals(3, summary.getTaskCount());
+        assertEquals(Map.of("Project A", 12, "Project B", 4), summary.getProjects());
+    }
+
+    @Test
+    void getSummary_ShouldFollowPages_AndKeepHoursLeftWithoutTasks() {
+        Map<String, AttributeValue> next = Map.of("userMonth", AttributeValue.builder().s("user1#2023-10").build(),
+                "project", AttributeValue.builder().s("Project A").build());
+        when(dynamoDbClient.query(any(QueryRequest.class)))
+                .thenReturn(CompletableFuture.completedFuture(QueryResponse.builder()
+                        .items(List.of(counter("Project A", 12, 2))).lastEvaluatedKey(next).build()))
+                .thenReturn(CompletableFuture.completedFuture(QueryResponse.builder()
+                        .items(List.of(counter("Project B", 3, 0))).build()));
+
+        MonthlySummary summary = summaryService.getSummary("user1", "2023-10").result();
+
+        ArgumentCaptor<QueryRequest> captor = ArgumentCaptor.forClass(QueryRequest.class);
+        verify(dynamoDbClient, times(2)).query(captor.capture());
+        assertEquals(next, captor.getAllValues().get(1).exclusiveStartKey());
+        // drifted: no tasks counted but hours left behind
+        assertEquals(Map.of("Project A", 12, "Project B", 3), summary.getProjects());
+        assertEquals(15, summary.getTotalHours());
+        assertEquals(2, summary.getTaskCount());
+    }
+
+    @Test
+    void getSummary_ShouldRebuildCountersFromStoredTasks_WhenMonthWasNeverRebuilt() {
+        // counted since the deploy only, the tasks stored before were never added
+        when(dynamoDbClient.query(any(QueryRequest.class))).thenReturn(CompletableFuture.completedFuture(
+                QueryResponse.builder().items(List.of(counter("Project A", 4, 1), counter("Project C", 2, 1))).build()));
+        when(dynamoDbClient.updateItem(any(UpdateItemRequest.class)))
+                .thenReturn(CompletableFuture.completedFuture(UpdateItemResponse.builder().build()));
+        List<Task> stored = List.of(
+                new Task(1L, "2023-10-02", "Project A", 8, "Coding", "user1"),
+                new Task(2L, "2023-10-27", "Project A", 4, "Review", "user1"),
+                new Task(3L, "2023-10-28", "Project B", 5, "Coding", "user1"));
+
+        MonthlySummary summary = summaryService.getSummary("user1", "2023-10", () -> Future.succeededFuture(stored)).result();
+
+        assertEquals(Map.of("Project A", 12, "Project B", 5), summary.getProjects());
+        assertEquals(3, summary.getTaskCount());
+        ArgumentCaptor<UpdateItemRequest> captor = ArgumentCaptor.forClass(UpdateItemRequest.class);
+        verify(dynamoDbClient, times(4)).updateItem(captor.capture());
+        Map<String, String> written = new HashMap<>();
+        for (UpdateItemRequest request : captor.getAllValues()) {
+            assertEquals("SET hours = :hours, taskCount = :count", request.updateExpression());
+            written.put(request.key().get("project").s(), request.expressionAttributeValues().get(":hours").n()
+                    + "/" + request.expressionAttributeValues().get(":count").n());
+        }
+        assertEquals(Map.of("Project A", "12/2", "Project B", "5/1", "Project C", "0/0", SummaryService.REBUILT, "0/0"),
+                written);
+        // the marker is written once the counters are
+        assertEquals(SummaryService.REBUILT, captor.getAllValues().get(3).key().get("project").s());
+    }
+
+    @Test
+    void getSummary_ShouldTrustCounters_OnceMonthWasRebuilt() {
+        when(dynamoDbClient.query(any(QueryRequest.class))).thenReturn(CompletableFuture.completedFuture(
+                QueryResponse.builder().items(List.of(counter("Project A", 4, 1), counter(SummaryService.REBUILT, 0, 0))).build()));
+
+        MonthlySummary summary = summaryService.getSummary("user1", "2023-10",
+                () -> Future.failedFuture("must not read tasks")).result();
+
+        assertEquals(Map.of("Project A", 4), summary.getProjects());
+        verify(dynamoDbClient, never()).updateItem(any(UpdateItemRequest.class));
+    }
+
+    @Test
+    void checkConsistency_ShouldReportDrift() {
+        QueryResponse response = QueryResponse.builder().items(List.of(counter("Project A", 10, 2))).build();
+        when(dynamoDbClient.query(any(QueryRequest.class))).thenReturn(CompletableFuture.completedFuture(response));
+        List<Task> tasks = List.of(
+                new Task(1L, "2023-10-27", "Project A", 8, "Coding", "user1"),
+                new Task(2L, "2023-10-28", "Project A", 4, "Review", "user1"));
+
+        JsonObject report = summaryService.checkConsistency("user1", "2023-10", tasks).result();
+
+        assertFalse(report.getBoolean("consistent"));
+        assertEquals(12, report.getJsonArray("drift").getJsonObject(0).getInteger("expectedHours"));
+        assertEquals(10, report.getJsonArray("drift").getJsonObject(0).getInteger("storedHours"));
+    }
+
+    private static Map<String, AttributeValue> counter(String project, int hours, int count) {
+        Map<String, AttributeValue> item = new HashMap<>();
+        item.put("userMonth", AttributeValue.builder().s("user1#2023-10").build());
+        item.put("project", AttributeValue.builder().s(project).build());
+        item.put("hours", AttributeValue.builder().n(Integer.toString(hours)).build());
+        item.put("taskCount", AttributeValue.builder().n(Integer.toString(count)).build());
+        return item;
+    }
+}
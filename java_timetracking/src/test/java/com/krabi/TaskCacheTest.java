@@ -0,0 +1,111 @@
+package com.krabi;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.google.common.base.Ticker;
+
+class TaskCacheTest {
+
+    private final AtomicLong nanos = new AtomicLong();
+    private TaskCache cache;
+
+    @BeforeEach
+    public void setUp() {
+        cache = new TaskCache(2, 60_000, new Ticker() {
+            @Override
+            public long read() {
+                return nanos.get();
+            }
+        });
+    }
+
+    @Test
+    void getTasks_ShouldFilterCachedFullList() {
+        Task january = new Task(1L, "2025-01-15", "Project A", 8, "Coding", "user1");
+        Task february = new Task(2L, "2025-02-15", "Project A", 8, "Coding", "user1");
+        cache.putTasks("user1", TaskFilter.NONE, cache.readStamp("user1"), List.of(january, february));
+
+        List<Task> tasks = cache.getTasks("user1", TaskFilter.forMonth("2025-02"));
+
+        assertEquals(List.of(february), tasks);
+        assertEquals(1, cache.hits());
+    }
+
+    @Test
+    void putTasks_ShouldBeDiscarded_WhenUserWroteDuringRead() {
+        long readStamp = cache.readStamp("user1");
+        cache.written(null, new Task(1L, "2025-01-15", "Project A", 8, "Coding", "user1"));
+
+        cache.putTasks("user1", TaskFilter.NONE, readStamp, List.of());
+
+        assertNull(cache.getTasks("user1", TaskFilter.NONE));
+    }
+
+    @Test
+    void written_ShouldReplaceTaskAndDropListsOfOldAndNewOwner() {
+        Task old = new Task(1L, "2025-01-15", "Project A", 8, "Coding", "user1");
+        cache.putTasks("user1", TaskFilter.NONE, cache.readStamp("user1"), List.of(old));
+        Task moved = new Task(1L, "2025-01-15", "Project A", 8, "Coding", "user2");
+
+        cache.written(old, moved);
+
+        assertSame(moved, cache.getTask(1L));
+        assertNull(cache.getTasks("user1", TaskFilter.NONE));
+    }
+
+    @Test
+    void deleted_ShouldDropTaskAndUserLists() {
+        Task task = new Task(1L, "2025-01-15", "Project A", 8, "Coding", "user1");
+        cache.written(null, task);
+        cache.putTasks("user1", TaskFilter.NONE, cache.readStamp("user1"), List.of(task));
+
+        cache.deleted(1L, "user1");
+
+        assertNull(cache.getTask(1L));
+        assertNull(cache.getTasks("user1", TaskFilter.NONE));
+    }
+
+    @Test
+    void seenSeq_ShouldDropUsersLists_OnlyWhenSeqMovesOn() {
+        cache.seenSeq("user1", 5);
+        cache.putTasks("user1", TaskFilter.NONE, cache.readStamp("user1"), List.of());
+
+        cache.seenSeq("user1", 5);
+        assertNotNull(cache.getTasks("user1", TaskFilter.NONE));
+
+        cache.seenSeq("user1", 6);
+        assertNull(cache.getTasks("user1", TaskFilter.NONE));
+    }
+
+    @Test
+    void freshSeq_ShouldLastBriefly_AndGoWithEveryLocalWrite() {
+        cache.seenSeq("user1", 5);
+        assertEquals(5L, cache.freshSeq("user1"));
+
+        nanos.addAndGet(TimeUnit.MILLISECONDS.toNanos(TaskCache.SEQ_TTL_MILLIS + 1));
+        assertNull(cache.freshSeq("user1"));
+
+        cache.seenSeq("user1", 5);
+        cache.written(null, new Task(1L, "2025-01-15", "Project A", 8, "Coding", "user1"));
+        assertNull(cache.freshSeq("user1"));
+    }
+
+    @Test
+    void entries_ShouldExpireAfterTtl_AndCountEvictions() {
+        cache.written(null, new Task(1L, "2025-01-15", "Project A", 8, "Coding", "user1"));
+        nanos.addAndGet(TimeUnit.SECONDS.toNanos(61));
+
+        assertNull(cache.getTask(1L));
+        assertEquals(1, cache.evictions());
+        assertEquals(1, cache.misses());
+    }
+}
@@ -0,0 +1,48 @@
+package com.krabi;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import org.junit.jupiter.api.Test;
+
+import io.vertx.core.json.Json;
+
+class TaskCodecTest {
+
+    @Test
+    void encode_ShouldMatchJackson_ForPlainTask() {
+        Task task = new Task(1234567890123L, "2025-01-15", "Project A", 8, "Coding", "user1");
+
+        assertEquals(Json.encode(task), TaskCodec.encode(task).toString());
+    }
+
+    @Test
+    void encode_ShouldMatchJackson_ForEscapesUnicodeAndNulls() {
+        Task task = new Task(-7L, "2025-01-15", "Prøject \"Ä\" €", 0,
+                "line\nbreak\ttab \\ slash \u0001 emoji 😀", null);
+
+        assertEquals(Json.encode(task), TaskCodec.encode(task).toString());
+    }
+
+    @Test
+    void encode_ShouldMatchJackson_ForListsAndPages() {
+        List<Task> tasks = List.of(
+                new Task(1L, "2025-01-15", "Project A", 8, "Coding", "user1"),
+                new Task(2L, "2025-01-16", "Project B", 4, "Review", "user1"));
+
+        assertEquals(Json.encode(tasks), TaskCodec.encode(tasks).toString());
+        assertEquals(Json.encode(List.of()), TaskCodec.encode(List.<Task>of()).toString());
+        assertEquals(Json.encode(new TaskPage(tasks, "cursor")), TaskCodec.encode(new TaskPage(tasks, "cursor")).toString());
+        assertEquals(Json.encode(new TaskPage(tasks, null)), TaskCodec.encode(new TaskPage(tasks, null)).toString());
+    }
+
+    @Test
+    void encode_ShouldMatchJackson_ForChanges() {
+        List<Task> tasks = List.of(new Task(1L, "2025-01-15", "Project A", 8, "Coding", "user1"));
+        TaskChanges changes = new TaskChanges(tasks, List.of(2L, 3L), "123", true, false);
+        TaskChanges reset = new TaskChanges(List.of(), List.of(), "0", false, true);
+
+        assertEquals(Json.encode(changes), TaskCodec.encode(changes).toString());
+        assertEquals(Json.encode(reset), TaskCodec.encode(reset).toString());
+    }
+}
@@ -0,0 +1,107 @@
+package com.krabi;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import io.vertx.core.http.HttpClient;
+import io.vertx.core.http.HttpClientResponse;
+import io.vertx.core.http.HttpMethod;
+import io.vertx.core.http.HttpServer;
+import io.vertx.core.http.PoolOptions;
+import io.vertx.ext.web.Router;
+import io.vertx.junit5.VertxExtension;
+import io.vertx.junit5.VertxTestContext;
+
+@ExtendWith(VertxExtension.class)
+class TaskEventStreamsTest {
+
+    private static final String CHANGES = "{\"changed\":[],\"deleted\":[7],\"cursor\":null,\"hasMore\":false,\"reset\":false}";
+
+    @Test
+    void handle_ShouldPushPublishedChanges_AndForgetTheStreamOnceClosed(Vertx vertx, VertxTestContext testContext) {
+        HttpClient client = vertx.createHttpClient();
+        TaskEventStreams streams = new TaskEventStreams(vertx, new Metrics());
+        StringBuilder received = new StringBuilder();
+
+        start(vertx, streams)
+                .compose(port -> open(client, port))
+                .onComplete(testContext.succeeding(response -> {
+                    testContext.verify(() -> {
+                        assertEquals(200, response.statusCode());
+                        assertEquals("text/event-stream", response.getHeader("content-type"));
+                    });
+                    response.handler(chunk -> {
+                        received.append(chunk.toString());
+                        if (received.indexOf("retry: ") == 0 && received.indexOf("\n\n") == received.length() - 2) {
+                            vertx.eventBus().publish(TaskEventStreams.address("devuser"), CHANGES);
+                        } else if (received.toString().endsWith("event: tasks\ndata: " + CHANGES + "\n\n")) {
+                            response.request().connection().close();
+                            awaitNoStreams(vertx, streams, testContext);
+                        }
+                    });
+                }));
+    }
+
+    @Test
+    void handle_ShouldSendHeartbeats_WhileIdle(Vertx vertx, VertxTestContext testContext) {
+        HttpClient client = vertx.createHttpClient();
+        StringBuilder received = new StringBuilder();
+
+        start(vertx, new TaskEventStreams(vertx, new Metrics(), 10))
+                .compose(port -> open(client, port))
+                .onComplete(testContext.succeeding(response -> response.handler(chunk -> {
+                    received.append(chunk.toString());
+                    if (received.toString().endsWith(":\n\n:\n\n")) {
+                        testContext.completeNow();
+                    }
+                })));
+    }
+
+    @Test
+    void handle_ShouldAnswer429_BeyondMaxStreamsPerUser(Vertx vertx, VertxTestContext testContext) {
+        // every open stream holds a pooled connection
+        HttpClient client = vertx.createHttpClient(new PoolOptions().setHttp1MaxSize(TaskEventStreams.MAX_STREAMS_PER_USER + 1));
+
+        start(vertx, new TaskEventStreams(vertx, new Metrics()))
+                .compose(port -> {
+                    List<Future<HttpClientResponse>> streams = new ArrayList<>();
+                    for (int i = 0; i < TaskEventStreams.MAX_STREAMS_PER_USER; i++) {
+                        streams.add(open(client, port));
+                    }
+                    return Future.all(streams).compose(all -> open(client, port));
+                })
+                .onComplete(testContext.succeeding(response -> testContext.verify(() -> {
+                    assertEquals(429, response.statusCode());
+                    testContext.completeNow();
+                })));
+    }
+
+    private static Future<Integer> start(Vertx vertx, TaskEventStreams streams) {
+        Router router = Router.router(vertx);
+        router.get("/tasks/events").handler(new AuthMiddleware().authenticate()).handler(streams);
+        return vertx.createHttpServer().requestHandler(router).listen(0, "localhost").map(HttpServer::actualPort);
+    }
+
+    private static Future<HttpClientResponse> open(HttpClient client, int port) {
+        return client.request(HttpMethod.GET, port, "localhost", "/tasks/events")
+                .compose(request -> request.send());
+    }
+
+    private static void awaitNoStreams(Vertx vertx, TaskEventStreams streams, VertxTestContext testContext) {
+        Promise<Void> gone = Promise.promise();
+        vertx.setPeriodic(10, timer -> {
+            if (streams.streams() == 0) {
+                vertx.cancelTimer(timer);
+                gone.complete();
+            }
+        });
+        gone.future().onComplete(testContext.succeedingThenComplete());
+    }
+}
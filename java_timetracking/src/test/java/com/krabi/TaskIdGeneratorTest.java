@@ -0,0 +1,82 @@
+package com.krabi;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+class TaskIdGeneratorTest {
+
+    private final AtomicLong now = new AtomicLong(TaskIdGenerator.EPOCH + 1_000_000L);
+
+    @Test
+    void nextId_ShouldEncodeTimestampAndNode() {
+        TaskIdGenerator generator = new TaskIdGenerator(7, now::get);
+
+        long id = generator.nextId();
+
+        assertEquals(now.get(), TaskIdGenerator.timestampOf(id));
+        assertEquals(7, TaskIdGenerator.nodeOf(id));
+        // exact as a JavaScript number
+        assertTrue(id < 1L << 53);
+    }
+
+    @Test
+    void nextId_ShouldCarryIntoNextMillisecond_WhenSequenceIsExhausted() {
+        TaskIdGenerator generator = new TaskIdGenerator(1, now::get);
+
+        long previous = 0;
+        for (int i = 0; i < 1000; i++) {
+            long id = generator.nextId();
+            assertTrue(id > previous);
+            previous = id;
+        }
+
+        assertEquals(now.get() + 3, TaskIdGenerator.timestampOf(previous));
+    }
+
+    @Test
+    void nextId_ShouldStayOrdered_WhenClockGoesBack() {
+        TaskIdGenerator generator = new TaskIdGenerator(1, now::get);
+        long first = generator.nextId();
+
+        now.addAndGet(-5_000);
+
+        assertTrue(generator.nextId() > first);
+    }
+
+    @Test
+    void nextId_ShouldNotCollide_AcrossThreadsAndNodes() throws InterruptedException {
+        TaskIdGenerator nodeA = new TaskIdGenerator(1);
+        TaskIdGenerator nodeB = new TaskIdGenerator(2);
+        Set<Long> ids = ConcurrentHashMap.newKeySet();
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        CountDownLatch done = new CountDownLatch(8);
+        for (int t = 0; t < 8; t++) {
+            TaskIdGenerator generator = t % 2 == 0 ? nodeA : nodeB;
+            pool.execute(() -> {
+                for (int i = 0; i < 20_000; i++) {
+                    ids.add(generator.nextId());
+                }
+                done.countDown();
+            });
+        }
+
+        assertTrue(done.await(30, TimeUnit.SECONDS));
+        pool.shutdown();
+        assertEquals(160_000, ids.size());
+    }
+
+    @Test
+    void constructor_ShouldRejectNodeIdOutOfRange() {
+        assertThrows(IllegalArgumentException.class, () -> new TaskIdGenerator(TaskIdGenerator.MAX_NODE_ID + 1));
+    }
+}
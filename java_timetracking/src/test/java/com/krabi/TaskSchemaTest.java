@@ -0,0 +1,72 @@
+package com.krabi;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
+class TaskSchemaTest {
+
+    @Test
+    void toItem_ShouldRoundTripThroughFromItem() {
+        Task task = new Task(1234567890123L, "2025-01-15", "Project A", 8, "Coding", "user1");
+        task.setVersion(3);
+
+        Map<String, AttributeValue> item = TaskSchema.toItem(task, 42);
+
+        assertEquals(AttributeValue.fromN("1234567890123"), item.get("id"));
+        assertEquals(AttributeValue.fromS("2025-01-15"), item.get("date"));
+        assertEquals(AttributeValue.fromN("8"), item.get("hours"));
+        assertEquals(AttributeValue.fromS("user1"), item.get("username"));
+        assertEquals(AttributeValue.fromN("3"), item.get("version"));
+        assertEquals(42, TaskSchema.seqOf(item));
+        assertFalse(TaskSchema.isTombstone(item));
+        Task read = TaskSchema.fromItem(item);
+        assertEquals(task.getId(), read.getId());
+        assertEquals(task.getProject(), read.getProject());
+        assertEquals(task.getHours(), read.getHours());
+        assertEquals(task.getTask(), read.getTask());
+        assertEquals(task.getUsername(), read.getUsername());
+        assertEquals(3, read.getVersion());
+    }
+
+    @Test
+    void toItem_ShouldLeaveOutMissingUsername_AndFromItemDefaultVersion() {
+        Task task = new Task(1L, "2025-01-15", "Project A", 8, "Coding", null);
+
+        Map<String, AttributeValue> item = TaskSchema.toItem(task, 2);
+
+        assertFalse(item.containsKey("username"));
+        Task read = TaskSchema.fromItem(Map.of("id", AttributeValue.fromN("1"), "date", AttributeValue.fromS("2025-01-15"),
+                "project", AttributeValue.fromS("Project A"), "hours", AttributeValue.fromN("8"),
+                "task", AttributeValue.fromS("Coding")));
+        assertNull(read.getUsername());
+        assertEquals(0, read.getVersion());
+    }
+
+    @Test
+    void tombstone_ShouldKeepOwnerAndSeq_ButNoDate() {
+        Map<String, AttributeValue> item = TaskSchema.tombstone(1L, "user1", 4, 99, 1_700_000_000L);
+
+        assertTrue(TaskSchema.isTombstone(item));
+        assertFalse(item.containsKey("date"));
+        assertEquals(AttributeValue.fromS("user1"), item.get("username"));
+        assertEquals(AttributeValue.fromN("1700000000"), item.get("expiresAt"));
+        assertEquals(99, TaskSchema.seqOf(item));
+        assertEquals(0, TaskSchema.seqOf(TaskSchema.key(1L)));
+    }
+
+    @Test
+    void number_ShouldShareSmallValues() {
+        assertSame(TaskSchema.number(8), TaskSchema.number(8));
+        assertEquals(AttributeValue.fromN("127"), TaskSchema.number(127));
+        assertEquals(AttributeValue.fromN("128"), TaskSchema.number(128));
+        assertEquals(AttributeValue.fromN("-1"), TaskSchema.number(-1));
+    }
+}
@@ -1,62 +1,119 @@
 package com.krabi;
 
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
 import org.mockito.Mock;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import org.mockito.junit.jupiter.MockitoExtension;
 
-import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import io.vertx.core.Context;
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import io.vertx.core.eventbus.EventBus;
+import software.amazon.awssdk.awscore.exception.AwsErrorDetails;
+import software.amazon.awssdk.services.dynamodb.DynamoDbAsyncClient;
 import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
-import software.amazon.awssdk.services.dynamodb.model.DeleteItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.ConditionalCheckFailedException;
+import software.amazon.awssdk.services.dynamodb.model.BatchGetItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.BatchGetItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.BatchWriteItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.BatchWriteItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.DynamoDbException;
 import software.amazon.awssdk.services.dynamodb.model.GetItemRequest;
 import software.amazon.awssdk.services.dynamodb.model.GetItemResponse;
 import software.amazon.awssdk.services.dynamodb.model.PutItemRequest;
-import software.amazon.awssdk.services.dynamodb.model.ScanRequest;
-import software.amazon.awssdk.services.dynamodb.model.ScanResponse;
+import software.amazon.awssdk.services.dynamodb.model.PutItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.PutRequest;
+import software.amazon.awssdk.services.dynamodb.model.QueryRequest;
+import software.amazon.awssdk.services.dynamodb.model.QueryResponse;
+import software.amazon.awssdk.services.dynamodb.model.UpdateItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.UpdateItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.WriteRequest;
 
 @ExtendWith(MockitoExtension.class)
 class TaskServiceTest {
 
     @Mock
-    private DynamoDbClient dynamoDbClient;
+    private DynamoDbAsyncClient dynamoDbClient;
+    @Mock
+    private SummaryService summaryService;
+    @Mock
+    private EventBus eventBus;
 
     private TaskService taskService;
 
     @BeforeEach
     public void setUp() {
-        taskService = new TaskService(dynamoDbClient);
+        taskService = new TaskService(dynamoDbClient, summaryService);
+        lenient().when(summaryService.recordChange(any(), any())).thenReturn(Future.succeededFuture());
     }
 
     @Test
     void createTask_ShouldPutItem() {
         Task task = new Task(1L, "2023-10-27", "Project A", 8, "Coding", "user1");
+        when(dynamoDbClient.putItem(any(PutItemRequest.class)))
+                .thenReturn(CompletableFuture.completedFuture(PutItemResponse.builder().build()));
 
-        taskService.createTask(task);
+        Future<Void> result = taskService.createTask(task);
 
+        assertTrue(result.succeeded());
         ArgumentCaptor<PutItemRequest> captor = ArgumentCaptor.forClass(PutItemRequest.class);
         verify(dynamoDbClient).putItem(captor.capture());
         PutItemRequest request = captor.getValue();
         
         assertEquals("Tasks", request.tableName());
+        assertEquals("attribute_not_exists(id)", request.conditionExpression());
         Map<String, AttributeValue> item = request.item();
-        assertEquals("1", item.get("id").n());
+        assertTrue(task.getId() != 1L);
+        assertEquals(Long.toString(task.getId()), item.get("id").n());
         assertEquals("2023-10-27", item.get("date").s());
         assertEquals("Project A", item.get("project").s());
         assertEquals("8", item.get("hours").n());
         assertEquals("Coding", item.get("task").s());
         assertEquals("user1", item.get("username").s());
+        assertTrue(TaskSchema.seqOf(item) > task.getId());
+    }
+
+    @Test
+    void createTask_ShouldFail_WhenDynamoDbRejectsRequest() {
+        Task task = new Task(1L, "2023-10-27", "Project A", 8, "Coding", "user1");
+        DynamoDbException error = (DynamoDbException) DynamoDbException.builder()
+                .awsErrorDetails(AwsErrorDetails.builder().errorMessage("Throughput exceeded").errorCode("ProvisionedThroughputExceededException").build())
+                .statusCode(400)
+                .build();
+        when(dynamoDbClient.putItem(any(PutItemRequest.class))).thenReturn(CompletableFuture.failedFuture(error));
+
+        Future<Void> result = taskService.createTask(task);
+
+        assertTrue(result.failed());
+        assertEquals("Throughput exceeded", result.cause().getMessage());
     }
 
     @Test
@@ -70,9 +127,9 @@ class TaskServiceTest {
         item.put("username", AttributeValue.builder().s("user1").build());
 
         GetItemResponse response = GetItemResponse.builder().item(item).build();
-        when(dynamoDbClient.getItem(any(GetItemRequest.class))).thenReturn(response);
+        when(dynamoDbClient.getItem(any(GetItemRequest.class))).thenReturn(CompletableFuture.completedFuture(response));
 
-        Task result = taskService.getTask(1L);
+        Task result = taskService.getTask(1L, "user1").result();
 
         assertNotNull(result);
         assertEquals(1L, result.getId());
@@ -82,50 +139,725 @@ class TaskServiceTest {
     @Test
     void getTask_ShouldReturnNull_WhenItemDoesNotExist() {
         GetItemResponse response = GetItemResponse.builder().item(new HashMap<>()).build();
-        when(dynamoDbClient.getItem(any(GetItemRequest.class))).thenReturn(response);
+        when(dynamoDbClient.getItem(any(GetItemRequest.class))).thenReturn(CompletableFuture.completedFuture(response));
 
-        Task result = taskService.getTask(1L);
+        Task result = taskService.getTask(1L, "user1").result();
 
         assertNull(result);
     }
 
     @Test
-    void listTasks_ShouldReturnListOfTasks() {
-        Map<String, AttributeValue> item1 = new HashMap<>();
-        item1.put("id", AttributeValue.builder().n("1").build());
-        item1.put("date", AttributeValue.builder().s("2023-10-27").build());
-        item1.put("project", AttributeValue.builder().s("Project A").build());
-        item1.put("hours", AttributeValue.builder().n("8").build());
-        item1.put("task", AttributeValue.builder().s("Coding").build());
-        item1.put("username", AttributeValue.builder().s("user1").build());
-
-        ScanResponse response = ScanResponse.builder().items(List.of(item1)).build();
-        when(dynamoDbClient.scan(any(ScanRequest.class))).thenReturn(response);
+    void listTasks_ShouldQueryUserIndex() {
+        QueryResponse response = QueryResponse.builder().items(List.of(item(1L, "2023-10-27", "user1"))).build();
+        when(dynamoDbClient.query(any(QueryRequest.class))).thenReturn(CompletableFuture.completedFuture(response));
 
-        List<Task> results = taskService.listTasks("user1");
+        List<Task> results = taskService.listTasks("user1").result();
 
         assertEquals(1, results.size());
         assertEquals("Project A", results.get(0).getProject());
+        ArgumentCaptor<QueryRequest> captor = ArgumentCaptor.forClass(QueryRequest.class);
+        verify(dynamoDbClient).query(captor.capture());
+        assertEquals(TaskService.USER_DATE_INDEX, captor.getValue().indexName());
+        assertEquals("user1", captor.getValue().expressionAttributeValues().get(":username").s());
+    }
+
+    @Test
+    void listTasks_ShouldFollowAllPages() {
+        Map<String, AttributeValue> lastKey = key(1L, "2023-10-27", "user1");
+        QueryResponse first = QueryResponse.builder()
+                .items(List.of(item(1L, "2023-10-27", "user1")))
+                .lastEvaluatedKey(lastKey)
+                .build();
+        QueryResponse second = QueryResponse.builder().items(List.of(item(2L, "2023-10-28", "user1"))).build();
+        when(dynamoDbClient.query(any(QueryRequest.class)))
+                .thenReturn(CompletableFuture.completedFuture(first), CompletableFuture.completedFuture(second));
+
+        List<Task> results = taskService.listTasks("user1").result();
+
+        assertEquals(2, results.size());
+        ArgumentCaptor<QueryRequest> captor = ArgumentCaptor.forClass(QueryRequest.class);
+        verify(dynamoDbClient, times(2)).query(captor.capture());
+        assertEquals(lastKey, captor.getAllValues().get(1).exclusiveStartKey());
     }
 
     @Test
-    void updateTask_ShouldPutItem() {
+    void streamTasks_ShouldRequestNextPage_OnlyAfterPageIsConsumed() {
+        Map<String, AttributeValue> lastKey = key(1L, "2023-10-27", "user1");
+        when(dynamoDbClient.query(any(QueryRequest.class)))
+                .thenReturn(CompletableFuture.completedFuture(QueryResponse.builder()
+                        .items(List.of(item(1L, "2023-10-27", "user1"))).lastEvaluatedKey(lastKey).build()))
+                .thenReturn(CompletableFuture.completedFuture(QueryResponse.builder()
+                        .items(List.of(item(2L, "2023-10-28", "user1"))).build()));
+        List<Promise<Void>> consumed = new ArrayList<>();
+
+        Future<Void> result = taskService.streamTasks("user1", TaskFilter.NONE, page -> {
+            Promise<Void> promise = Promise.promise();
+            consumed.add(promise);
+            return promise.future();
+        });
+
+        verify(dynamoDbClient, times(1)).query(any(QueryRequest.class));
+        consumed.get(0).complete();
+        verify(dynamoDbClient, times(2)).query(any(QueryRequest.class));
+        consumed.get(1).complete();
+        assertTrue(result.succeeded());
+    }
+
+    @Test
+    void listTasks_ShouldPushDateRangeIntoKeyCondition() {
+        when(dynamoDbClient.query(any(QueryRequest.class)))
+                .thenReturn(CompletableFuture.completedFuture(QueryResponse.builder().items(List.of()).build()));
+
+        taskService.listTasks("user1", TaskFilter.of("2023-10-01", "2023-10-31", "Project A"));
+
+        ArgumentCaptor<QueryRequest> captor = ArgumentCaptor.forClass(QueryRequest.class);
+        verify(dynamoDbClient).query(captor.capture());
+        QueryRequest request = captor.getValue();
+        assertEquals("username = :username AND #date BETWEEN :from AND :to", request.keyConditionExpression());
+        assertEquals("date", request.expressionAttributeNames().get("#date"));
+        assertEquals("2023-10-01", request.expressionAttributeValues().get(":from").s());
+        assertEquals("2023-10-31", request.expressionAttributeValues().get(":to").s());
+        assertEquals("#project = :project", request.filterExpression());
+        assertEquals("project", request.expressionAttributeNames().get("#project"));
+        assertEquals("Project A", request.expressionAttributeValues().get(":project").s());
+    }
+
+    @Test
+    void listTasks_ShouldUseOpenRange_WhenOnlyFromIsGiven() {
+        when(dynamoDbClient.query(any(QueryRequest.class)))
+                .thenReturn(CompletableFuture.completedFuture(QueryResponse.builder().items(List.of()).build()));
+
+        taskService.listTasks("user1", TaskFilter.of("2023-10-01", null, null));
+
+        ArgumentCaptor<QueryRequest> captor = ArgumentCaptor.forClass(QueryRequest.class);
+        verify(dynamoDbClient).query(captor.capture());
+        assertEquals("username = :username AND #date >= :from", captor.getValue().keyConditionExpression());
+        assertNull(captor.getValue().filterExpression());
+    }
+
+    @Test
+    void taskFilter_ShouldRejectInvalidRange() {
+        assertThrows(IllegalArgumentException.class, () -> TaskFilter.of("2023-10-31", "2023-10-01", null));
+        assertThrows(IllegalArgumentException.class, () -> TaskFilter.of("10/01/2023", null, null));
+    }
+
+    @Test
+    void listTasksPage_ShouldReturnCursor_WhenMoreItemsExist() {
+        QueryResponse response = QueryResponse.builder()
+                .items(List.of(item(1L, "2023-10-27", "user1")))
+                .lastEvaluatedKey(key(1L, "2023-10-27", "user1"))
+                .build();
+        when(dynamoDbClient.query(any(QueryRequest.class))).thenReturn(CompletableFuture.completedFuture(response));
+
+        TaskPage page = taskService.listTasks("user1", TaskFilter.NONE, 1, null).result();
+
+        assertEquals(1, page.getTasks().size());
+        assertNotNull(page.getNextCursor());
+        assertEquals(key(1L, "2023-10-27", "user1"), TaskCursor.decode(page.getNextCursor(), "user1"));
+        ArgumentCaptor<QueryRequest> captor = ArgumentCaptor.forClass(QueryRequest.class);
+        verify(dynamoDbClient).query(captor.capture());
+        assertEquals(1, captor.getValue().limit());
+    }
+
+    @Test
+    void listTasksPage_ShouldRejectCursorOfAnotherUser() {
+        String cursor = TaskCursor.encode(key(1L, "2023-10-27", "user2"));
+
+        Future<TaskPage> result = taskService.listTasks("user1", TaskFilter.NONE, 10, cursor);
+
+        assertTrue(result.failed());
+        assertTrue(result.cause() instanceof IllegalArgumentException);
+        verify(dynamoDbClient, never()).query(any(QueryRequest.class));
+    }
+
+    @Test
+    void updateTask_ShouldUpdateItemOfUser() {
         Task task = new Task(1L, "2023-10-27", "Project A", 8, "Coding", "user1");
+        when(dynamoDbClient.updateItem(any(UpdateItemRequest.class))).thenReturn(CompletableFuture.completedFuture(
+                UpdateItemResponse.builder().attributes(item(1L, "2023-10-27", "user1")).build()));
 
-        taskService.updateTask(task);
+        Future<Task> result = taskService.updateTask(task);
 
-        verify(dynamoDbClient).putItem(any(PutItemRequest.class));
+        ArgumentCaptor<UpdateItemRequest> captor = ArgumentCaptor.forClass(UpdateItemRequest.class);
+        verify(dynamoDbClient).updateItem(captor.capture());
+        UpdateItemRequest request = captor.getValue();
+        assertEquals("1", request.key().get("id").n());
+        assertEquals("SET #date = :date, #project = :project, #hours = :hours, #task = :task, #seq = :seq "
+                + "ADD #version :one", request.updateExpression());
+        assertEquals("attribute_exists(id) AND attribute_not_exists(#deleted) AND #username = :username",
+                request.conditionExpression());
+        assertEquals("user1", request.expressionAttributeValues().get(":username").s());
+        assertEquals(1L, result.result().getVersion());
     }
 
     @Test
-    void deleteTask_ShouldDeleteItem() {
-        taskService.deleteTask(1L);
+    void deleteTask_ShouldLeaveTombstone() {
+        when(dynamoDbClient.updateItem(any(UpdateItemRequest.class)))
+                .thenReturn(CompletableFuture.completedFuture(UpdateItemResponse.builder().build()));
+
+        taskService.deleteTask(1L, "user1");
+
+        ArgumentCaptor<UpdateItemRequest> captor = ArgumentCaptor.forClass(UpdateItemRequest.class);
+        verify(dynamoDbClient).updateItem(captor.capture());
+        UpdateItemRequest request = captor.getValue();
 
-        ArgumentCaptor<DeleteItemRequest> captor = ArgumentCaptor.forClass(DeleteItemRequest.class);
-        verify(dynamoDbClient).deleteItem(captor.capture());
-        DeleteItemRequest request = captor.getValue();
-        
         assertEquals("Tasks", request.tableName());
         assertEquals("1", request.key().get("id").n());
+        assertEquals("SET #deleted = :deleted, #seq = :seq, #expiresAt = :expiresAt "
+                + "REMOVE #date, #project, #hours, #task ADD #version :one", request.updateExpression());
+        assertEquals("attribute_exists(id) AND attribute_not_exists(#deleted) AND #username = :username",
+                request.conditionExpression());
+        assertEquals("user1", request.expressionAttributeValues().get(":username").s());
+        long expiresAt = Long.parseLong(request.expressionAttributeValues().get(":expiresAt").n());
+        assertTrue(expiresAt * 1000 > System.currentTimeMillis() + TaskService.TOMBSTONE_TTL_MILLIS - 60_000);
+    }
+
+    @Test
+    void deleteTask_ShouldDoNothing_WhenTaskIsMissingOrDeleted() {
+        when(dynamoDbClient.updateItem(any(UpdateItemRequest.class))).thenReturn(CompletableFuture.failedFuture(
+                ConditionalCheckFailedException.builder().message("The conditional request failed").build()));
+
+        Future<Task> result = taskService.deleteTask(1L, "user1");
+
+        assertTrue(result.succeeded());
+        assertNull(result.result());
+        verify(summaryService).recordChange(isNull(), isNull());
+    }
+
+    @Test
+    void createTask_ShouldFail_WhenIdAlreadyExists() {
+        Task task = new Task(1L, "2023-10-27", "Project A", 8, "Coding", "user1");
+        when(dynamoDbClient.putItem(any(PutItemRequest.class))).thenReturn(CompletableFuture.failedFuture(
+                ConditionalCheckFailedException.builder().message("The conditional request failed").build()));
+
+        Future<Void> result = taskService.createTask(task);
+
+        assertTrue(result.cause() instanceof IllegalStateException);
+        verify(dynamoDbClient, times(2)).putItem(any(PutItemRequest.class));
+        verify(summaryService, never()).recordChange(any(), any());
+    }
+
+    @Test
+    void createTask_ShouldRetryWithFreshId_WhenGeneratedIdIsTaken() {
+        Task task = new Task(1L, "2023-10-27", "Project A", 8, "Coding", "user1");
+        when(dynamoDbClient.putItem(any(PutItemRequest.class)))
+                .thenReturn(CompletableFuture.failedFuture(
+                        ConditionalCheckFailedException.builder().message("The conditional request failed").build()))
+                .thenReturn(CompletableFuture.completedFuture(PutItemResponse.builder().build()));
+
+        Future<Void> result = taskService.createTask(task);
+
+        assertTrue(result.succeeded());
+        ArgumentCaptor<PutItemRequest> captor = ArgumentCaptor.forClass(PutItemRequest.class);
+        verify(dynamoDbClient, times(2)).putItem(captor.capture());
+        String taken = captor.getAllValues().get(0).item().get("id").n();
+        String stored = captor.getAllValues().get(1).item().get("id").n();
+        assertNotEquals(taken, stored);
+        assertEquals(Long.toString(task.getId()), stored);
+        verify(summaryService).recordChange(null, task);
+    }
+
+    @Test
+    void updateTask_ShouldMoveOverwrittenHoursInSummary() {
+        Task task = new Task(1L, "2023-10-27", "Project B", 6, "Coding", "user1");
+        when(dynamoDbClient.updateItem(any(UpdateItemRequest.class))).thenReturn(CompletableFuture.completedFuture(
+                UpdateItemResponse.builder().attributes(item(1L, "2023-10-27", "user1")).build()));
+
+        taskService.updateTask(task);
+
+        verify(summaryService).recordChange(argThat(old -> "Project A".equals(old.getProject()) && old.getHours() == 8),
+                argThat(t -> "Project B".equals(t.getProject()) && t.getHours() == 6));
+    }
+
+    @Test
+    void patchTask_ShouldOnlyWriteChangedAttributes() {
+        Map<String, AttributeValue> old = item(1L, "2023-10-27", "user1");
+        old.put("version", AttributeValue.builder().n("3").build());
+        when(dynamoDbClient.updateItem(any(UpdateItemRequest.class)))
+                .thenReturn(CompletableFuture.completedFuture(UpdateItemResponse.builder().attributes(old).build()));
+        TaskPatch patch = new TaskPatch();
+        patch.setHours(5);
+        patch.setVersion(3L);
+
+        Future<Task> result = taskService.patchTask(1L, "user1", patch);
+
+        ArgumentCaptor<UpdateItemRequest> captor = ArgumentCaptor.forClass(UpdateItemRequest.class);
+        verify(dynamoDbClient).updateItem(captor.capture());
+        UpdateItemRequest request = captor.getValue();
+        assertEquals("SET #hours = :hours, #seq = :seq ADD #version :one", request.updateExpression());
+        assertEquals("attribute_exists(id) AND attribute_not_exists(#deleted) AND #username = :username "
+                + "AND #version = :version", request.conditionExpression());
+        assertEquals("3", request.expressionAttributeValues().get(":version").n());
+        Task updated = result.result();
+        assertEquals(5, updated.getHours());
+        assertEquals("Project A", updated.getProject());
+        assertEquals(4L, updated.getVersion());
+    }
+
+    @Test
+    void patchTask_ShouldFail_WhenVersionIsStale() {
+        Map<String, AttributeValue> current = item(1L, "2023-10-27", "user1");
+        current.put("version", AttributeValue.builder().n("4").build());
+        when(dynamoDbClient.updateItem(any(UpdateItemRequest.class))).thenReturn(CompletableFuture.failedFuture(
+                ConditionalCheckFailedException.builder().message("The conditional request failed").item(current).build()));
+        TaskPatch patch = new TaskPatch();
+        patch.setTask("Review");
+        patch.setVersion(3L);
+
+        Future<Task> result = taskService.patchTask(1L, "user1", patch);
+
+        assertTrue(result.cause() instanceof IllegalStateException);
+        verify(summaryService, never()).recordChange(any(), any());
+    }
+
+    @Test
+    void patchTask_ShouldReturnNull_WhenTaskBelongsToAnotherUser() {
+        when(dynamoDbClient.updateItem(any(UpdateItemRequest.class))).thenReturn(CompletableFuture.failedFuture(
+                ConditionalCheckFailedException.builder().message("The conditional request failed")
+                        .item(item(1L, "2023-10-27", "user2")).build()));
+        TaskPatch patch = new TaskPatch();
+        patch.setTask("Review");
+
+        Future<Task> result = taskService.patchTask(1L, "user1", patch);
+
+        assertTrue(result.succeeded());
+        assertNull(result.result());
+    }
+
+    @Test
+    void deleteTask_ShouldRemoveHoursFromSummary() {
+        when(dynamoDbClient.updateItem(any(UpdateItemRequest.class))).thenReturn(CompletableFuture.completedFuture(
+                UpdateItemResponse.builder().attributes(item(1L, "2023-10-27", "user1")).build()));
+
+        Future<Task> result = taskService.deleteTask(1L, "user1");
+
+        assertEquals(1L, result.result().getId());
+        verify(summaryService).recordChange(argThat(old -> old.getId() == 1L), isNull());
+    }
+
+    @Test
+    void createTask_ShouldSucceed_WhenSummaryUpdateFails() {
+        Task task = new Task(1L, "2023-10-27", "Project A", 8, "Coding", "user1");
+        when(dynamoDbClient.putItem(any(PutItemRequest.class)))
+                .thenReturn(CompletableFuture.completedFuture(PutItemResponse.builder().build()));
+        when(summaryService.recordChange(any(), any())).thenReturn(Future.failedFuture("throttled"));
+
+        assertTrue(taskService.createTask(task).succeeded());
+    }
+
+    @Test
+    void listTasks_ShouldNotBlockCaller_WhileManyCallsAreInFlight() {
+        // A single pending DynamoDB response shared by thousands of callers: none of them may block
+        CompletableFuture<QueryResponse> pending = new CompletableFuture<>();
+        when(dynamoDbClient.query(any(QueryRequest.class))).thenReturn(pending);
+
+        List<Future<List<Task>>> inFlight = new ArrayList<>();
+        for (int i = 0; i < 10_000; i++) {
+            inFlight.add(taskService.listTasks("user" + i));
+        }
+        assertTrue(inFlight.stream().noneMatch(Future::isComplete));
+
+        pending.complete(QueryResponse.builder().items(List.of()).build());
+
+        assertTrue(inFlight.stream().allMatch(Future::succeeded));
+    }
+
+    @Test
+    void createTasks_ShouldWriteInChunksOf25() {
+        List<Task> tasks = new ArrayList<>();
+        for (long id = 1; id <= 30; id++) {
+            tasks.add(new Task(id, "2023-10-27", "Project A", 8, "Coding", "user1"));
+        }
+        when(dynamoDbClient.batchGetItem(any(BatchGetItemRequest.class)))
+                .thenReturn(CompletableFuture.completedFuture(BatchGetItemResponse.builder().build()));
+        when(dynamoDbClient.batchWriteItem(any(BatchWriteItemRequest.class)))
+                .thenReturn(CompletableFuture.completedFuture(BatchWriteItemResponse.builder().build()));
+
+        List<BatchItemResult> results = taskService.createTasks(tasks).await();
+
+        ArgumentCaptor<BatchWriteItemRequest> captor = ArgumentCaptor.forClass(BatchWriteItemRequest.class);
+        verify(dynamoDbClient, times(2)).batchWriteItem(captor.capture());
+        assertEquals(25, captor.getAllValues().get(0).requestItems().get("Tasks").size());
+        assertEquals(5, captor.getAllValues().get(1).requestItems().get("Tasks").size());
+        assertEquals(30, results.size());
+        assertTrue(results.stream().allMatch(r -> BatchItemResult.CREATED.equals(r.getStatus())));
+        verify(summaryService, times(30)).recordChange(isNull(), any());
+    }
+
+    @Test
+    void createTasks_ShouldRetryUnprocessedItems() {
+        Task first = new Task(1L, "2023-10-27", "Project A", 8, "Coding", "user1");
+        Task second = new Task(2L, "2023-10-28", "Project A", 8, "Coding", "user1");
+        when(dynamoDbClient.batchGetItem(any(BatchGetItemRequest.class)))
+                .thenReturn(CompletableFuture.completedFuture(BatchGetItemResponse.builder().build()));
+        WriteRequest unprocessed = WriteRequest.builder()
+                .putRequest(PutRequest.builder().item(item(2L, "2023-10-28", "user1")).build()).build();
+        when(dynamoDbClient.batchWriteItem(any(BatchWriteItemRequest.class)))
+                .thenReturn(CompletableFuture.completedFuture(BatchWriteItemResponse.builder()
+                        .unprocessedItems(Map.of("Tasks", List.of(unprocessed))).build()))
+                .thenReturn(CompletableFuture.completedFuture(BatchWriteItemResponse.builder().build()));
+
+        List<BatchItemResult> results = taskService.createTasks(List.of(first, second)).await();
+
+        ArgumentCaptor<BatchWriteItemRequest> captor = ArgumentCaptor.forClass(BatchWriteItemRequest.class);
+        verify(dynamoDbClient, times(2)).batchWriteItem(captor.capture());
+        assertEquals(List.of(unprocessed), captor.getAllValues().get(1).requestItems().get("Tasks"));
+        assertTrue(results.stream().allMatch(r -> BatchItemResult.CREATED.equals(r.getStatus())));
+    }
+
+    @Test
+    void createTasks_ShouldRetryOnCallersContext() throws Exception {
+        Vertx vertx = Vertx.vertx();
+        try {
+            Context context = vertx.getOrCreateContext();
+            Task task = new Task(1L, "2023-10-27", "Project A", 8, "Coding", "user1");
+            when(dynamoDbClient.batchGetItem(any(BatchGetItemRequest.class)))
+                    .thenReturn(CompletableFuture.completedFuture(BatchGetItemResponse.builder().build()));
+            WriteRequest unprocessed = WriteRequest.builder()
+                    .putRequest(PutRequest.builder().item(item(1L, "2023-10-27", "user1")).build()).build();
+            List<Context> retriedOn = new ArrayList<>();
+            when(dynamoDbClient.batchWriteItem(any(BatchWriteItemRequest.class)))
+                    .thenReturn(CompletableFuture.completedFuture(BatchWriteItemResponse.builder()
+                            .unprocessedItems(Map.of("Tasks", List.of(unprocessed))).build()))
+                    .thenAnswer(invocation -> {
+                        retriedOn.add(Vertx.currentContext());
+                        return CompletableFuture.completedFuture(BatchWriteItemResponse.builder().build());
+                    });
+            CompletableFuture<Context> completedOn = new CompletableFuture<>();
+
+            context.runOnContext(v -> taskService.createTasks(List.of(task))
+                    .onComplete(ar -> completedOn.complete(Vertx.currentContext())));
+
+            assertSame(context, completedOn.get(5, TimeUnit.SECONDS));
+            assertEquals(List.of(context), retriedOn);
+        } finally {
+            vertx.close().await();
+        }
+    }
+
+    @Test
+    void createTasks_ShouldReportFailedItems_WhenBatchIsRejected() {
+        Task task = new Task(1L, "2023-10-27", "Project A", 8, "Coding", "user1");
+        when(dynamoDbClient.batchGetItem(any(BatchGetItemRequest.class)))
+                .thenReturn(CompletableFuture.completedFuture(BatchGetItemResponse.builder().build()));
+        when(dynamoDbClient.batchWriteItem(any(BatchWriteItemRequest.class)))
+                .thenReturn(CompletableFuture.failedFuture(new IllegalStateException("boom")));
+
+        List<BatchItemResult> results = taskService.createTasks(List.of(task)).await();
+
+        assertEquals(BatchItemResult.FAILED, results.get(0).getStatus());
+        assertEquals("boom", results.get(0).getError());
+        verify(summaryService, never()).recordChange(any(), any());
+    }
+
+    @Test
+    void createTasks_ShouldNotOverwriteTasksOfOtherUsers() {
+        Task own = new Task(1L, "2023-10-27", "Project A", 8, "Coding", "user1");
+        Task foreign = new Task(2L, "2023-10-27", "Project A", 8, "Coding", "user1");
+        Task foreignDeleted = new Task(3L, "2023-10-27", "Project A", 8, "Coding", "user1");
+        Task ownerless = new Task(4L, "2023-10-27", "Project A", 8, "Coding", "user1");
+        Task fresh = new Task(5L, "2023-10-27", "Project A", 8, "Coding", "user1");
+        // stored before items had owners
+        Map<String, AttributeValue> legacy = new HashMap<>(item(4L, "2023-10-26", "user2"));
+        legacy.remove("username");
+        when(dynamoDbClient.batchGetItem(any(BatchGetItemRequest.class)))
+                .thenReturn(CompletableFuture.completedFuture(BatchGetItemResponse.builder()
+                        .responses(Map.of("Tasks", List.of(item(1L, "2023-10-26", "user1"), item(2L, "2023-10-26", "user2"),
+                                TaskSchema.tombstone(3L, "user2", 2, 5L, 0), legacy)))
+                        .build()));
+        when(dynamoDbClient.batchWriteItem(any(BatchWriteItemRequest.class)))
+                .thenReturn(CompletableFuture.completedFuture(BatchWriteItemResponse.builder().build()));
+
+        List<BatchItemResult> results = taskService.createTasks(List.of(own, foreign, foreignDeleted, ownerless, fresh))
+                .await();
+
+        ArgumentCaptor<BatchWriteItemRequest> captor = ArgumentCaptor.forClass(BatchWriteItemRequest.class);
+        verify(dynamoDbClient).batchWriteItem(captor.capture());
+        List<WriteRequest> writes = captor.getValue().requestItems().get("Tasks");
+        assertEquals(List.of("1", "5"), writes.stream().map(w -> w.putRequest().item().get("id").n()).toList());
+        assertEquals(List.of(BatchItemResult.CREATED, BatchItemResult.NOT_FOUND, BatchItemResult.NOT_FOUND,
+                BatchItemResult.NOT_FOUND, BatchItemResult.CREATED),
+                results.stream().map(BatchItemResult::getStatus).toList());
+        verify(summaryService).recordChange(argThat(old -> old != null && old.getId() == 1L), any());
+        verify(summaryService).recordChange(isNull(), argThat(task -> task.getId() == 5L));
+        verify(summaryService, times(2)).recordChange(any(), any());
+    }
+
+    @Test
+    void createTasks_ShouldRejectDuplicateIds() {
+        Task task = new Task(1L, "2023-10-27", "Project A", 8, "Coding", "user1");
+
+        Future<List<BatchItemResult>> result = taskService.createTasks(List.of(task, task));
+
+        assertTrue(result.failed());
+        assertTrue(result.cause() instanceof IllegalArgumentException);
+    }
+
+    @Test
+    void deleteTasks_ShouldOnlyDeleteTasksOfUser() {
+        when(dynamoDbClient.batchGetItem(any(BatchGetItemRequest.class)))
+                .thenReturn(CompletableFuture.completedFuture(BatchGetItemResponse.builder()
+                        .responses(Map.of("Tasks", List.of(item(1L, "2023-10-27", "user1"), item(2L, "2023-10-27", "user2"))))
+                        .build()));
+        when(dynamoDbClient.batchWriteItem(any(BatchWriteItemRequest.class)))
+                .thenReturn(CompletableFuture.completedFuture(BatchWriteItemResponse.builder().build()));
+
+        List<BatchItemResult> results = taskService.deleteTasks("user1", List.of(1L, 2L, 3L)).await();
+
+        ArgumentCaptor<BatchWriteItemRequest> captor = ArgumentCaptor.forClass(BatchWriteItemRequest.class);
+        verify(dynamoDbClient).batchWriteItem(captor.capture());
+        List<WriteRequest> writes = captor.getValue().requestItems().get("Tasks");
+        assertEquals(1, writes.size());
+        Map<String, AttributeValue> tombstone = writes.get(0).putRequest().item();
+        assertEquals("1", tombstone.get("id").n());
+        assertTrue(TaskSchema.isTombstone(tombstone));
+        assertEquals("1", tombstone.get("version").n());
+        assertEquals(List.of(BatchItemResult.DELETED, BatchItemResult.NOT_FOUND, BatchItemResult.NOT_FOUND),
+                results.stream().map(BatchItemResult::getStatus).toList());
+        verify(summaryService).recordChange(argThat(old -> old.getId() == 1L), isNull());
+    }
+
+    @Test
+    void createTask_ShouldPublishChange_ToOwnersEventStreams() {
+        TaskService publishing = new TaskService(dynamoDbClient, summaryService, null, new TaskIdGenerator(0), eventBus);
+        Task task = new Task(0L, "2023-10-27", "Project A", 8, "Coding", "user1");
+        when(dynamoDbClient.putItem(any(PutItemRequest.class)))
+                .thenReturn(CompletableFuture.completedFuture(PutItemResponse.builder().build()));
+
+        publishing.createTask(task).await();
+
+        verify(eventBus).publish(TaskEventStreams.address("user1"),
+                TaskCodec.encode(new TaskChanges(List.of(task), List.of(), null, false, false)).toString());
+    }
+
+    @Test
+    void deleteTasks_ShouldPublishOneEventForTheBatch() {
+        TaskService publishing = new TaskService(dynamoDbClient, summaryService, null, new TaskIdGenerator(0), eventBus);
+        when(dynamoDbClient.batchGetItem(any(BatchGetItemRequest.class)))
+                .thenReturn(CompletableFuture.completedFuture(BatchGetItemResponse.builder()
+                        .responses(Map.of("Tasks", List.of(item(1L, "2023-10-27", "user1"), item(2L, "2023-10-28", "user1"))))
+                        .build()));
+        when(dynamoDbClient.batchWriteItem(any(BatchWriteItemRequest.class)))
+                .thenReturn(CompletableFuture.completedFuture(BatchWriteItemResponse.builder().build()));
+
+        publishing.deleteTasks("user1", List.of(1L, 2L)).await();
+
+        verify(eventBus).publish(eq(TaskEventStreams.address("user1")),
+                eq("{\"changed\":[],\"deleted\":[1,2],\"cursor\":null,\"hasMore\":false,\"reset\":false}"));
+    }
+
+    @Test
+    void deleteTask_ShouldLeaveTaskOfAnotherUserAlone() {
+        TaskService publishing = new TaskService(dynamoDbClient, summaryService, null, new TaskIdGenerator(0), eventBus);
+        // the task belongs to user1, so the owner condition fails
+        when(dynamoDbClient.updateItem(any(UpdateItemRequest.class))).thenReturn(CompletableFuture.failedFuture(
+                ConditionalCheckFailedException.builder().message("The conditional request failed").build()));
+
+        Task deleted = publishing.deleteTask(1L, "user2").await();
+
+        ArgumentCaptor<UpdateItemRequest> captor = ArgumentCaptor.forClass(UpdateItemRequest.class);
+        verify(dynamoDbClient).updateItem(captor.capture());
+        assertTrue(captor.getValue().conditionExpression().endsWith("AND #username = :username"));
+        assertEquals("user2", captor.getValue().expressionAttributeValues().get(":username").s());
+        assertNull(deleted);
+        verify(summaryService, never()).recordChange(argThat(old -> old != null), any());
+        verify(eventBus, never()).publish(anyString(), any());
+    }
+
+    @Test
+    void deleteTask_ShouldNotPublish_WhenNothingWasDeleted() {
+        TaskService publishing = new TaskService(dynamoDbClient, summaryService, null, new TaskIdGenerator(0), eventBus);
+        when(dynamoDbClient.updateItem(any(UpdateItemRequest.class))).thenReturn(CompletableFuture.failedFuture(
+                ConditionalCheckFailedException.builder().message("The conditional request failed").build()));
+
+        publishing.deleteTask(1L, "user1").await();
+
+        verify(eventBus, never()).publish(anyString(), any());
+    }
+
+    @Test
+    void changes_ShouldQuerySeqIndexAfterCursor_AndReportTombstonesAsDeleted() {
+        long since = TaskIdGenerator.firstIdAt(System.currentTimeMillis() - 60_000);
+        Map<String, AttributeValue> changed = item(1L, "2023-10-27", "user1");
+        changed.put("seq", AttributeValue.fromN(Long.toString(since + 1)));
+        when(dynamoDbClient.query(any(QueryRequest.class))).thenReturn(CompletableFuture.completedFuture(
+                QueryResponse.builder().items(List.of(changed, TaskSchema.tombstone(2L, "user1", 3, since + 2, 0)))
+                        .build()));
+
+        TaskChanges changes = taskService.changes("user1", Long.toString(since)).result();
+
+        ArgumentCaptor<QueryRequest> captor = ArgumentCaptor.forClass(QueryRequest.class);
+        verify(dynamoDbClient).query(captor.capture());
+        QueryRequest request = captor.getValue();
+        assertEquals(TaskService.USER_SEQ_INDEX, request.indexName());
+        assertEquals("username = :username AND #seq > :since", request.keyConditionExpression());
+        assertEquals(Long.toString(since), request.expressionAttributeValues().get(":since").n());
+        assertEquals(List.of(1L), changes.getChanged().stream().map(Task::getId).toList());
+        assertEquals(List.of(2L), changes.getDeleted());
+        assertFalse(changes.isHasMore());
+        assertFalse(changes.isReset());
+        // the cursor moves up to the settle horizon, not past it
+        long cursor = Long.parseLong(changes.getCursor());
+        assertTrue(cursor > since);
+        assertTrue(cursor <= TaskIdGenerator.firstIdAt(System.currentTimeMillis() - TaskService.CHANGE_SETTLE_MILLIS));
+    }
+
+    @Test
+    void changes_ShouldContinueAfterLastChange_WhenPageIsFull() {
+        long since = TaskIdGenerator.firstIdAt(System.currentTimeMillis());
+        Map<String, AttributeValue> changed = item(1L, "2023-10-27", "user1");
+        changed.put("seq", AttributeValue.fromN(Long.toString(since + 5)));
+        when(dynamoDbClient.query(any(QueryRequest.class))).thenReturn(CompletableFuture.completedFuture(
+                QueryResponse.builder().items(List.of(changed)).lastEvaluatedKey(TaskSchema.key(1L)).build()));
+
+        TaskChanges changes = taskService.changes("user1", Long.toString(since)).result();
+
+        assertTrue(changes.isHasMore());
+        assertEquals(Long.toString(since + 5), changes.getCursor());
+    }
+
+    @Test
+    void changes_ShouldReturnEveryTask_WithoutCursorOrWithExpiredOne() {
+        when(dynamoDbClient.query(any(QueryRequest.class))).thenReturn(CompletableFuture.completedFuture(
+                QueryResponse.builder().items(List.of(item(1L, "2023-10-27", "user1"))).build()));
+        String expired = Long.toString(TaskIdGenerator.firstIdAt(
+                System.currentTimeMillis() - TaskService.TOMBSTONE_TTL_MILLIS - 60_000));
+
+        TaskChanges first = taskService.changes("user1", null).result();
+        TaskChanges stale = taskService.changes("user1", expired).result();
+
+        ArgumentCaptor<QueryRequest> captor = ArgumentCaptor.forClass(QueryRequest.class);
+        verify(dynamoDbClient, times(2)).query(captor.capture());
+        assertEquals(TaskService.USER_DATE_INDEX, captor.getValue().indexName());
+        assertTrue(first.isReset());
+        assertTrue(stale.isReset());
+        assertEquals(1, first.getChanged().size());
+        assertNotNull(first.getCursor());
+    }
+
+    @Test
+    void changes_ShouldRejectInvalidCursor() {
+        assertTrue(taskService.changes("user1", "abc").cause() instanceof IllegalArgumentException);
+        assertTrue(taskService.changes("user1", "-5").cause() instanceof IllegalArgumentException);
+    }
+
+    @Test
+    void getTask_ShouldHideTasksOfOtherUsers_StoredOrCached() {
+        TaskService cachedService = new TaskService(dynamoDbClient, summaryService, new TaskCache(100, 60_000));
+        when(dynamoDbClient.getItem(any(GetItemRequest.class))).thenReturn(CompletableFuture.completedFuture(
+                GetItemResponse.builder().item(item(1L, "2023-10-27", "user1")).build()));
+
+        assertNull(cachedService.getTask(1L, "user2").result());
+        // now cached for its owner, still hidden from others
+        assertEquals(1L, cachedService.getTask(1L, "user1").result().getId());
+        assertNull(cachedService.getTask(1L, "user2").result());
+        verify(dynamoDbClient, times(1)).getItem(any(GetItemRequest.class));
+    }
+
+    @Test
+    void getTask_ShouldTreatTombstoneAsMissing() {
+        when(dynamoDbClient.getItem(any(GetItemRequest.class))).thenReturn(CompletableFuture.completedFuture(
+                GetItemResponse.builder().item(TaskSchema.tombstone(1L, "user1", 2, 10, 0)).build()));
+
+        assertNull(taskService.getTask(1L, "user1").result());
+    }
+
+    @Test
+    void listTasks_ShouldServeRepeatReadsFromCache_UntilTaskIsWritten() {
+        TaskService cachedService = new TaskService(dynamoDbClient, summaryService, new TaskCache(100, 60_000));
+        when(dynamoDbClient.query(any(QueryRequest.class))).thenReturn(CompletableFuture.completedFuture(
+                QueryResponse.builder().items(List.of(item(1L, "2023-10-27", "user1"))).build()));
+        when(dynamoDbClient.putItem(any(PutItemRequest.class)))
+                .thenReturn(CompletableFuture.completedFuture(PutItemResponse.builder().build()));
+
+        cachedService.listTasks("user1");
+        List<Task> cached = cachedService.listTasks("user1").result();
+        cachedService.createTask(new Task(2L, "2023-10-28", "Project A", 8, "Coding", "user1"));
+        cachedService.listTasks("user1");
+
+        assertEquals(1, cached.size());
+        verify(dynamoDbClient, times(2)).query(any(QueryRequest.class));
+    }
+
+    @Test
+    void listStoredTasks_ShouldAlwaysQueryDynamoDb_EvenWhenCached() {
+        TaskService cachedService = new TaskService(dynamoDbClient, summaryService, new TaskCache(100, 60_000));
+        when(dynamoDbClient.query(any(QueryRequest.class))).thenReturn(CompletableFuture.completedFuture(
+                QueryResponse.builder().items(List.of(item(1L, "2023-10-27", "user1"))).build()));
+
+        cachedService.listTasks("user1", TaskFilter.NONE);
+        List<Task> stored = cachedService.listStoredTasks("user1", TaskFilter.NONE).result();
+
+        assertEquals(1, stored.size());
+        verify(dynamoDbClient, times(2)).query(any(QueryRequest.class));
+    }
+
+    @Test
+    void lastChange_ShouldReadNewestSeq_AndDropListsCachedBeforeIt() {
+        TaskService cachedService = new TaskService(dynamoDbClient, summaryService, new TaskCache(100, 60_000));
+        Map<String, AttributeValue> latest = new HashMap<>(item(1L, "2023-10-27", "user1"));
+        latest.put(TaskSchema.SEQ, TaskSchema.number(42));
+        when(dynamoDbClient.query(any(QueryRequest.class))).thenReturn(CompletableFuture.completedFuture(
+                QueryResponse.builder().items(List.of(latest)).build()));
+
+        cachedService.listTasks("user1", TaskFilter.NONE);
+        long seq = cachedService.lastChange("user1").result();
+        cachedService.listTasks("user1", TaskFilter.NONE);
+
+        assertEquals(42, seq);
+        ArgumentCaptor<QueryRequest> captor = ArgumentCaptor.forClass(QueryRequest.class);
+        verify(dynamoDbClient, times(3)).query(captor.capture());
+        QueryRequest request = captor.getAllValues().get(1);
+        assertEquals(TaskService.USER_SEQ_INDEX, request.indexName());
+        assertFalse(request.scanIndexForward());
+        assertEquals(1, request.limit());
+    }
+
+    @Test
+    void lastChange_ShouldReuseFreshSeq_UntilThisProcessWrites() {
+        TaskService cachedService = new TaskService(dynamoDbClient, summaryService, new TaskCache(100, 60_000));
+        Map<String, AttributeValue> latest = new HashMap<>(item(1L, "2023-10-27", "user1"));
+        latest.put(TaskSchema.SEQ, TaskSchema.number(42));
+        when(dynamoDbClient.query(any(QueryRequest.class))).thenReturn(CompletableFuture.completedFuture(
+                QueryResponse.builder().items(List.of(latest)).build()));
+        when(dynamoDbClient.putItem(any(PutItemRequest.class)))
+                .thenReturn(CompletableFuture.completedFuture(PutItemResponse.builder().build()));
+
+        cachedService.lastChange("user1");
+        assertEquals(42, cachedService.lastChange("user1").result());
+        verify(dynamoDbClient, times(1)).query(any(QueryRequest.class));
+
+        cachedService.createTask(new Task(0L, "2023-10-28", "Project A", 2, "Coding", "user1"));
+        cachedService.lastChange("user1");
+        verify(dynamoDbClient, times(2)).query(any(QueryRequest.class));
+    }
+
+    @Test
+    void getTask_ShouldServeWrittenTaskFromCache() {
+        TaskService cachedService = new TaskService(dynamoDbClient, summaryService, new TaskCache(100, 60_000));
+        Task task = new Task(1L, "2023-10-27", "Project A", 8, "Coding", "user1");
+        when(dynamoDbClient.putItem(any(PutItemRequest.class)))
+                .thenReturn(CompletableFuture.completedFuture(PutItemResponse.builder().build()));
+
+        cachedService.createTask(task);
+
+        assertEquals(task, cachedService.getTask(task.getId(), "user1").result());
+        verify(dynamoDbClient, never()).getItem(any(GetItemRequest.class));
+    }
+
+    private static Map<String, AttributeValue> key(long id, String date, String username) {
+        Map<String, AttributeValue> key = new HashMap<>();
+        key.put("id", AttributeValue.builder().n(Long.toString(id)).build());
+        key.put("date", AttributeValue.builder().s(date).build());
+        key.put("username", AttributeValue.builder().s(username).build());
+        return key;
+    }
+
+    private static Map<String, AttributeValue> item(long id, String date, String username) {
+        Map<String, AttributeValue> item = key(id, date, username);
+        item.put("project", AttributeValue.builder().s("Project A").build());
+        item.put("hours", AttributeValue.builder().n("8").build());
+        item.put("task", AttributeValue.builder().s("Coding").build());
+        return item;
     }
 }
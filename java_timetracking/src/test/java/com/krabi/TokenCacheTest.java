@@ -0,0 +1,66 @@
+package com.krabi;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import io.vertx.core.json.JsonObject;
+
+class TokenCacheTest {
+
+    private final AtomicLong now = new AtomicLong(1_000_000L);
+    private TokenCache cache;
+
+    @BeforeEach
+    public void setUp() {
+        cache = new TokenCache(2, now::get);
+    }
+
+    @Test
+    void get_ShouldReturnCopyOfCachedUserInfo() {
+        JsonObject userInfo = new JsonObject().put("username", "user1");
+        cache.put("token-1", userInfo, now.get() + 60_000);
+
+        JsonObject cached = cache.get("token-1");
+
+        assertEquals("user1", cached.getString("username"));
+        assertNotSame(userInfo, cached);
+        assertEquals(1, cache.hits());
+    }
+
+    @Test
+    void get_ShouldMiss_WhenTokenHasExpired() {
+        cache.put("token-1", new JsonObject().put("username", "user1"), now.get() + 60_000);
+        now.addAndGet(60_000);
+
+        assertNull(cache.get("token-1"));
+        assertEquals(1, cache.misses());
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void put_ShouldStayWithinMaximumSize() {
+        for (int i = 0; i < 10; i++) {
+            cache.put("token-" + i, new JsonObject().put("username", "user" + i), now.get() + 60_000);
+        }
+
+        assertTrue(cache.size() <= 2);
+    }
+
+    @Test
+    void hitRatio_ShouldCountHitsAndMisses() {
+        cache.put("token-1", new JsonObject().put("username", "user1"), now.get() + 60_000);
+
+        cache.get("token-1");
+        cache.get("token-1");
+        cache.get("token-1");
+        cache.get("unknown");
+
+        assertEquals(0.75, cache.hitRatio());
+    }
+}
@@ -1,4 +1,10 @@
-const { DynamoDBClient, CreateTableCommand } = require('@aws-sdk/client-dynamodb');
+const {
+  DynamoDBClient,
+  CreateTableCommand,
+  DescribeTableCommand,
+  UpdateTableCommand,
+  UpdateTimeToLiveCommand,
+} = require('@aws-sdk/client-dynamodb');
 
 const client = new DynamoDBClient({
   region: 'local',
@@ -9,6 +15,49 @@ const client = new DynamoDBClient({
   },
 });
 
+// Backend lists a user's tasks with a Query on this index instead of a full table Scan
+const USER_DATE_INDEX = 'username-date-index';
+
+const userDateIndex = {
+  IndexName: USER_DATE_INDEX,
+  KeySchema: [
+    { AttributeName: 'username', KeyType: 'HASH' },
+    { AttributeName: 'date', KeyType: 'RANGE' },
+  ],
+  Projection: { ProjectionType: 'ALL' },
+  ProvisionedThroughput: {
+    ReadCapacityUnits: 5,
+    WriteCapacityUnits: 5,
+  },
+};
+
+// GET /api/tasks/changes reads a user's writes in order from this index; every write sets seq
+const USER_SEQ_INDEX = 'username-seq-index';
+
+const userSeqIndex = {
+  IndexName: USER_SEQ_INDEX,
+  KeySchema: [
+    { AttributeName: 'username', KeyType: 'HASH' },
+    { AttributeName: 'seq', KeyType: 'RANGE' },
+  ],
+  Projection: { ProjectionType: 'ALL' },
+  ProvisionedThroughput: {
+    ReadCapacityUnits: 5,
+    WriteCapacityUnits: 5,
+  },
+};
+
+const indexAttributes = {
+  [USER_DATE_INDEX]: [
+    { AttributeName: 'username', AttributeType: 'S' },
+    { AttributeName: 'date', AttributeType: 'S' },
+  ],
+  [USER_SEQ_INDEX]: [
+    { AttributeName: 'username', AttributeType: 'S' },
+    { AttributeName: 'seq', AttributeType: 'N' },
+  ],
+};
+
 async function createTable() {
   const params = {
     TableName: 'Tasks',
@@ -17,7 +66,11 @@ async function createTable() {
     ],
     AttributeDefinitions: [
       { AttributeName: 'id', AttributeType: 'N' },
+      { AttributeName: 'username', AttributeType: 'S' },
+      { AttributeName: 'date', AttributeType: 'S' },
+      { AttributeName: 'seq', AttributeType: 'N' },
     ],
+    GlobalSecondaryIndexes: [userDateIndex, userSeqIndex],
     ProvisionedThroughput: {
       ReadCapacityUnits: 5,
       WriteCapacityUnits: 5,
@@ -30,10 +83,79 @@ async function createTable() {
   } catch (err) {
     if (err.name === 'ResourceInUseException') {
       console.log('Table already exists.');
+      await migrateTable();
+    } else {
+      console.error('Unable to create table:', err);
+    }
+  }
+  await enableTombstoneExpiry();
+}
+
+// Existing tables get missing indexes added in place. DynamoDB builds one index per
+// UpdateTable, so when both are missing run the script again once the first is ACTIVE
+async function migrateTable() {
+  const { Table } = await client.send(new DescribeTableCommand({ TableName: 'Tasks' }));
+  const indexes = Table.GlobalSecondaryIndexes || [];
+  const missing = [userDateIndex, userSeqIndex]
+    .find((wanted) => !indexes.some((index) => index.IndexName === wanted.IndexName));
+  if (!missing) {
+    console.log('All indexes already exist.');
+    return;
+  }
+  try {
+    await client.send(new UpdateTableCommand({
+      TableName: 'Tasks',
+      AttributeDefinitions: indexAttributes[missing.IndexName],
+      GlobalSecondaryIndexUpdates: [{ Create: missing }],
+    }));
+    console.log(`Index ${missing.IndexName} is being created, existing items are backfilled by DynamoDB.`);
+  } catch (err) {
+    console.error('Unable to add index:', err);
+  }
+}
+
+// Tombstones of deleted tasks carry expiresAt (epoch seconds) and are removed by TTL
+async function enableTombstoneExpiry() {
+  try {
+    await client.send(new UpdateTimeToLiveCommand({
+      TableName: 'Tasks',
+      TimeToLiveSpecification: { Enabled: true, AttributeName: 'expiresAt' },
+    }));
+    console.log('TTL on expiresAt enabled.');
+  } catch (err) {
+    // already enabled, or an emulator without TTL support
+    console.log('TTL not changed:', err.message);
+  }
+}
+
+// Per-user, per-month, per-project hour counters behind GET /api/summary
+async function createSummaryTable() {
+  const params = {
+    TableName: 'TaskSummaries',
+    KeySchema: [
+      { AttributeName: 'userMonth', KeyType: 'HASH' }, // username#YYYY-MM
+      { AttributeName: 'project', KeyType: 'RANGE' },
+    ],
+    AttributeDefinitions: [
+      { AttributeName: 'userMonth', AttributeType: 'S' },
+      { AttributeName: 'project', AttributeType: 'S' },
+    ],
+    ProvisionedThroughput: {
+      ReadCapacityUnits: 5,
+      WriteCapacityUnits: 5,
+    },
+  };
+
+  try {
+    const data = await client.send(new CreateTableCommand(params));
+    console.log('Table Created', data);
+  } catch (err) {
+    if (err.name === 'ResourceInUseException') {
+      console.log('Table TaskSummaries already exists.');
     } else {
       console.error('Unable to create table:', err);
     }
   }
 }
 
-createTable(); 
\ No newline at end of file
+createTable().then(createSummaryTable);
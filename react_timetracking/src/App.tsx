@@ -1,4 +1,4 @@
-import React, { useState, useEffect } from 'react';
+import React, { useState, useEffect, useMemo } from 'react';
 import { Container, Typography, Box, Button, TextField, Dialog, DialogTitle, DialogContent, DialogActions, List, ListItem, ListItemText, IconButton, Chip, Stack, Paper, Divider, CircularProgress } from '@mui/material';
 import EditIcon from '@mui/icons-material/Edit';
 import AddIcon from '@mui/icons-material/Add';
@@ -6,16 +6,43 @@ import DeleteIcon from '@mui/icons-material/Delete';
 import AssessmentIcon from '@mui/icons-material/Assessment';
 import LogoutIcon from '@mui/icons-material/Logout';
 import './App.css';
-import { Task, getAllTasks, addTask, updateTask, deleteTask } from './api';
+import { Task, TaskChanges, MonthlySummary, getSummary, addTask, patchTask, deleteTask, getTaskChanges, streamTaskChanges } from './api';
 import { useAuth } from './contexts/AuthContext';
 
+// How long to wait before reopening a task event stream that dropped
+const RECONNECT_DELAY_MS = 5000;
+
+// Month shown by the app, as YYYY-MM
+const currentMonth = () => {
+  const now = new Date();
+  return now.getFullYear() + '-' + String(now.getMonth() + 1).padStart(2, '0');
+};
+
+// Applies a delta sync response or pushed event; a reset replaces everything held so far
+const applyChanges = (held: Map<number, Task>, changes: TaskChanges) => {
+  const next = changes.reset ? new Map<number, Task>() : new Map(held);
+  changes.changed.forEach((task) => next.set(task.id, task));
+  changes.deleted.forEach((id) => next.delete(id));
+  return next;
+};
+
+const sleep = (ms: number, signal: AbortSignal) => new Promise<void>((resolve) => {
+  const timer = setTimeout(resolve, ms);
+  signal.addEventListener('abort', () => { clearTimeout(timer); resolve(); });
+});
+
 function App() {
   const { user, signOut } = useAuth();
-  const [tasks, setTasks] = useState<Task[]>([]);
+  const [month, setMonth] = useState(currentMonth());
+  // every task of the user by id, kept current by /tasks/changes and /tasks/events
+  const [allTasks, setAllTasks] = useState<Map<number, Task>>(new Map());
   const [loading, setLoading] = useState(true);
   const [open, setOpen] = useState(false);
   const [editIndex, setEditIndex] = useState<number | null>(null);
   const [showReport, setShowReport] = useState(false);
+  const [summary, setSummary] = useState<MonthlySummary | null>(null);
+  // bumped on every change so the month's totals are fetched again
+  const [summaryVersion, setSummaryVersion] = useState(0);
   const [form, setForm] = useState({
     project: '',
     task: '',
@@ -23,30 +50,77 @@ function App() {
     hours: 1,
   });
 
-  // Load tasks from API on mount
+  // Sync once, then follow the pushed changes. The stream is opened before catching up so
+  // nothing written in between is missed; changes that arrive both ways apply the same.
   useEffect(() => {
-    async function fetchTasks() {
-      setLoading(true);
-      try {
-        const data = await getAllTasks();
-        setTasks(data);
-      } catch (e) {
-        alert('Failed to load tasks from API '+ (e as Error).message );
+    const controller = new AbortController();
+    let cursor: string | undefined;
+    const onChanges = (changes: TaskChanges) => {
+      setAllTasks((held) => applyChanges(held, changes));
+      setSummaryVersion((version) => version + 1);
+    };
+    async function catchUp() {
+      let changes: TaskChanges;
+      do {
+        changes = await getTaskChanges(cursor);
+        setAllTasks((held) => applyChanges(held, changes));
+        cursor = changes.cursor;
+      } while (changes.hasMore && !controller.signal.aborted);
+      setSummaryVersion((version) => version + 1);
+    }
+    async function follow() {
+      let synced = false;
+      while (!controller.signal.aborted) {
+        // closes this attempt's stream too when catching up fails
+        const attempt = new AbortController();
+        const stop = () => attempt.abort();
+        controller.signal.addEventListener('abort', stop);
+        try {
+          await Promise.all([
+            streamTaskChanges(onChanges, attempt.signal),
+            catchUp().then(() => {
+              synced = true;
+              setLoading(false);
+            }),
+          ]);
+        } catch (e) {
+          if (controller.signal.aborted) {
+            return;
+          }
+          if (!synced) {
+            synced = true;
+            setLoading(false);
+            alert('Failed to load tasks from API ' + (e as Error).message);
+          }
+        } finally {
+          attempt.abort();
+          controller.signal.removeEventListener('abort', stop);
+        }
+        await sleep(RECONNECT_DELAY_MS, controller.signal);
       }
-      setLoading(false);
     }
-    fetchTasks();
+    follow();
+    return () => controller.abort();
   }, []);
 
-  const reloadTasks = async () => {
-    setLoading(true);
-    try {
-      const data = await getAllTasks();
-      setTasks(data);
-    } catch (e) {
-      alert('Failed to load tasks from API '+ (e as Error).message );
-    }
-    setLoading(false);
+  // Totals of the selected month, again after every change
+  useEffect(() => {
+    let current = true;
+    getSummary(month)
+      .then((monthSummary) => current && setSummary(monthSummary))
+      .catch((e) => current && alert('Failed to load summary from API ' + (e as Error).message));
+    return () => { current = false; };
+  }, [month, summaryVersion]);
+
+  // The selected month's tasks, in the date order the list shows them
+  const tasks = useMemo(() => Array.from(allTasks.values())
+    .filter((task) => task.date.startsWith(month))
+    .sort((a, b) => a.date.localeCompare(b.date) || a.id - b.id), [allTasks, month]);
+
+  // Shows a stored task right away; the same change arriving over the stream is a no-op
+  const stored = (task: Task) => {
+    setAllTasks((held) => new Map(held).set(task.id, task));
+    setSummaryVersion((version) => version + 1);
   };
 
   const handleOpen = (index: number | null = null) => {
@@ -74,20 +148,33 @@ function App() {
   };
 
   const handleSubmit = async () => {
-    if (editIndex !== null) {
-      const t = tasks[editIndex];
-      await updateTask(t.id, { ...t, ...form });
-    } else {
-      await addTask({ ...form, id: Date.now() });
+    try {
+      if (editIndex !== null) {
+        const t = tasks[editIndex];
+        // the version makes the server refuse the edit if the task changed meanwhile
+        stored(await patchTask(t.id, { ...form, version: t.version }));
+      } else {
+        stored(await addTask(form));
+      }
+      handleClose();
+    } catch (e) {
+      alert((e as Error).message);
     }
-    handleClose();
-    reloadTasks();
   };
 
   const handleDelete = async (index: number) => {
     const t = tasks[index];
-    await deleteTask(t.id);
-    reloadTasks();
+    try {
+      await deleteTask(t.id);
+      setAllTasks((held) => {
+        const next = new Map(held);
+        next.delete(t.id);
+        return next;
+      });
+      setSummaryVersion((version) => version + 1);
+    } catch (e) {
+      alert((e as Error).message);
+    }
   };
 
   // Group by date for display
@@ -97,25 +184,17 @@ function App() {
     return acc;
   }, {});
 
-  // Get current month tasks and summary
+  // Get selected month tasks and summary
   const getCurrentMonthTasks = () => {
-    const now = new Date();
-    const currentMonth = now.getFullYear() + '-' + String(now.getMonth() + 1).padStart(2, '0');
-    
-    return tasks.filter(task => task.date.startsWith(currentMonth));
+    return tasks.filter(task => task.date.startsWith(month));
   };
 
-  const getMonthlySummary = () => {
-    const monthTasks = getCurrentMonthTasks();
-    const projectSummary = monthTasks.reduce((acc, task) => {
-      acc[task.project] = (acc[task.project] || 0) + task.hours;
-      return acc;
-    }, {} as { [key: string]: number });
-    
-    const totalHours = monthTasks.reduce((sum, task) => sum + task.hours, 0);
-    
-    return { projectSummary, totalHours, taskCount: monthTasks.length };
-  };
+  // Totals come pre-aggregated from the server, no need to reduce over the task list
+  const getMonthlySummary = () => ({
+    projectSummary: summary?.projects ?? {},
+    totalHours: summary?.totalHours ?? 0,
+    taskCount: summary?.taskCount ?? 0,
+  });
 
   const currentMonthTasks = getCurrentMonthTasks();
   const monthlySummary = getMonthlySummary();
@@ -159,6 +238,15 @@ function App() {
         >
           {showReport ? 'Hide Report' : 'Monthly Report'}
         </Button>
+        <TextField
+          label="Month"
+          type="month"
+          size="small"
+          value={month}
+          onChange={(e) => e.target.value && setMonth(e.target.value)}
+          InputLabelProps={{ shrink: true }}
+          disabled={loading}
+        />
       </Box>
 
       {loading ? (
@@ -171,7 +259,7 @@ function App() {
           {showReport && (
             <Paper elevation={2} sx={{ p: 3, mb: 4, backgroundColor: '#f8f9fa' }}>
               <Typography variant="h5" fontWeight={600} color="primary" gutterBottom>
-                Monthly Report - {new Date().toLocaleDateString('en-US', { month: 'long', year: 'numeric' })}
+                Monthly Report - {new Date(`${month}-01T00:00:00`).toLocaleDateString('en-US', { month: 'long', year: 'numeric' })}
               </Typography>
               
               {/* Summary Cards */}
@@ -264,7 +352,7 @@ function App() {
           {/* Existing Tasks Section */}
           <Box>
             {Object.keys(grouped).length === 0 && (
-              <Typography align="center" color="text.disabled">No tasks yet. Add your first!</Typography>
+              <Typography align="center" color="text.disabled">No tasks this month yet. Add your first!</Typography>
             )}
             {Object.entries(grouped).sort((a, b) => b[0].localeCompare(a[0])).map(([date, dayTasks]) => (
               <Box key={date} mb={4}>
@@ -39,10 +39,26 @@ export interface Task {
   task: string;
   date: string;
   hours: number;
+  // bumped on every update; sending it back makes the update fail with 409 if the task changed
+  version?: number;
 }
 
-export async function getAllTasks(): Promise<Task[]> {
-  const response = await fetch(`${API_BASE_URL}/tasks`, {
+// Optional server-side filters, dates are inclusive YYYY-MM-DD
+export interface TaskQuery {
+  from?: string;
+  to?: string;
+  project?: string;
+}
+
+export async function getAllTasks(query: TaskQuery = {}): Promise<Task[]> {
+  const params = new URLSearchParams();
+  Object.entries(query).forEach(([key, value]) => {
+    if (value) {
+      params.set(key, value);
+    }
+  });
+  const search = params.toString();
+  const response = await fetch(`${API_BASE_URL}/tasks${search ? `?${search}` : ''}`, {
     headers: await getAuthHeaders(),
   });
   if (!response.ok) {
@@ -51,7 +67,75 @@ export async function getAllTasks(): Promise<Task[]> {
   return response.json();
 }
 
-export async function addTask(task: Task): Promise<void> {
+// Everything that changed after a cursor; with reset set, changed holds every task instead
+export interface TaskChanges {
+  changed: Task[];
+  deleted: number[];
+  cursor: string;
+  hasMore: boolean;
+  reset: boolean;
+}
+
+// Omit since for a full sync; afterwards pass the cursor of the previous response
+export async function getTaskChanges(since?: string): Promise<TaskChanges> {
+  const search = since ? `?since=${encodeURIComponent(since)}` : '';
+  const response = await fetch(`${API_BASE_URL}/tasks/changes${search}`, {
+    headers: await getAuthHeaders(),
+  });
+  if (!response.ok) {
+    throw new Error(`Failed to fetch task changes: ${response.statusText}`);
+  }
+  return response.json();
+}
+
+// Calls onChanges with every change pushed over /tasks/events until signal aborts or the
+// stream ends. EventSource cannot send the Authorization header, so the stream is read with fetch.
+export async function streamTaskChanges(onChanges: (changes: TaskChanges) => void, signal: AbortSignal): Promise<void> {
+  const response = await fetch(`${API_BASE_URL}/tasks/events`, {
+    headers: await getAuthHeaders(),
+    signal,
+  });
+  if (!response.ok || !response.body) {
+    throw new Error(`Failed to open task events: ${response.statusText}`);
+  }
+  const reader = response.body.pipeThrough(new TextDecoderStream()).getReader();
+  let pending = '';
+  for (;;) {
+    const { value, done } = await reader.read();
+    if (done) {
+      return;
+    }
+    pending += value;
+    let end;
+    while ((end = pending.indexOf('\n\n')) >= 0) {
+      const data = pending.slice(0, end).split('\n').find((line) => line.startsWith('data: '));
+      pending = pending.slice(end + 2);
+      if (data) {
+        onChanges(JSON.parse(data.slice('data: '.length)));
+      }
+    }
+  }
+}
+
+export interface MonthlySummary {
+  month: string;
+  totalHours: number;
+  taskCount: number;
+  projects: { [project: string]: number };
+}
+
+export async function getSummary(month: string): Promise<MonthlySummary> {
+  const response = await fetch(`${API_BASE_URL}/summary?month=${encodeURIComponent(month)}`, {
+    headers: await getAuthHeaders(),
+  });
+  if (!response.ok) {
+    throw new Error(`Failed to fetch summary: ${response.statusText}`);
+  }
+  return response.json();
+}
+
+// The server assigns the id and returns the stored task
+export async function addTask(task: Omit<Task, 'id'>): Promise<Task> {
   const response = await fetch(`${API_BASE_URL}/tasks`, {
     method: 'POST',
     headers: await getAuthHeaders('application/json'),
@@ -60,6 +144,7 @@ export async function addTask(task: Task): Promise<void> {
   if (!response.ok) {
     throw new Error(`Failed to add task: ${response.statusText}`);
   }
+  return response.json();
 }
 
 export async function updateTask(id: number, updates: Partial<Task>): Promise<void> {
@@ -73,6 +158,19 @@ export async function updateTask(id: number, updates: Partial<Task>): Promise<vo
   }
 }
 
+// Writes only the given fields and returns the updated task
+export async function patchTask(id: number, changes: Partial<Omit<Task, 'id'>>): Promise<Task> {
+  const response = await fetch(`${API_BASE_URL}/tasks/${id}`, {
+    method: 'PATCH',
+    headers: await getAuthHeaders('application/json'),
+    body: JSON.stringify(changes),
+  });
+  if (!response.ok) {
+    throw new Error(`Failed to update task: ${response.statusText}`);
+  }
+  return response.json();
+}
+
 export async function deleteTask(id: number): Promise<void> {
   const response = await fetch(`${API_BASE_URL}/tasks/${id}`, {
     method: 'DELETE',